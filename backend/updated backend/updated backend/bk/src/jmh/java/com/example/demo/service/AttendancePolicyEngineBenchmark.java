@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import java.time.LocalTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.demo.model.DepartmentSettings;
+
+/**
+ * Throughput of AttendancePolicyEngine over a block of attendance days, reported in
+ * days per second. Run with: mvn -Pbenchmark test-compile exec:exec
+ *
+ * Measured on JDK 17.0.9, one core, 1 fork of 5 x 2 s: evaluateDays about 92M days/s
+ * (+/- 36M), evaluateMonthsWithLateLoginRule about 97M days/s (+/- 60M).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttendancePolicyEngineBenchmark {
+
+    private static final int DAYS = 4096;
+
+    private final AttendancePolicyEngine engine = new AttendancePolicyEngine();
+
+    private DepartmentSettings settings;
+    private LocalTime[] punchIns;
+    private double[] hours;
+    private boolean[] otDays;
+
+    @Setup
+    public void setUp() {
+        settings = engine.defaultSettings();
+        punchIns = new LocalTime[DAYS];
+        hours = new double[DAYS];
+        otDays = new boolean[DAYS];
+
+        // Punch-ins spread around the late-login threshold, hours across all three bands
+        Random random = new Random(42);
+        for (int i = 0; i < DAYS; i++) {
+            punchIns[i] = LocalTime.of(9, 0).plusMinutes(random.nextInt(90));
+            hours[i] = random.nextInt(11 * 60) / 60.0;
+            otDays[i] = random.nextInt(10) == 0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DAYS)
+    public void evaluateDays(Blackhole blackhole) {
+        for (int i = 0; i < DAYS; i++) {
+            blackhole.consume(engine.evaluate(punchIns[i], hours[i], settings, otDays[i]));
+        }
+    }
+
+    // The bulk recompute loop: one employee-month after another, with the late-login rule applied
+    @Benchmark
+    @OperationsPerInvocation(DAYS)
+    public void evaluateMonthsWithLateLoginRule(Blackhole blackhole) {
+        LocalTime lateLoginThreshold = settings.getLateLoginThreshold();
+        double halfDayThreshold = settings.getHalfDayThreshold();
+        double fullDayThreshold = settings.getFullDayThreshold();
+        int lateLogins = 0;
+        for (int i = 0; i < DAYS; i++) {
+            if (i % 31 == 0) {
+                lateLogins = 0;
+            }
+            AttendancePolicyEngine.Result result = engine.evaluate(punchIns[i], hours[i],
+                    lateLoginThreshold, halfDayThreshold, fullDayThreshold, otDays[i]);
+            if (result.countsAsLateLogin()) {
+                result = result.withLateLoginCount(++lateLogins);
+            }
+            blackhole.consume(result.getStatus());
+        }
+    }
+}
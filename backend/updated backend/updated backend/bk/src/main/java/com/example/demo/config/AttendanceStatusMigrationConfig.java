@@ -0,0 +1,71 @@
+package com.example.demo.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-time conversion of the old free-text attendance.status column into the
+ * status_code column mapped by AttendanceStatus. Rows already converted are skipped,
+ * so running it on every start is harmless; the legacy column is left in place.
+ * Labels that match no AttendanceStatus stay at a NULL status_code and are logged with
+ * their count and a sample of row ids, so they can be corrected by hand.
+ */
+@Slf4j
+@Configuration
+public class AttendanceStatusMigrationConfig {
+
+    private static final String KNOWN_LABELS = "('Absent', 'Half Day', 'Present (On Time)', 'Present (Late Login)')";
+    private static final int SAMPLE_SIZE = 20;
+
+    @Bean
+    public CommandLineRunner migrateAttendanceStatus(DataSource dataSource) {
+        return args -> {
+            if (!hasLegacyStatusColumn(dataSource)) {
+                return;
+            }
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            int converted = jdbcTemplate.update(
+                    "UPDATE attendance SET status_code = CASE status " +
+                    "WHEN 'Absent' THEN 0 " +
+                    "WHEN 'Half Day' THEN 1 " +
+                    "WHEN 'Present (On Time)' THEN 2 " +
+                    "WHEN 'Present (Late Login)' THEN 3 END " +
+                    "WHERE status_code IS NULL AND status IN " + KNOWN_LABELS);
+            if (converted > 0) {
+                log.info("Converted {} attendance statuses to status_code", converted);
+            }
+
+            String unknown = "FROM attendance WHERE status_code IS NULL AND status IS NOT NULL " +
+                    "AND status NOT IN " + KNOWN_LABELS;
+            Integer unconverted = jdbcTemplate.queryForObject("SELECT COUNT(*) " + unknown, Integer.class);
+            if (unconverted != null && unconverted > 0) {
+                List<Long> sample = jdbcTemplate.queryForList(
+                        "SELECT id " + unknown + " ORDER BY id LIMIT " + SAMPLE_SIZE, Long.class);
+                List<String> labels = jdbcTemplate.queryForList(
+                        "SELECT DISTINCT status " + unknown + " ORDER BY status LIMIT " + SAMPLE_SIZE, String.class);
+                log.warn("{} attendance rows have a status label that matches no AttendanceStatus and were left " +
+                        "without status_code; labels {}, first ids {}", unconverted, labels, sample);
+            }
+        };
+    }
+
+    private static boolean hasLegacyStatusColumn(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, "attendance", "status")) {
+                return columns.next();
+            }
+        }
+    }
+}
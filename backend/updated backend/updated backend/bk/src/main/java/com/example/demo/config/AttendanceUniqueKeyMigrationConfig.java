@@ -0,0 +1,49 @@
+package com.example.demo.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.AttendanceDeduplicationService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adds uk_attendance_employee_date to databases created before the constraint existed.
+ * Schema update cannot add it while duplicate (employee_id, date) rows are present; those
+ * are only reported here, never deleted at boot. An admin collapses them with
+ * POST /api/attendance/duplicates/collapse, which adds the key afterwards.
+ * Once the key exists this does nothing.
+ */
+@Slf4j
+@Configuration
+public class AttendanceUniqueKeyMigrationConfig {
+
+    // Duplicates listed individually in the startup log; the rest are only counted
+    private static final int MAX_LOGGED = 20;
+
+    @Bean
+    public CommandLineRunner addAttendanceUniqueKey(AttendanceDeduplicationService deduplicationService) {
+        return args -> {
+            if (deduplicationService.hasUniqueKey()) {
+                return;
+            }
+            List<Map<String, Object>> duplicates = deduplicationService.findDuplicates();
+            if (duplicates.isEmpty()) {
+                deduplicationService.addUniqueKey();
+                return;
+            }
+
+            for (Map<String, Object> duplicate : duplicates.subList(0, Math.min(MAX_LOGGED, duplicates.size()))) {
+                log.warn("Duplicate attendance of {} on {}: {} rows",
+                        duplicate.get("employeeId"), duplicate.get("date"), duplicate.get("rows"));
+            }
+            log.warn("{} employee-days have duplicate attendance rows, so unique key {} was not added; " +
+                    "review them and POST /api/attendance/duplicates/collapse to keep the most complete row of each",
+                    duplicates.size(), AttendanceDeduplicationService.UNIQUE_KEY);
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.LateLoginCounterDeduplicationService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adds uk_late_login_counter_employee_month to databases created before the constraint existed;
+ * the increment upsert relies on it. Duplicate counters are merged first (their counts summed),
+ * in their own transaction, then the key is added. Once the key exists this does nothing.
+ */
+@Slf4j
+@Configuration
+public class LateLoginCounterUniqueKeyMigrationConfig {
+
+    @Bean
+    public CommandLineRunner addLateLoginCounterUniqueKey(LateLoginCounterDeduplicationService deduplicationService) {
+        return args -> {
+            if (deduplicationService.hasUniqueKey()) {
+                return;
+            }
+            int deleted = deduplicationService.mergeDuplicates();
+            if (deleted > 0) {
+                log.info("Merged duplicate late login counters ({} rows deleted)", deleted);
+            }
+            deduplicationService.addUniqueKey();
+        };
+    }
+}
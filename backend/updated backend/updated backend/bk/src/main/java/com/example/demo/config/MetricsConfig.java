@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.service.PresenceRegistry;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Application gauges, exported with the other meters on /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Attendance rows punched in today and not yet punched out, read from the in-memory presence registry
+    @Bean
+    public MeterBinder openAttendanceGauge(PresenceRegistry presenceRegistry) {
+        return registry -> Gauge.builder("hrms.attendance.open", presenceRegistry, PresenceRegistry::getOpenCount)
+                .description("Attendance rows of today without a punch-out")
+                .register(registry);
+    }
+}
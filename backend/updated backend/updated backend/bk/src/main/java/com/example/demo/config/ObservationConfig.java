@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+
+/**
+ * Times every public method of classes annotated with @Observed. The registry feeds
+ * Micrometer timers that are scraped from /actuator/prometheus.
+ */
+@Configuration
+public class ObservationConfig {
+
+    @Bean
+    public ObservedAspect observedAspect(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new ObservedAspect(observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+}
@@ -60,6 +60,9 @@ public class SecurityConfig {
                 .requestMatchers("/api/notices/**").permitAll()
                 .requestMatchers("/holidays/**").permitAll()
                 .requestMatchers("/api/leaves/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // metrics include per-service timings: scrape with an admin token
+                .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
                
                 .requestMatchers(
                         "/api/auth/forgot-password",
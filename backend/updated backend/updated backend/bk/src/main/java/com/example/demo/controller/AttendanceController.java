@@ -1,24 +1,42 @@
 package com.example.demo.controller;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 import com.example.demo.model.Attendance;
+import com.example.demo.service.AttendanceDeduplicationService;
+import com.example.demo.service.AttendanceExportService;
+import com.example.demo.service.AttendanceRecalculationService;
 import com.example.demo.service.AttendanceService;
+import com.example.demo.service.AttendanceSummaryService;
+import com.example.demo.service.BiometricImportService;
+import com.example.demo.service.PresenceRegistry;
+import com.example.demo.service.PunchIngestionQueue;
+import com.example.demo.service.PunchStatusStream;
 
 @RestController
 @RequestMapping("/api/attendance")
@@ -27,6 +45,30 @@ public class AttendanceController {
     
     @Autowired
     private AttendanceService attendanceService;
+
+    @Autowired
+    private PunchIngestionQueue punchIngestionQueue;
+
+    @Autowired
+    private AttendanceSummaryService attendanceSummaryService;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private AttendanceExportService attendanceExportService;
+
+    @Autowired
+    private PunchStatusStream punchStatusStream;
+
+    @Autowired
+    private AttendanceRecalculationService attendanceRecalculationService;
+
+    @Autowired
+    private BiometricImportService biometricImportService;
+
+    @Autowired
+    private AttendanceDeduplicationService attendanceDeduplicationService;
     
     @GetMapping("/punch-status/{employeeId}")
     public ResponseEntity<Map<String, Object>> getPunchStatus(
@@ -39,11 +81,21 @@ public class AttendanceController {
             } else {
                 status = attendanceService.getPunchStatus(employeeId); // Today
             }
+            // A punch accepted by the ingestion queue but not yet (or never) written
+            LocalDate statusDate = date != null ? date : LocalDate.now();
+            punchIngestionQueue.getLatestReceipt(employeeId, statusDate)
+                    .ifPresent(receipt -> status.put("queuedPunch", receipt));
             return ResponseEntity.ok(status);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }    
+    // Punch status pushed over Server-Sent Events whenever it changes, replacing polling
+    @GetMapping(value = "/punch-status/{employeeId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPunchStatus(@PathVariable String employeeId) {
+        return punchStatusStream.subscribe(employeeId);
+    }
+
     @GetMapping("/punch-out-status/{employeeId}")
     public ResponseEntity<Map<String, Object>> getPunchOutStatus(@PathVariable String employeeId) {
         try {
@@ -64,6 +116,29 @@ public class AttendanceController {
         }
     }
     
+    // Queued punch-in: acknowledged immediately, written by the ingestion writers
+    @PostMapping("/punch-in/{employeeId}/queue")
+    public ResponseEntity<?> queuePunchIn(
+            @PathVariable String employeeId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Idempotency-Key header is required"));
+        }
+        try {
+            PunchIngestionQueue.PunchReceipt receipt = punchIngestionQueue.enqueue(employeeId, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(receipt);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/punch-in/queue/{idempotencyKey}")
+    public ResponseEntity<?> getQueuedPunch(@PathVariable String idempotencyKey) {
+        return punchIngestionQueue.getReceipt(idempotencyKey)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/punch-out/{employeeId}")
     public ResponseEntity<?> punchOut(@PathVariable String employeeId) {
         try {
@@ -147,6 +222,121 @@ public class AttendanceController {
         }
     }
 
+    @GetMapping("/status-counts")
+    public ResponseEntity<?> getStatusCounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(attendanceService.getStatusCounts(startDate, endDate));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/department/{department}/summary/{year}/{month}")
+    public ResponseEntity<Map<String, Object>> getDepartmentMonthlySummary(
+            @PathVariable String department,
+            @PathVariable int year,
+            @PathVariable int month) {
+        try {
+            Map<String, Object> summary = attendanceService.getDepartmentMonthlySummary(department, year, month);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                Map.of("error", "Failed to get department summary: " + e.getMessage()));
+        }
+    }
+
+    // Who is in right now, per department (served from memory)
+    @GetMapping("/presence")
+    public ResponseEntity<Map<String, Map<String, Integer>>> getPresenceCounts() {
+        return ResponseEntity.ok(presenceRegistry.getDepartmentCounts());
+    }
+
+    @GetMapping("/presence/department/{department}")
+    public ResponseEntity<Map<String, Object>> getDepartmentPresence(@PathVariable String department) {
+        return ResponseEntity.ok(presenceRegistry.getDepartmentPresence(department));
+    }
+
+    // Everyone's attendance between the dates, streamed as CSV (default) or XLSX
+    @GetMapping("/export")
+    public void exportAttendance(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        if (endDate.isBefore(startDate)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "endDate must not be before startDate");
+            return;
+        }
+
+        String filename = "Attendance_" + startDate + "_to_" + endDate;
+        if ("xlsx".equalsIgnoreCase(format)) {
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment; filename=" + filename + ".xlsx");
+            attendanceExportService.exportXlsx(startDate, endDate, response.getOutputStream());
+        } else {
+            response.setContentType("text/csv; charset=UTF-8");
+            response.setHeader("Content-Disposition", "attachment; filename=" + filename + ".csv");
+            attendanceExportService.exportCsv(startDate, endDate, response.getOutputStream());
+        }
+    }
+
+    // Re-apply the status policy to a department's rows after its settings changed
+    @PostMapping("/recalculate")
+    public ResponseEntity<Map<String, Object>> recalculateAttendance(
+            @RequestParam String department,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(attendanceRecalculationService.recalculate(department, startDate, endDate));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Bulk load of biometric terminal logs (CSV: employeeId,timestamp,direction); returns a per-row error report
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importBiometricLogs(@RequestParam("file") MultipartFile file) {
+        try (InputStreamReader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(biometricImportService.importCsv(reader));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Duplicate (employee, date) rows that block the attendance unique key; nothing is changed
+    @GetMapping("/duplicates")
+    public ResponseEntity<List<Map<String, Object>>> getDuplicateAttendance() {
+        return ResponseEntity.ok(attendanceDeduplicationService.findDuplicates());
+    }
+
+    // Keep the most complete row of each duplicate, rebuild the affected months and add the unique key
+    @PostMapping("/duplicates/collapse")
+    public ResponseEntity<Map<String, Object>> collapseDuplicateAttendance() {
+        try {
+            return ResponseEntity.ok(attendanceDeduplicationService.collapseDuplicates());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Backfill the monthly rollup from the attendance table (whole months, inclusive)
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildMonthlySummaries(
+            @RequestParam int startYear,
+            @RequestParam int startMonth,
+            @RequestParam int endYear,
+            @RequestParam int endMonth) {
+        try {
+            Map<String, Object> report = attendanceSummaryService.rebuild(
+                YearMonth.of(startYear, startMonth), YearMonth.of(endYear, endMonth));
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/test/punch-out/{employeeId}")
     public ResponseEntity<?> testPunchOut(
             @PathVariable String employeeId,
@@ -171,4 +361,20 @@ public class AttendanceController {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    // Keyset-paginated history, newest first; pass nextCursor from the previous page to continue
+    @GetMapping("/history/{employeeId}/page")
+    public ResponseEntity<Map<String, Object>> getAttendanceHistoryPage(
+            @PathVariable String employeeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "30") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            return ResponseEntity.ok(attendanceService.getAttendanceHistoryPage(
+                    employeeId, startDate, endDate, cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
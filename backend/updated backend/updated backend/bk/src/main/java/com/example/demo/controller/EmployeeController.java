@@ -39,6 +39,7 @@ import com.example.demo.repository.EmployeeRepository;
 import com.example.demo.repository.ExperienceRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.EmailService;
+import com.example.demo.service.EmployeeSearchIndex;
 import com.example.demo.service.EmployeeService;
 import com.example.demo.service.NotificationService;
 import com.example.demo.util.JwtUtil;
@@ -333,6 +334,29 @@ public class EmployeeController {
         return ResponseEntity.ok(dtos);
     }
 
+    // ------------------- Paginated summaries -------------------
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> getEmployeePage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String department,
+            @RequestParam(required = false) Employee.EmployeeType type) {
+        try {
+            return ResponseEntity.ok(employeeService.getEmployeeSummaryPage(active, department, type, page, size));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ------------------- Typeahead -------------------
+    @GetMapping("/typeahead")
+    public ResponseEntity<List<EmployeeSearchIndex.Entry>> typeahead(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(employeeService.typeahead(q, Math.min(Math.max(limit, 1), 50)));
+    }
+
     // ------------------- Get Employee By ID -------------------
     @GetMapping("/{employeeId}")
     public ResponseEntity<EmployeeDTO> getEmployeeById(@PathVariable String employeeId) {
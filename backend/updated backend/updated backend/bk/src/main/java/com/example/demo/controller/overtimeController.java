@@ -311,7 +311,7 @@ public class overtimeController {
             } else if (department != null) {
                 employees = overtimeService.getEmployeesByDepartment(department);
             } else if (search != null) {
-                employees = employeeRepository.searchEmployees(search);
+                employees = overtimeService.searchEmployeesByDepartment(search, null);
             } else {
                 employees = employeeRepository.findAll();
             }
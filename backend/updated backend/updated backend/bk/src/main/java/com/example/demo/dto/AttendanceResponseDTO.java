@@ -1,11 +1,15 @@
 package com.example.demo.dto;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import com.example.demo.model.AttendanceStatus;
+
 public class AttendanceResponseDTO {
     private Long id;
     private String employeeId;
     private String employeeName;
+    private LocalDate date;
     private LocalDateTime punchInTime;
     private LocalDateTime punchOutTime;
     private Double hoursWorked;
@@ -15,13 +19,14 @@ public class AttendanceResponseDTO {
     private Boolean isOtDay;
     
     // Constructor
-    public AttendanceResponseDTO(Long id, String employeeId, String employeeName, 
+    public AttendanceResponseDTO(Long id, String employeeId, String employeeName, LocalDate date,
                                 LocalDateTime punchInTime, LocalDateTime punchOutTime,
                                 Double hoursWorked, String status, Double idleTime,
                                 Boolean isLateLogin, Boolean isOtDay) {
         this.id = id;
         this.employeeId = employeeId;
         this.employeeName = employeeName;
+        this.date = date;
         this.punchInTime = punchInTime;
         this.punchOutTime = punchOutTime;
         this.hoursWorked = hoursWorked;
@@ -31,10 +36,20 @@ public class AttendanceResponseDTO {
         this.isOtDay = isOtDay;
     }
     
+    // Constructor used by JPQL projections, which select the status enum
+    public AttendanceResponseDTO(Long id, String employeeId, String employeeName, LocalDate date,
+                                LocalDateTime punchInTime, LocalDateTime punchOutTime,
+                                Double hoursWorked, AttendanceStatus status, Double idleTime,
+                                Boolean isLateLogin, Boolean isOtDay) {
+        this(id, employeeId, employeeName, date, punchInTime, punchOutTime, hoursWorked,
+             status != null ? status.getLabel() : null, idleTime, isLateLogin, isOtDay);
+    }
+    
     // Getters
     public Long getId() { return id; }
     public String getEmployeeId() { return employeeId; }
     public String getEmployeeName() { return employeeName; }
+    public LocalDate getDate() { return date; }
     public LocalDateTime getPunchInTime() { return punchInTime; }
     public LocalDateTime getPunchOutTime() { return punchOutTime; }
     public Double getHoursWorked() { return hoursWorked; }
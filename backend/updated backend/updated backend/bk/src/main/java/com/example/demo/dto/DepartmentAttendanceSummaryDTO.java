@@ -0,0 +1,48 @@
+package com.example.demo.dto;
+
+/**
+ * One employee's attendance totals for a month, aggregated in the database
+ * by AttendanceRepository.summarizeDepartmentMonth.
+ */
+public class DepartmentAttendanceSummaryDTO {
+    private String employeeId;
+    private String employeeName;
+    private Long attendanceRecords;
+    private Long presentOnTimeDays;
+    private Long presentLateDays;
+    private Long halfDays;
+    private Long absentDays;
+    private Long lateLogins;
+    private Double totalWorkedHours;
+    private Double totalIdleHours;
+
+    // Constructor used by the JPQL projection
+    public DepartmentAttendanceSummaryDTO(String employeeId, String employeeName, Long attendanceRecords,
+                                          Long presentOnTimeDays, Long presentLateDays, Long halfDays,
+                                          Long absentDays, Long lateLogins,
+                                          Double totalWorkedHours, Double totalIdleHours) {
+        this.employeeId = employeeId;
+        this.employeeName = employeeName;
+        this.attendanceRecords = attendanceRecords;
+        this.presentOnTimeDays = presentOnTimeDays;
+        this.presentLateDays = presentLateDays;
+        this.halfDays = halfDays;
+        this.absentDays = absentDays;
+        this.lateLogins = lateLogins;
+        this.totalWorkedHours = Math.round(totalWorkedHours * 100.0) / 100.0;
+        this.totalIdleHours = Math.round(totalIdleHours * 100.0) / 100.0;
+    }
+
+    // Getters
+    public String getEmployeeId() { return employeeId; }
+    public String getEmployeeName() { return employeeName; }
+    public Long getAttendanceRecords() { return attendanceRecords; }
+    public Long getPresentOnTimeDays() { return presentOnTimeDays; }
+    public Long getPresentLateDays() { return presentLateDays; }
+    public Long getPresentDays() { return presentOnTimeDays + presentLateDays; }
+    public Long getHalfDays() { return halfDays; }
+    public Long getAbsentDays() { return absentDays; }
+    public Long getLateLogins() { return lateLogins; }
+    public Double getTotalWorkedHours() { return totalWorkedHours; }
+    public Double getTotalIdleHours() { return totalIdleHours; }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Employee;
+
+/**
+ * One row of the paginated employee list, projected by EmployeeRepository.findSummaryPage
+ * so no employee association is loaded or serialized.
+ */
+public class EmployeeSummaryDTO {
+    private String employeeId;
+    private String name;
+    private String email;
+    private String phone;
+    private String department;
+    private String designation;
+    private Employee.EmployeeType typeOfEmployee;
+    private Boolean isActive;
+
+    // Constructor used by the JPQL projection
+    public EmployeeSummaryDTO(String employeeId, String name, String email, String phone, String department,
+                              String designation, Employee.EmployeeType typeOfEmployee, Boolean isActive) {
+        this.employeeId = employeeId;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.department = department;
+        this.designation = designation;
+        this.typeOfEmployee = typeOfEmployee;
+        this.isActive = isActive;
+    }
+
+    // Getters
+    public String getEmployeeId() { return employeeId; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getPhone() { return phone; }
+    public String getDepartment() { return department; }
+    public String getDesignation() { return designation; }
+    public Employee.EmployeeType getTypeOfEmployee() { return typeOfEmployee; }
+    public Boolean getIsActive() { return isActive; }
+}
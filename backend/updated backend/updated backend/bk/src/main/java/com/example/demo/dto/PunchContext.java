@@ -0,0 +1,75 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.Employee.EmployeeType;
+import com.example.demo.model.Overtime.OTStatus;
+import com.example.demo.model.Overtime.OTType;
+
+/**
+ * Everything the punch endpoints need to know about one employee on one date,
+ * loaded by AttendanceRepository.findPunchContext in a single statement.
+ * Holidays are not part of it; they come from the in-memory HolidayCalendar.
+ */
+public class PunchContext {
+    private String employeeId;
+    private String employeeName;
+    private EmployeeType employeeType;
+    private String department;
+    private LocalDate date;
+    private Long attendanceId;
+    private LocalDateTime punchInTime;
+    private LocalDateTime punchOutTime;
+    private AttendanceStatus attendanceStatus;
+    private Double hoursWorked;
+    private Boolean isLateLogin;
+    private Boolean isOtDay;
+    private OTStatus overtimeStatus;
+    private OTType overtimeType;
+
+    // Constructor used by the JPQL projection
+    public PunchContext(String employeeId, String employeeName, EmployeeType employeeType, String department,
+                        LocalDate date, Long attendanceId, LocalDateTime punchInTime, LocalDateTime punchOutTime,
+                        AttendanceStatus attendanceStatus, Double hoursWorked, Boolean isLateLogin, Boolean isOtDay,
+                        OTStatus overtimeStatus, OTType overtimeType) {
+        this.employeeId = employeeId;
+        this.employeeName = employeeName;
+        this.employeeType = employeeType;
+        this.department = department;
+        this.date = date;
+        this.attendanceId = attendanceId;
+        this.punchInTime = punchInTime;
+        this.punchOutTime = punchOutTime;
+        this.attendanceStatus = attendanceStatus;
+        this.hoursWorked = hoursWorked;
+        this.isLateLogin = isLateLogin;
+        this.isOtDay = isOtDay;
+        this.overtimeStatus = overtimeStatus;
+        this.overtimeType = overtimeType;
+    }
+
+    // Getters
+    public String getEmployeeId() { return employeeId; }
+    public String getEmployeeName() { return employeeName; }
+    public EmployeeType getEmployeeType() { return employeeType; }
+    public String getDepartment() { return department; }
+    public LocalDate getDate() { return date; }
+    public Long getAttendanceId() { return attendanceId; }
+    public LocalDateTime getPunchInTime() { return punchInTime; }
+    public LocalDateTime getPunchOutTime() { return punchOutTime; }
+    public String getAttendanceStatus() { return attendanceStatus != null ? attendanceStatus.getLabel() : null; }
+    public Double getHoursWorked() { return hoursWorked; }
+    public Boolean getIsLateLogin() { return isLateLogin; }
+    public Boolean getIsOtDay() { return isOtDay; }
+    public OTStatus getOvertimeStatus() { return overtimeStatus; }
+    public OTType getOvertimeType() { return overtimeType; }
+
+    // Helpers
+    public boolean hasAttendance() { return attendanceId != null; }
+    public boolean isPunchedIn() { return punchInTime != null; }
+    public boolean isPunchedOut() { return punchOutTime != null; }
+    public boolean isOtAllocated() { return overtimeStatus != null; }
+    public boolean isOtApproved() { return overtimeStatus == OTStatus.APPROVED; }
+}
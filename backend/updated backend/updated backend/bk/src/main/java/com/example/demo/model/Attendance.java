@@ -3,20 +3,34 @@ package com.example.demo.model;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "attendance")
+@Table(name = "attendance",
+       indexes = {
+           @Index(name = "idx_attendance_date_id", columnList = "date, id"),
+           @Index(name = "idx_attendance_status_date", columnList = "status_code, date")
+       },
+       uniqueConstraints = {
+           // One row per employee and day; punch-in relies on it to reject a racing duplicate
+           @UniqueConstraint(name = "uk_attendance_employee_date", columnNames = { "employee_id", "date" })
+       })
 public class Attendance {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,29 +53,41 @@ public class Attendance {
     private LocalDateTime punchInTime;
     private LocalDateTime punchOutTime;
     private Double hoursWorked;
-    private String status; // Absent, Half Day, Present (Late Login), Present (On Time)
+    @Convert(converter = AttendanceStatusConverter.class)
+    @Column(name = "status_code", columnDefinition = "TINYINT")
+    private AttendanceStatus status; // Absent, Half Day, Present (Late Login), Present (On Time)
     private Double idleTime;
     private Boolean isLateLogin;
     private Boolean isOtDay;
     private Boolean compOffUsed;
     private Boolean manualApproval;
     private String remarks;
+
+    // Optimistic lock; bulk updates of attendance rows increment it as well
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
     
     // Default constructor
     public Attendance() {}
     
     // Constructor with Employee and Date
     public Attendance(Employee employee, LocalDate date) {
+        this(employee, employee.getName(), date);
+    }
+    
+    // Constructor for callers that already know the name (does not touch a lazy Employee proxy)
+    public Attendance(Employee employee, String employeeName, LocalDate date) {
         this.employee = employee;
-        this.employeeName = employee.getName();
+        this.employeeName = employeeName;
         this.date = date;
-        this.status = "Absent";
+        this.status = AttendanceStatus.ABSENT;
         this.idleTime = 9.0;
         this.isLateLogin = false;
         this.isOtDay = false;
         this.compOffUsed = false;
         this.manualApproval = false;
-        System.out.println("New Attendance created with status: " + this.status);
     }
     
     // Getters and Setters
@@ -83,8 +109,13 @@ public class Attendance {
     public Double getHoursWorked() { return hoursWorked; }
     public void setHoursWorked(Double hoursWorked) { this.hoursWorked = hoursWorked; }
     
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    // Label form ("Present (On Time)" etc.), as exposed in JSON
+    public String getStatus() { return status != null ? status.getLabel() : null; }
+    public void setStatus(String status) { this.status = AttendanceStatus.fromLabel(status); }
+
+    @JsonIgnore
+    public AttendanceStatus getAttendanceStatus() { return status; }
+    public void setAttendanceStatus(AttendanceStatus status) { this.status = status; }
     
     public Double getIdleTime() { return idleTime; }
     public void setIdleTime(Double idleTime) { this.idleTime = idleTime; }
@@ -103,4 +134,6 @@ public class Attendance {
     
     public String getRemarks() { return remarks; }
     public void setRemarks(String remarks) { this.remarks = remarks; }
+
+    public Long getVersion() { return version; }
 }
\ No newline at end of file
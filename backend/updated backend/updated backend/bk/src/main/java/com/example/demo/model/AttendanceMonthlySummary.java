@@ -0,0 +1,102 @@
+package com.example.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Per-employee monthly rollup of completed (punched out) attendance rows.
+ * Maintained incrementally by AttendanceSummaryService; rebuildable from the attendance table.
+ */
+@Entity
+@Table(name = "attendance_monthly_summary",
+       uniqueConstraints = @UniqueConstraint(name = "uk_monthly_summary_employee_month",
+                                             columnNames = {"employee_id", "year", "month"}))
+public class AttendanceMonthlySummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "employee_id", nullable = false)
+    private String employeeId;
+
+    @Column(nullable = false)
+    private Integer year;
+
+    @Column(nullable = false)
+    private Integer month;
+
+    private Double workedHours;
+    private Double idleHours;
+    private Integer presentDays;
+    private Integer halfDays;
+    private Integer absentDays;
+    private Integer lateDays;
+    private Integer workingDays;
+    private Integer attendanceRecords;
+    private LocalDateTime updatedAt;
+
+    // Default constructor
+    public AttendanceMonthlySummary() {}
+
+    // Empty month for an employee
+    public AttendanceMonthlySummary(String employeeId, Integer year, Integer month) {
+        this.employeeId = employeeId;
+        this.year = year;
+        this.month = month;
+        this.workedHours = 0.0;
+        this.idleHours = 0.0;
+        this.presentDays = 0;
+        this.halfDays = 0;
+        this.absentDays = 0;
+        this.lateDays = 0;
+        this.workingDays = 0;
+        this.attendanceRecords = 0;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getEmployeeId() { return employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+
+    public Integer getYear() { return year; }
+    public void setYear(Integer year) { this.year = year; }
+
+    public Integer getMonth() { return month; }
+    public void setMonth(Integer month) { this.month = month; }
+
+    public Double getWorkedHours() { return workedHours; }
+    public void setWorkedHours(Double workedHours) { this.workedHours = workedHours; }
+
+    public Double getIdleHours() { return idleHours; }
+    public void setIdleHours(Double idleHours) { this.idleHours = idleHours; }
+
+    public Integer getPresentDays() { return presentDays; }
+    public void setPresentDays(Integer presentDays) { this.presentDays = presentDays; }
+
+    public Integer getHalfDays() { return halfDays; }
+    public void setHalfDays(Integer halfDays) { this.halfDays = halfDays; }
+
+    public Integer getAbsentDays() { return absentDays; }
+    public void setAbsentDays(Integer absentDays) { this.absentDays = absentDays; }
+
+    public Integer getLateDays() { return lateDays; }
+    public void setLateDays(Integer lateDays) { this.lateDays = lateDays; }
+
+    public Integer getWorkingDays() { return workingDays; }
+    public void setWorkingDays(Integer workingDays) { this.workingDays = workingDays; }
+
+    public Integer getAttendanceRecords() { return attendanceRecords; }
+    public void setAttendanceRecords(Integer attendanceRecords) { this.attendanceRecords = attendanceRecords; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
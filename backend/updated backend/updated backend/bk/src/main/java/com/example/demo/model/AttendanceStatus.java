@@ -0,0 +1,47 @@
+package com.example.demo.model;
+
+/**
+ * Day status of an attendance row. Stored as a one-byte code (see AttendanceStatusConverter);
+ * the label is what the API has always returned.
+ */
+public enum AttendanceStatus {
+    ABSENT(0, "Absent"),
+    HALF_DAY(1, "Half Day"),
+    PRESENT_ON_TIME(2, "Present (On Time)"),
+    PRESENT_LATE_LOGIN(3, "Present (Late Login)");
+
+    private final int code;
+    private final String label;
+
+    AttendanceStatus(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int getCode() { return code; }
+    public String getLabel() { return label; }
+
+    public boolean isPresent() {
+        return this == PRESENT_ON_TIME || this == PRESENT_LATE_LOGIN;
+    }
+
+    public static AttendanceStatus fromCode(Integer code) {
+        if (code == null) return null;
+        for (AttendanceStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown attendance status code: " + code);
+    }
+
+    public static AttendanceStatus fromLabel(String label) {
+        if (label == null) return null;
+        for (AttendanceStatus status : values()) {
+            if (status.label.equalsIgnoreCase(label) || status.name().equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown attendance status: " + label);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Persists AttendanceStatus by its fixed code, so reordering the enum never rewrites data
+@Converter
+public class AttendanceStatusConverter implements AttributeConverter<AttendanceStatus, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(AttendanceStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public AttendanceStatus convertToEntityAttribute(Integer code) {
+        return AttendanceStatus.fromCode(code);
+    }
+}
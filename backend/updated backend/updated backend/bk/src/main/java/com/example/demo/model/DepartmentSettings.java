@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "department_settings")
+@Table(name = "department_settings",
+       indexes = @Index(name = "idx_department_settings_department_id", columnList = "department_id"))
 public class DepartmentSettings {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -12,6 +13,10 @@ public class DepartmentSettings {
     
     @Column(name = "department_name")
     private String departmentName;
+
+    // Matches JobDetails.deptId; rows without it are matched on their own id
+    @Column(name = "department_id")
+    private String departmentId;
     
     @Column(name = "emp_type")
     private String empType;
@@ -80,6 +85,9 @@ public class DepartmentSettings {
     public String getDepartmentName() { return departmentName; }
     public void setDepartmentName(String departmentName) { this.departmentName = departmentName; }
     
+    public String getDepartmentId() { return departmentId; }
+    public void setDepartmentId(String departmentId) { this.departmentId = departmentId; }
+    
     public String getEmpType() { return empType; }
     public void setEmpType(String empType) { this.empType = empType; }
     
@@ -3,6 +3,7 @@ import jakarta.persistence.JoinColumn;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -20,6 +21,7 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -123,6 +125,12 @@ public class Employee {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Optimistic lock. Primitive, so Spring Data still tells new employees by their (assigned) id
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
     
     // Add the missing relationshdf3ip to Overtime
     @OneToMany(mappedBy = "employee", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -222,7 +230,6 @@ public class Employee {
         int worked = this.workedDays != null ? this.workedDays : 0;
         int incentive = this.otIncentiveDays != null ? this.otIncentiveDays : 0;
         this.totalWorkedDays = worked + incentive;
-        System.out.println("🔄 Auto-calculated totalWorkedDays: " + this.totalWorkedDays + " = " + worked + " + " + incentive);
     }
     
     @Transient
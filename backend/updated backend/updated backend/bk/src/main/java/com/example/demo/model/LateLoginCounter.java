@@ -3,7 +3,9 @@ package com.example.demo.model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "late_login_counter")
+@Table(name = "late_login_counter",
+       uniqueConstraints = @UniqueConstraint(name = "uk_late_login_counter_employee_month",
+                                             columnNames = {"employee_id", "month", "year"}))
 public class LateLoginCounter {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,53 @@
+package com.example.demo.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Durable record of a punch-in accepted by PunchIngestionQueue, written before the punch is
+ * acknowledged. QUEUED rows are punches not written yet and are queued again at startup; the
+ * idempotency key is the primary key, so a retried request finds its receipt after a restart.
+ */
+@Entity
+@Table(name = "punch_in_receipt",
+       indexes = @Index(name = "idx_punch_in_receipt_status_received", columnList = "status, received_at"))
+public class PunchInReceipt {
+    @Id
+    @Column(name = "idempotency_key", length = 128)
+    private String idempotencyKey;
+
+    @Column(name = "employee_id", nullable = false)
+    private String employeeId;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    private String message;
+
+    // Default constructor
+    public PunchInReceipt() {}
+
+    // Getters and Setters
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getEmployeeId() { return employeeId; }
+    public void setEmployeeId(String employeeId) { this.employeeId = employeeId; }
+
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+    public void setReceivedAt(LocalDateTime receivedAt) { this.receivedAt = receivedAt; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.AttendanceMonthlySummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface AttendanceMonthlySummaryRepository extends JpaRepository<AttendanceMonthlySummary, Long> {
+    Optional<AttendanceMonthlySummary> findByEmployeeIdAndYearAndMonth(String employeeId, Integer year, Integer month);
+
+    // Months are compared as year * 12 + month so a range can span years
+    @Query("SELECT s FROM AttendanceMonthlySummary s WHERE s.employeeId = :employeeId " +
+           "AND (s.year * 12 + s.month) BETWEEN :fromMonth AND :toMonth ORDER BY s.year, s.month")
+    List<AttendanceMonthlySummary> findForPeriod(@Param("employeeId") String employeeId,
+                                                 @Param("fromMonth") int fromMonth,
+                                                 @Param("toMonth") int toMonth);
+
+    // Add a delta to the employee's month, creating the row on first use
+    @Modifying
+    @Query(value = "INSERT INTO attendance_monthly_summary (employee_id, year, month, worked_hours, idle_hours, " +
+                   "present_days, half_days, absent_days, late_days, working_days, attendance_records, updated_at) " +
+                   "VALUES (:employeeId, :year, :month, :workedHours, :idleHours, :presentDays, :halfDays, " +
+                   ":absentDays, :lateDays, :workingDays, :attendanceRecords, :updatedAt) " +
+                   "ON DUPLICATE KEY UPDATE worked_hours = worked_hours + VALUES(worked_hours), " +
+                   "idle_hours = idle_hours + VALUES(idle_hours), " +
+                   "present_days = present_days + VALUES(present_days), " +
+                   "half_days = half_days + VALUES(half_days), " +
+                   "absent_days = absent_days + VALUES(absent_days), " +
+                   "late_days = late_days + VALUES(late_days), " +
+                   "working_days = working_days + VALUES(working_days), " +
+                   "attendance_records = attendance_records + VALUES(attendance_records), " +
+                   "updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    int addToMonth(@Param("employeeId") String employeeId, @Param("year") int year, @Param("month") int month,
+                   @Param("workedHours") double workedHours, @Param("idleHours") double idleHours,
+                   @Param("presentDays") int presentDays, @Param("halfDays") int halfDays,
+                   @Param("absentDays") int absentDays, @Param("lateDays") int lateDays,
+                   @Param("workingDays") int workingDays, @Param("attendanceRecords") int attendanceRecords,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM attendance_monthly_summary WHERE (year * 12 + month) BETWEEN :fromMonth AND :toMonth",
+           nativeQuery = true)
+    int deleteForPeriod(@Param("fromMonth") int fromMonth, @Param("toMonth") int toMonth);
+
+    // Recompute the rollup of every employee from completed attendance rows between the dates
+    // (status codes as in AttendanceStatus: 0 Absent, 1 Half Day, 2 Present (On Time), 3 Present (Late Login))
+    @Modifying
+    @Query(value = "INSERT INTO attendance_monthly_summary (employee_id, year, month, worked_hours, idle_hours, " +
+                   "present_days, half_days, absent_days, late_days, working_days, attendance_records, updated_at) " +
+                   "SELECT a.employee_id, YEAR(a.date), MONTH(a.date), " +
+                   "COALESCE(SUM(a.hours_worked), 0), COALESCE(SUM(a.idle_time), 0), " +
+                   "SUM(CASE WHEN a.status_code IN (2, 3) THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN a.status_code = 1 THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN a.status_code = 0 THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN a.is_late_login = TRUE THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN DAYOFWEEK(a.date) IN (1, 7) THEN 0 ELSE 1 END), " +
+                   "COUNT(*), :updatedAt " +
+                   "FROM attendance a WHERE a.punch_out_time IS NOT NULL AND a.date BETWEEN :startDate AND :endDate " +
+                   "GROUP BY a.employee_id, YEAR(a.date), MONTH(a.date)",
+           nativeQuery = true)
+    int rebuildForPeriod(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -1,10 +1,18 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.AttendanceResponseDTO;
+import com.example.demo.dto.DepartmentAttendanceSummaryDTO;
+import com.example.demo.dto.PunchContext;
 import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +25,114 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
                                          @Param("startDate") LocalDate startDate, 
                                          @Param("endDate") LocalDate endDate);
 	List<Attendance> findByDateAndPunchOutTimeIsNull(LocalDate today);
+    List<Attendance> findByDateAndPunchInTimeIsNotNull(LocalDate date);
+    List<Attendance> findByEmployeeEmployeeIdAndDateBetweenAndPunchOutTimeIsNull(String employeeId, LocalDate startDate, LocalDate endDate);
+
+    // First and last date with a completed (punched out) row, as a single [min, max] row
+    @Query("SELECT MIN(a.date), MAX(a.date) FROM Attendance a WHERE a.punchOutTime IS NOT NULL")
+    List<Object[]> findCompletedDateRange();
+
+    // Conditional punch writes: each sets its column only while it is still empty and returns 0 when
+    // another request got there first. The row lock taken by the update serialises racing callers.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Attendance a SET a.punchInTime = :punchInTime, a.isLateLogin = :lateLogin, a.isOtDay = :otDay, " +
+           "a.version = a.version + 1 " +
+           "WHERE a.id = :id AND a.punchInTime IS NULL")
+    int punchInIfAbsent(@Param("id") Long id, @Param("punchInTime") LocalDateTime punchInTime,
+                        @Param("lateLogin") Boolean lateLogin, @Param("otDay") Boolean otDay);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Attendance a SET a.punchOutTime = :punchOutTime, a.version = a.version + 1 " +
+           "WHERE a.id = :id AND a.punchInTime IS NOT NULL AND a.punchOutTime IS NULL")
+    int punchOutIfAbsent(@Param("id") Long id, @Param("punchOutTime") LocalDateTime punchOutTime);
+
+    // Keyset page of open (punched in, not punched out) attendance ids for the auto punch-out job
+    @Query("SELECT a.id FROM Attendance a WHERE a.date = :date AND a.punchInTime IS NOT NULL " +
+           "AND a.punchOutTime IS NULL AND a.id > :afterId ORDER BY a.id")
+    List<Long> findOpenAttendanceIds(@Param("date") LocalDate date, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT a FROM Attendance a JOIN FETCH a.employee WHERE a.id IN :ids ORDER BY a.id")
+    List<Attendance> findAllWithEmployeeByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset page over (date, id) for the org-wide export; start with afterDate = startDate - 1 and afterId = 0
+    @Query("SELECT new com.example.demo.dto.AttendanceResponseDTO(a.id, a.employee.employeeId, a.employeeName, a.date, " +
+           "a.punchInTime, a.punchOutTime, a.hoursWorked, a.status, a.idleTime, a.isLateLogin, a.isOtDay) " +
+           "FROM Attendance a WHERE a.date BETWEEN :startDate AND :endDate " +
+           "AND (a.date > :afterDate OR (a.date = :afterDate AND a.id > :afterId)) " +
+           "ORDER BY a.date, a.id")
+    List<AttendanceResponseDTO> findExportPage(@Param("startDate") LocalDate startDate,
+                                               @Param("endDate") LocalDate endDate,
+                                               @Param("afterDate") LocalDate afterDate,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    // Keyset page of one employee's history, newest first; start with beforeDate = endDate + 1 and beforeId = Long.MAX_VALUE
+    @Query("SELECT new com.example.demo.dto.AttendanceResponseDTO(a.id, a.employee.employeeId, a.employeeName, a.date, " +
+           "a.punchInTime, a.punchOutTime, a.hoursWorked, a.status, a.idleTime, a.isLateLogin, a.isOtDay) " +
+           "FROM Attendance a WHERE a.employee.employeeId = :employeeId AND a.date BETWEEN :startDate AND :endDate " +
+           "AND (a.date < :beforeDate OR (a.date = :beforeDate AND a.id < :beforeId)) " +
+           "ORDER BY a.date DESC, a.id DESC")
+    List<AttendanceResponseDTO> findHistoryPage(@Param("employeeId") String employeeId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate,
+                                                @Param("beforeDate") LocalDate beforeDate,
+                                                @Param("beforeId") Long beforeId,
+                                                Pageable pageable);
+
+    // [AttendanceStatus, row count] for every status present between the dates
+    @Query("SELECT a.status, COUNT(a) FROM Attendance a WHERE a.date BETWEEN :startDate AND :endDate GROUP BY a.status")
+    List<Object[]> countByStatusBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    long countByDateAndStatus(LocalDate date, AttendanceStatus status);
+
+    long countByEmployeeEmployeeIdAndStatusAndDateBetween(String employeeId, AttendanceStatus status,
+                                                          LocalDate startDate, LocalDate endDate);
+
+    // Rows of a group of employees between the dates, per employee in date order (for bulk recalculation)
+    @Query("SELECT a FROM Attendance a WHERE a.employee.employeeId IN :employeeIds " +
+           "AND a.date BETWEEN :startDate AND :endDate ORDER BY a.employee.employeeId, a.date, a.id")
+    List<Attendance> findForRecalculation(@Param("employeeIds") Collection<String> employeeIds,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+
+    // Per-employee status counts and hour totals for a department and date range, aggregated in SQL.
+    // Employees of the department without attendance rows come back with zeros.
+    @Query("SELECT new com.example.demo.dto.DepartmentAttendanceSummaryDTO(e.employeeId, e.name, COUNT(a.id), " +
+           "SUM(CASE WHEN a.status = com.example.demo.model.AttendanceStatus.PRESENT_ON_TIME THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN a.status = com.example.demo.model.AttendanceStatus.PRESENT_LATE_LOGIN THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN a.status = com.example.demo.model.AttendanceStatus.HALF_DAY THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN a.status = com.example.demo.model.AttendanceStatus.ABSENT THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN a.isLateLogin = true THEN 1L ELSE 0L END), " +
+           "COALESCE(SUM(a.hoursWorked), 0.0), COALESCE(SUM(a.idleTime), 0.0)) " +
+           "FROM Employee e " +
+           "LEFT JOIN Attendance a ON a.employee = e AND a.date BETWEEN :startDate AND :endDate " +
+           "WHERE EXISTS (SELECT 1 FROM Experience x WHERE x.employee = e AND x.department = :department " +
+           "AND x.lastWorkingDate = 'Present') " +
+           "GROUP BY e.employeeId, e.name ORDER BY e.name")
+    List<DepartmentAttendanceSummaryDTO> summarizeDepartment(@Param("department") String department,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
+
+    // Employee, current department, attendance and OT allocation for one date in a single statement
+    @Query("SELECT new com.example.demo.dto.PunchContext(e.employeeId, e.name, e.typeOfEmployee, " +
+           "(SELECT MAX(x.department) FROM Experience x WHERE x.employee = e AND x.lastWorkingDate = 'Present' " +
+           "AND x.joiningDate = (SELECT MAX(y.joiningDate) FROM Experience y WHERE y.employee = e AND y.lastWorkingDate = 'Present')), " +
+           ":date, a.id, a.punchInTime, a.punchOutTime, a.status, a.hoursWorked, a.isLateLogin, a.isOtDay, " +
+           "o.status, o.type) " +
+           "FROM Employee e " +
+           "LEFT JOIN Attendance a ON a.employee = e AND a.date = :date " +
+           "LEFT JOIN Overtime o ON o.employee = e AND o.date = :date " +
+           "WHERE e.employeeId = :employeeId")
+    List<PunchContext> findPunchContext(@Param("employeeId") String employeeId, @Param("date") LocalDate date);
+
+    // The same context for every employee at once (builds the day plan)
+    @Query("SELECT new com.example.demo.dto.PunchContext(e.employeeId, e.name, e.typeOfEmployee, " +
+           "(SELECT MAX(x.department) FROM Experience x WHERE x.employee = e AND x.lastWorkingDate = 'Present' " +
+           "AND x.joiningDate = (SELECT MAX(y.joiningDate) FROM Experience y WHERE y.employee = e AND y.lastWorkingDate = 'Present')), " +
+           ":date, a.id, a.punchInTime, a.punchOutTime, a.status, a.hoursWorked, a.isLateLogin, a.isOtDay, " +
+           "o.status, o.type) " +
+           "FROM Employee e " +
+           "LEFT JOIN Attendance a ON a.employee = e AND a.date = :date " +
+           "LEFT JOIN Overtime o ON o.employee = e AND o.date = :date")
+    List<PunchContext> findPunchContexts(@Param("date") LocalDate date);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.example.demo.model.DepartmentSettings;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.util.List;
 import java.util.Optional;
 
 public interface DepartmentSettingsRepository extends JpaRepository<DepartmentSettings, Long> {
@@ -20,7 +21,6 @@ public interface DepartmentSettingsRepository extends JpaRepository<DepartmentSe
     @Query("SELECT ds FROM DepartmentSettings ds WHERE ds.departmentName = :departmentName AND (ds.empType = :empType OR ds.empType = 'DEFAULT') ORDER BY ds.empType DESC")
     Optional<DepartmentSettings> findByDepartmentNameAndEmpTypeWithFallback(@Param("departmentName") String departmentName, @Param("empType") String empType);
     
-    // ❌ REMOVE THIS METHOD - departmentId field doesn't exist in the entity
-    // @Query("SELECT ds FROM DepartmentSettings ds WHERE ds.departmentId = :departmentId")
-    // Optional<DepartmentSettings> findByDepartmentId(@Param("departmentId") String departmentId);
+    // Indexed lookup by JobDetails.deptId; hot paths go through DepartmentSettingsCache instead
+    List<DepartmentSettings> findByDepartmentId(String departmentId);
 }
\ No newline at end of file
@@ -1,11 +1,17 @@
 package com.example.demo.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import com.example.demo.dto.EmployeeSummaryDTO;
 import com.example.demo.model.Employee;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,18 +24,7 @@ public interface EmployeeRepository extends JpaRepository<Employee, String> {
     // Search employees by name containing a string
     List<Employee> findByNameContaining(String name);
 
-    // Search employees by query and department (lastWorkingDate = 'Present')
-    @Query("SELECT DISTINCT e FROM Employee e JOIN e.experienceDetails exp " +
-           "WHERE (LOWER(e.employeeId) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(e.name) LIKE LOWER(CONCAT('%', :query, '%'))) " +
-           "AND exp.department = :department AND exp.lastWorkingDate = 'Present'")
-    List<Employee> searchEmployeesByDepartment(@Param("query") String query, @Param("department") String department);
-
-    // Search employees by query without department filter
-    @Query("SELECT e FROM Employee e WHERE " +
-           "LOWER(e.employeeId) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(e.name) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<Employee> searchEmployees(@Param("query") String query);
+    // Free-text search by id, name, email or department is served by EmployeeSearchIndex
 
     // Get all current departments (from experience)
     @Query("SELECT DISTINCT exp.department FROM Experience exp WHERE exp.lastWorkingDate = 'Present'")
@@ -46,5 +41,78 @@ public interface EmployeeRepository extends JpaRepository<Employee, String> {
   
     @Query("SELECT e.employeeId FROM Employee e WHERE e.isActive = true")
     List<String> findAllEmployeeIds();
+
+    // Every employee id, inactive ones included (bulk imports may cover people who have since left)
+    @Query("SELECT e.employeeId FROM Employee e")
+    List<String> findAllIdsIncludingInactive();
     Optional<Employee> findByEmployeeId(String employeeId);
+
+    // One page of the employee list, filters optional (null = any), ordered by id. The current department
+    // comes from a scalar subquery so employees with several 'Present' experiences are not repeated.
+    @Query(value = "SELECT new com.example.demo.dto.EmployeeSummaryDTO(e.employeeId, e.name, e.email, e.phone, " +
+           "(SELECT MAX(x.department) FROM Experience x WHERE x.employee = e AND x.lastWorkingDate = 'Present'), " +
+           "j.designation, e.typeOfEmployee, e.isActive) " +
+           "FROM Employee e LEFT JOIN e.jobDetails j " +
+           "WHERE (:active IS NULL OR e.isActive = :active) " +
+           "AND (:type IS NULL OR e.typeOfEmployee = :type) " +
+           "AND (:department IS NULL OR EXISTS (SELECT 1 FROM Experience x WHERE x.employee = e " +
+           "AND x.department = :department AND x.lastWorkingDate = 'Present')) " +
+           "ORDER BY e.employeeId",
+           countQuery = "SELECT COUNT(e) FROM Employee e " +
+           "WHERE (:active IS NULL OR e.isActive = :active) " +
+           "AND (:type IS NULL OR e.typeOfEmployee = :type) " +
+           "AND (:department IS NULL OR EXISTS (SELECT 1 FROM Experience x WHERE x.employee = e " +
+           "AND x.department = :department AND x.lastWorkingDate = 'Present'))")
+    Page<EmployeeSummaryDTO> findSummaryPage(@Param("active") Boolean active,
+                                             @Param("department") String department,
+                                             @Param("type") Employee.EmployeeType type,
+                                             Pageable pageable);
+
+    // [employeeId, name, email, isActive] rows that feed EmployeeSearchIndex
+    @Query("SELECT e.employeeId, e.name, e.email, e.isActive FROM Employee e")
+    List<Object[]> findSearchFields();
+
+    @Query("SELECT e.employeeId, e.name, e.email, e.isActive FROM Employee e WHERE e.employeeId = :employeeId")
+    List<Object[]> findSearchFieldsById(@Param("employeeId") String employeeId);
+
+    // [employeeId, typeOfEmployee] of the current members of a department
+    @Query("SELECT e.employeeId, e.typeOfEmployee FROM Employee e WHERE EXISTS (SELECT 1 FROM Experience x " +
+           "WHERE x.employee = e AND x.department = :department AND x.lastWorkingDate = 'Present') " +
+           "ORDER BY e.employeeId")
+    List<Object[]> findIdsAndTypesByCurrentDepartment(@Param("department") String department);
+
+    // Counter increments that touch only their columns, without loading the employee.
+    // total_worked_days (= worked_days + ot_incentive_days) is assigned first so it reads the old values
+    // on every database, whatever order the SET clause is evaluated in. Each bumps the version, so an
+    // employee loaded before the increment cannot be saved back over it.
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.totalWorkedDays = COALESCE(e.workedDays, 0) + COALESCE(e.otIncentiveDays, 0) + 1, " +
+           "e.workedDays = COALESCE(e.workedDays, 0) + 1, e.version = e.version + 1 WHERE e.employeeId = :employeeId")
+    int incrementWorkedDays(@Param("employeeId") String employeeId);
+
+    // Several worked days at once, for bulk loads
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.totalWorkedDays = COALESCE(e.workedDays, 0) + COALESCE(e.otIncentiveDays, 0) + :days, " +
+           "e.workedDays = COALESCE(e.workedDays, 0) + :days, e.version = e.version + 1 WHERE e.employeeId = :employeeId")
+    int addWorkedDays(@Param("employeeId") String employeeId, @Param("days") int days);
+
+    // One worked day for each of the employees, in a single statement (batch jobs)
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.totalWorkedDays = COALESCE(e.workedDays, 0) + COALESCE(e.otIncentiveDays, 0) + 1, " +
+           "e.workedDays = COALESCE(e.workedDays, 0) + 1, e.version = e.version + 1 WHERE e.employeeId IN :employeeIds")
+    int incrementWorkedDaysOfAll(@Param("employeeIds") Collection<String> employeeIds);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.otPendingDays = COALESCE(e.otPendingDays, 0) + 1, e.version = e.version + 1 WHERE e.employeeId = :employeeId")
+    int incrementOtPendingDays(@Param("employeeId") String employeeId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.totalWorkedDays = COALESCE(e.workedDays, 0) + COALESCE(e.otIncentiveDays, 0) + 1, " +
+           "e.otIncentiveDays = COALESCE(e.otIncentiveDays, 0) + 1, e.version = e.version + 1 WHERE e.employeeId = :employeeId")
+    int incrementOtIncentiveDays(@Param("employeeId") String employeeId);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,14 @@ public interface ExperienceRepository extends JpaRepository<Experience, Long> {
     @Query("SELECT e.department FROM Experience e WHERE e.employee.employeeId = :employeeId AND e.lastWorkingDate = 'Present' ORDER BY e.joiningDate DESC LIMIT 1")
     Optional<String> findCurrentDepartmentByEmployeeId(@Param("employeeId") String employeeId);
     
+    // [employeeId, department] of current experiences for many employees, oldest joining date first
+    @Query("SELECT e.employee.employeeId, e.department FROM Experience e WHERE e.employee.employeeId IN :employeeIds AND e.lastWorkingDate = 'Present' ORDER BY e.joiningDate")
+    List<Object[]> findCurrentDepartmentsByEmployeeIds(@Param("employeeIds") Collection<String> employeeIds);
+    
+    // [employeeId, department] of every current experience, oldest joining date first
+    @Query("SELECT e.employee.employeeId, e.department FROM Experience e WHERE e.lastWorkingDate = 'Present' ORDER BY e.joiningDate")
+    List<Object[]> findAllCurrentDepartmentAssignments();
+    
     // Method to find current experience
     @Query("SELECT e FROM Experience e WHERE e.employee.employeeId = :employeeId AND e.lastWorkingDate = 'Present'")
     Optional<Experience> findCurrentExperience(@Param("employeeId") String employeeId);
@@ -2,8 +2,46 @@ package com.example.demo.repository;
 
 import com.example.demo.model.LateLoginCounter;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface LateLoginCounterRepository extends JpaRepository<LateLoginCounter, Long> {
     Optional<LateLoginCounter> findByEmployeeEmployeeIdAndMonthAndYear(String employeeId, Integer month, Integer year);
-}
\ No newline at end of file
+
+    // Create the month's counter at 1 or add 1 to it, in a single statement
+    @Modifying
+    @Query(value = "INSERT INTO late_login_counter (employee_id, month, year, late_login_count) " +
+                   "VALUES (:employeeId, :month, :year, 1) " +
+                   "ON DUPLICATE KEY UPDATE late_login_count = late_login_count + 1",
+           nativeQuery = true)
+    int increment(@Param("employeeId") String employeeId, @Param("month") int month, @Param("year") int year);
+
+    // Take back one late login of the month, never going below zero
+    @Modifying
+    @Query(value = "UPDATE late_login_counter SET late_login_count = late_login_count - 1 " +
+                   "WHERE employee_id = :employeeId AND month = :month AND year = :year AND late_login_count > 0",
+           nativeQuery = true)
+    int decrement(@Param("employeeId") String employeeId, @Param("month") int month, @Param("year") int year);
+
+    @Query(value = "SELECT late_login_count FROM late_login_counter " +
+                   "WHERE employee_id = :employeeId AND month = :month AND year = :year",
+           nativeQuery = true)
+    int findLateLoginCount(@Param("employeeId") String employeeId, @Param("month") int month, @Param("year") int year);
+
+    // Counters of several employees for one month, as (employee_id, late_login_count) rows
+    @Query(value = "SELECT employee_id, late_login_count FROM late_login_counter " +
+                   "WHERE month = :month AND year = :year AND employee_id IN (:employeeIds)",
+           nativeQuery = true)
+    List<Object[]> findLateLoginCounts(@Param("employeeIds") Collection<String> employeeIds,
+                                       @Param("month") int month, @Param("year") int year);
+
+    // Increment and return the new count; call inside a transaction so the upsert's row lock covers the read
+    default int incrementAndGet(String employeeId, int month, int year) {
+        increment(employeeId, month, year);
+        return findLateLoginCount(employeeId, month, year);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.PunchInReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PunchInReceiptRepository extends JpaRepository<PunchInReceipt, String> {
+
+    // Plain INSERT (save() would merge into an existing row); a reused key fails on the primary key
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO punch_in_receipt (idempotency_key, employee_id, received_at, status) " +
+                   "VALUES (:idempotencyKey, :employeeId, :receivedAt, 'QUEUED')",
+           nativeQuery = true)
+    int insertQueued(@Param("idempotencyKey") String idempotencyKey, @Param("employeeId") String employeeId,
+                     @Param("receivedAt") LocalDateTime receivedAt);
+
+    // Receipts received since the cutoff, oldest first (QUEUED ones are queued again at startup)
+    List<PunchInReceipt> findByReceivedAtAfterOrderByReceivedAt(LocalDateTime cutoff);
+
+    // QUEUED receipts older than the cutoff as well: unwritten punches never expire
+    List<PunchInReceipt> findByStatusAndReceivedAtBeforeOrderByReceivedAt(String status, LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PunchInReceipt r SET r.status = :status, r.message = :message " +
+           "WHERE r.idempotencyKey IN :idempotencyKeys AND r.status = 'QUEUED'")
+    int finish(@Param("idempotencyKeys") Collection<String> idempotencyKeys, @Param("status") String status,
+               @Param("message") String message);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PunchInReceipt r WHERE r.status <> 'QUEUED' AND r.receivedAt < :cutoff")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
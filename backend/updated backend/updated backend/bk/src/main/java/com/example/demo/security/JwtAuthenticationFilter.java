@@ -18,7 +18,9 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -56,7 +58,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-        	System.out.println("Missing or invalid Authorization header: " + authHeader);
+            log.debug("No bearer token on {}", requestPath);
             filterChain.doFilter(request, response);
             return;
         }
@@ -64,7 +66,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7); // remove "Bearer "
         try {
             username = jwtUtil.extractUsername(jwt);
-            System.out.println("JWT extracted for username: " + username);  // <-- Add this
+            log.debug("JWT extracted for username: {}", username);
         } catch (ExpiredJwtException e) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Token expired");
@@ -74,8 +76,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
-            
-            System.out.println("Authorities loaded: " + userDetails.getAuthorities()); // <-- Add this
+            log.debug("Authorities loaded: {}", userDetails.getAuthorities());
             
             if (jwtUtil.validateToken(jwt, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken =
@@ -89,10 +90,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                         new WebAuthenticationDetailsSource().buildDetails(request)
                 );
                 SecurityContextHolder.getContext().setAuthentication(authToken);
-                System.out.println("Authentication set for: " + username); 
+                log.debug("Authentication set for: {}", username);
             }
             else {
-                System.out.println("JWT validation failed for: " + username); // <-- Add this
+                log.debug("JWT validation failed for: {}", username);
             }
         }
 
@@ -0,0 +1,204 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.LeaveDayType;
+import com.example.demo.model.LeaveRequest;
+import com.example.demo.model.LeaveStatus;
+import com.example.demo.repository.LeaveRequestRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * In-memory index of approved leave per employee: date intervals sorted by start day,
+ * looked up by binary search, so "is this employee on leave" never goes to the
+ * database. Loaded on first use; an employee's intervals are reloaded after commit
+ * whenever LeaveService creates a leave or changes its status.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApprovedLeaveIndex {
+
+    /** How much of a day an approved leave covers. */
+    public enum Coverage {
+        NONE, MORNING, AFTERNOON, FULL_DAY;
+
+        // On leave at this time of day; the half-day sessions end / start at the department's boundaries
+        public boolean covers(LocalTime time, LocalTime morningHalfLogout, LocalTime afternoonHalfLogin) {
+            switch (this) {
+                case FULL_DAY:
+                    return true;
+                case MORNING:
+                    return morningHalfLogout != null && time.isBefore(morningHalfLogout);
+                case AFTERNOON:
+                    return afternoonHalfLogin != null && !time.isBefore(afternoonHalfLogin);
+                default:
+                    return false;
+            }
+        }
+
+        private Coverage plus(Coverage other) {
+            if (this == NONE) {
+                return other;
+            }
+            if (other == NONE || other == this) {
+                return this;
+            }
+            return FULL_DAY; // morning + afternoon, or anything with a full day
+        }
+    }
+
+    private static final EmployeeLeaves NO_LEAVE = new EmployeeLeaves(List.of());
+
+    private final LeaveRequestRepository leaveRequestRepository;
+
+    private volatile Map<String, EmployeeLeaves> byEmployee;
+
+    public Coverage coverage(String employeeId, LocalDate date) {
+        return byEmployee().getOrDefault(employeeId, NO_LEAVE).coverage(date.toEpochDay());
+    }
+
+    // On approved leave at this moment, with half-day sessions bounded by the department settings
+    public boolean isOnLeave(String employeeId, LocalDate date, LocalTime time, DepartmentSettings settings) {
+        return coverage(employeeId, date).covers(time, settings.getMorningHalfLogout(), settings.getAfternoonHalfLogin());
+    }
+
+    // Reload one employee's approved leave once the surrounding transaction commits
+    public void refreshAfterCommit(String employeeId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(employeeId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh(employeeId);
+            }
+        });
+    }
+
+    public void refresh(String employeeId) {
+        Map<String, EmployeeLeaves> current = byEmployee;
+        if (current == null) {
+            return; // not loaded yet; the first lookup reads everything
+        }
+        List<LeaveRequest> approved = leaveRequestRepository.findByEmployeeIdAndStatus(employeeId, LeaveStatus.APPROVED);
+        if (approved.isEmpty()) {
+            current.remove(employeeId);
+        } else {
+            current.put(employeeId, new EmployeeLeaves(approved));
+        }
+    }
+
+    private Map<String, EmployeeLeaves> byEmployee() {
+        Map<String, EmployeeLeaves> current = byEmployee;
+        if (current == null) {
+            synchronized (this) {
+                if (byEmployee == null) {
+                    byEmployee = load();
+                }
+                current = byEmployee;
+            }
+        }
+        return current;
+    }
+
+    private Map<String, EmployeeLeaves> load() {
+        Map<String, List<LeaveRequest>> grouped = new HashMap<>();
+        for (LeaveRequest leave : leaveRequestRepository.findByStatus(LeaveStatus.APPROVED)) {
+            if (leave.getEmployeeId() != null) {
+                grouped.computeIfAbsent(leave.getEmployeeId(), id -> new ArrayList<>()).add(leave);
+            }
+        }
+        Map<String, EmployeeLeaves> loaded = new ConcurrentHashMap<>();
+        grouped.forEach((employeeId, leaves) -> loaded.put(employeeId, new EmployeeLeaves(leaves)));
+        return loaded;
+    }
+
+    // Half-day leave applies to its session; anything else to the whole day
+    private static Coverage coverageOf(LeaveRequest leave) {
+        if (leave.getLeaveDayType() != LeaveDayType.HALF_DAY || leave.getHalfDaySession() == null) {
+            return Coverage.FULL_DAY;
+        }
+        String session = leave.getHalfDaySession().toUpperCase(Locale.ROOT);
+        if (session.contains("MORNING") || session.contains("FIRST")) {
+            return Coverage.MORNING;
+        }
+        if (session.contains("AFTERNOON") || session.contains("SECOND")) {
+            return Coverage.AFTERNOON;
+        }
+        return Coverage.FULL_DAY;
+    }
+
+    /**
+     * One employee's intervals as parallel arrays sorted by start day. maxEnd[i] is the
+     * latest end among intervals 0..i, so the backward scan from the binary-search hit
+     * stops as soon as no earlier interval can reach the day.
+     */
+    private static final class EmployeeLeaves {
+        private final long[] start;
+        private final long[] end;
+        private final long[] maxEnd;
+        private final Coverage[] coverage;
+
+        private EmployeeLeaves(List<LeaveRequest> leaves) {
+            List<LeaveRequest> sorted = new ArrayList<>();
+            for (LeaveRequest leave : leaves) {
+                if (leave.getFromDate() != null && leave.getToDate() != null) {
+                    sorted.add(leave);
+                }
+            }
+            sorted.sort(Comparator.comparing(LeaveRequest::getFromDate));
+
+            int size = sorted.size();
+            start = new long[size];
+            end = new long[size];
+            maxEnd = new long[size];
+            coverage = new Coverage[size];
+            for (int i = 0; i < size; i++) {
+                LeaveRequest leave = sorted.get(i);
+                start[i] = leave.getFromDate().toEpochDay();
+                end[i] = leave.getToDate().toEpochDay();
+                maxEnd[i] = i == 0 ? end[i] : Math.max(maxEnd[i - 1], end[i]);
+                coverage[i] = coverageOf(leave);
+            }
+        }
+
+        private Coverage coverage(long day) {
+            // Last interval starting on or before the day
+            int low = 0;
+            int high = start.length - 1;
+            int hit = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (start[mid] <= day) {
+                    hit = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            Coverage result = Coverage.NONE;
+            for (int i = hit; i >= 0 && maxEnd[i] >= day && result != Coverage.FULL_DAY; i--) {
+                if (end[i] >= day) {
+                    result = result.plus(coverage[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
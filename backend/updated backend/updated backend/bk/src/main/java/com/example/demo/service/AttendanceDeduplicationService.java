@@ -0,0 +1,208 @@
+package com.example.demo.service;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Duplicate (employee_id, date) attendance rows left over from before uk_attendance_employee_date
+ * existed. Startup only reports them (AttendanceUniqueKeyMigrationConfig); collapsing them is an
+ * explicit admin action, because it deletes rows: in one transaction the most complete row of each
+ * pair is kept (punched out, then punched in, then the oldest), the others are deleted, the worked-day
+ * and late-login counts their punch-outs added are taken back, and the monthly summaries of the
+ * affected months are rebuilt. The unique key is added once that commits.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttendanceDeduplicationService {
+
+    public static final String UNIQUE_KEY = "uk_attendance_employee_date";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final AttendanceSummaryService attendanceSummaryService;
+    private final AttendancePolicyEngine attendancePolicyEngine;
+    private final DepartmentSettingsCache departmentSettingsCache;
+    private final EmployeeRepository employeeRepository;
+    private final ExperienceRepository experienceRepository;
+    private final LateLoginCounterRepository lateLoginCounterRepository;
+
+    // Each duplicated employee-day with its number of rows
+    public List<Map<String, Object>> findDuplicates() {
+        return jdbcTemplate.query(
+                "SELECT employee_id, date, COUNT(*) AS row_count FROM attendance " +
+                "GROUP BY employee_id, date HAVING COUNT(*) > 1 ORDER BY date, employee_id",
+                (rs, rowNum) -> {
+                    Map<String, Object> duplicate = new LinkedHashMap<>();
+                    duplicate.put("employeeId", rs.getString("employee_id"));
+                    duplicate.put("date", rs.getDate("date").toLocalDate());
+                    duplicate.put("rows", rs.getInt("row_count"));
+                    return duplicate;
+                });
+    }
+
+    @Transactional
+    public Map<String, Object> collapseDuplicates() {
+        long startedAt = System.currentTimeMillis();
+        List<Map<String, Object>> duplicates = findDuplicates();
+
+        List<Long> deletedIds = new ArrayList<>();
+        TreeSet<YearMonth> months = new TreeSet<>();
+        Map<String, DepartmentSettings> settingsByEmployee = new HashMap<>();
+        int workedDaysReversed = 0;
+        int lateLoginsReversed = 0;
+        for (Map<String, Object> duplicate : duplicates) {
+            String employeeId = (String) duplicate.get("employeeId");
+            LocalDate date = (LocalDate) duplicate.get("date");
+            List<DuplicateRow> rows = jdbcTemplate.query(
+                    "SELECT id, punch_in_time, punch_out_time, hours_worked, is_ot_day FROM attendance " +
+                    "WHERE employee_id = ? AND date = ? ORDER BY " +
+                    "CASE WHEN punch_out_time IS NULL THEN 1 ELSE 0 END, " +
+                    "CASE WHEN punch_in_time IS NULL THEN 1 ELSE 0 END, id",
+                    (rs, rowNum) -> new DuplicateRow(rs.getLong("id"), rs.getTimestamp("punch_in_time"),
+                            rs.getTimestamp("punch_out_time"), (Number) rs.getObject("hours_worked"),
+                            rs.getBoolean("is_ot_day")),
+                    employeeId, date);
+            List<Long> deleted = new ArrayList<>();
+            for (DuplicateRow row : rows.subList(1, rows.size())) {
+                jdbcTemplate.update("DELETE FROM attendance WHERE id = ?", row.id);
+                deleted.add(row.id);
+
+                // Take back what the row's punch-out added to the counters
+                if (row.punchIn != null && row.punchedOut && row.hoursWorked != null) {
+                    DepartmentSettings settings = settingsByEmployee.computeIfAbsent(employeeId, this::settingsOf);
+                    AttendancePolicyEngine.Result counted = attendancePolicyEngine.evaluate(
+                            row.punchIn.toLocalDateTime().toLocalTime(), row.hoursWorked.doubleValue(), settings, row.otDay);
+                    if (counted.countsAsWorkedDay()) {
+                        workedDaysReversed += employeeRepository.addWorkedDays(employeeId, -1);
+                    }
+                    if (counted.countsAsLateLogin()) {
+                        lateLoginsReversed += lateLoginCounterRepository.decrement(
+                                employeeId, date.getMonthValue(), date.getYear());
+                    }
+                }
+            }
+            deletedIds.addAll(deleted);
+            months.add(YearMonth.from(date));
+            log.warn("Duplicate attendance of {} on {}: kept row {}, deleted {}",
+                    employeeId, date, rows.get(0).id, deleted);
+        }
+
+        // The deleted rows were counted in their months' summaries
+        for (YearMonth month : months) {
+            attendanceSummaryService.rebuild(month, month);
+        }
+        addUniqueKeyAfterCommit();
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("duplicates", duplicates);
+        report.put("deletedRows", deletedIds.size());
+        report.put("deletedIds", deletedIds);
+        report.put("workedDaysReversed", workedDaysReversed);
+        report.put("lateLoginsReversed", lateLoginsReversed);
+        report.put("rebuiltMonths", months.stream().map(YearMonth::toString).toList());
+        report.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+        log.info("Collapsed {} duplicate attendance days ({} rows deleted, {} months rebuilt) in {} ms",
+                duplicates.size(), deletedIds.size(), months.size(), report.get("elapsedMillis"));
+        return report;
+    }
+
+    // Settings of the employee's current department, as a punch-out would have resolved them
+    private DepartmentSettings settingsOf(String employeeId) {
+        String empType = employeeRepository.findById(employeeId)
+                .map(Employee::getTypeOfEmployee)
+                .map(Enum::name)
+                .orElse("FULL_TIME");
+        String department = experienceRepository.findCurrentDepartmentByEmployeeId(employeeId).orElse("DEFAULT");
+        return departmentSettingsCache.resolve(department, empType)
+                .orElseGet(attendancePolicyEngine::defaultSettings);
+    }
+
+    public boolean hasUniqueKey() throws SQLException {
+        return hasUniqueIndex(dataSource, "attendance", UNIQUE_KEY);
+    }
+
+    // Whether the table has a unique index created for the named constraint
+    static boolean hasUniqueIndex(DataSource dataSource, String table, String constraint) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, table, true, false)) {
+                while (indexes.next()) {
+                    // MySQL names the index after the constraint; H2 adds a suffix
+                    String name = indexes.getString("INDEX_NAME");
+                    if (name != null && name.regionMatches(true, 0, constraint, 0, constraint.length())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public void addUniqueKey() {
+        jdbcTemplate.execute("ALTER TABLE attendance ADD CONSTRAINT " + UNIQUE_KEY + " UNIQUE (employee_id, date)");
+        log.info("Added unique key {} on attendance (employee_id, date)", UNIQUE_KEY);
+    }
+
+    // DDL commits implicitly on MySQL, so it runs after the collapse has committed
+    private void addUniqueKeyAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    if (!hasUniqueKey()) {
+                        addUniqueKey();
+                    }
+                } catch (SQLException | DataAccessException e) {
+                    log.warn("Could not add unique key {}; it is retried at the next startup", UNIQUE_KEY, e);
+                }
+            }
+        });
+    }
+
+    /** One of the rows of a duplicated employee-day, as read for the collapse. */
+    private static final class DuplicateRow {
+        private final long id;
+        private final Timestamp punchIn;
+        private final boolean punchedOut;
+        private final Number hoursWorked;
+        private final boolean otDay;
+
+        private DuplicateRow(long id, Timestamp punchIn, Timestamp punchOut, Number hoursWorked, boolean otDay) {
+            this.id = id;
+            this.punchIn = punchIn;
+            this.punchedOut = punchOut != null;
+            this.hoursWorked = hoursWorked;
+            this.otDay = otDay;
+        }
+    }
+}
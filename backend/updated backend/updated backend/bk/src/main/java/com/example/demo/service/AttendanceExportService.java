@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.AttendanceResponseDTO;
+import com.example.demo.repository.AttendanceRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Org-wide attendance export. Rows are read as keyset pages over (date, id) of
+ * projections and written straight to the output stream, so memory use does not
+ * grow with the size of the export.
+ */
+@Service
+@RequiredArgsConstructor
+public class AttendanceExportService {
+
+    private static final int PAGE_SIZE = 1000;
+
+    // Rows kept in memory by the streaming workbook; older rows are flushed to a temp file
+    private static final int XLSX_ROW_WINDOW = 100;
+
+    private static final String[] HEADERS = { "Date", "Employee ID", "Employee Name", "Punch In", "Punch Out",
+            "Hours Worked", "Idle Time", "Status", "Late Login", "OT Day" };
+
+    private final AttendanceRepository attendanceRepository;
+
+    public long exportCsv(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        writer.write(String.join(",", HEADERS));
+        writer.write("\n");
+
+        long rows = 0;
+        List<AttendanceResponseDTO> page = firstPage(startDate, endDate);
+        while (!page.isEmpty()) {
+            for (AttendanceResponseDTO attendance : page) {
+                writer.write(csv(attendance.getDate()));
+                writer.write(',');
+                writer.write(csv(attendance.getEmployeeId()));
+                writer.write(',');
+                writer.write(csv(attendance.getEmployeeName()));
+                writer.write(',');
+                writer.write(csv(attendance.getPunchInTime()));
+                writer.write(',');
+                writer.write(csv(attendance.getPunchOutTime()));
+                writer.write(',');
+                writer.write(csv(attendance.getHoursWorked()));
+                writer.write(',');
+                writer.write(csv(attendance.getIdleTime()));
+                writer.write(',');
+                writer.write(csv(attendance.getStatus()));
+                writer.write(',');
+                writer.write(csv(attendance.getIsLateLogin()));
+                writer.write(',');
+                writer.write(csv(attendance.getIsOtDay()));
+                writer.write('\n');
+            }
+            rows += page.size();
+            writer.flush();
+            page = nextPage(startDate, endDate, page);
+        }
+        writer.flush();
+        return rows;
+    }
+
+    public long exportXlsx(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        return exportXlsx(startDate, endDate, outputStream, SpreadsheetVersion.EXCEL2007.getMaxRows());
+    }
+
+    // Rows beyond what one sheet holds (header included) continue on "Attendance (2)", "Attendance (3)", ...
+    long exportXlsx(LocalDate startDate, LocalDate endDate, OutputStream outputStream, int maxRowsPerSheet)
+            throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+
+            Sheet sheet = createSheet(workbook, headerStyle);
+            int rowNum = 1;
+            long rows = 0;
+            List<AttendanceResponseDTO> page = firstPage(startDate, endDate);
+            while (!page.isEmpty()) {
+                for (AttendanceResponseDTO attendance : page) {
+                    if (rowNum == maxRowsPerSheet) {
+                        sheet = createSheet(workbook, headerStyle);
+                        rowNum = 1;
+                    }
+                    Row row = sheet.createRow(rowNum++);
+                    row.createCell(0).setCellValue(text(attendance.getDate()));
+                    row.createCell(1).setCellValue(text(attendance.getEmployeeId()));
+                    row.createCell(2).setCellValue(text(attendance.getEmployeeName()));
+                    row.createCell(3).setCellValue(text(attendance.getPunchInTime()));
+                    row.createCell(4).setCellValue(text(attendance.getPunchOutTime()));
+                    if (attendance.getHoursWorked() != null) row.createCell(5).setCellValue(attendance.getHoursWorked());
+                    if (attendance.getIdleTime() != null) row.createCell(6).setCellValue(attendance.getIdleTime());
+                    row.createCell(7).setCellValue(text(attendance.getStatus()));
+                    row.createCell(8).setCellValue(Boolean.TRUE.equals(attendance.getIsLateLogin()));
+                    row.createCell(9).setCellValue(Boolean.TRUE.equals(attendance.getIsOtDay()));
+                    rows++;
+                }
+                page = nextPage(startDate, endDate, page);
+            }
+
+            workbook.write(outputStream);
+            outputStream.flush();
+            return rows;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static Sheet createSheet(SXSSFWorkbook workbook, CellStyle headerStyle) {
+        int number = workbook.getNumberOfSheets() + 1;
+        Sheet sheet = workbook.createSheet(number == 1 ? "Attendance" : "Attendance (" + number + ")");
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            headerRow.createCell(i).setCellValue(HEADERS[i]);
+            headerRow.getCell(i).setCellStyle(headerStyle);
+        }
+        return sheet;
+    }
+
+    private List<AttendanceResponseDTO> firstPage(LocalDate startDate, LocalDate endDate) {
+        return attendanceRepository.findExportPage(startDate, endDate, startDate.minusDays(1), 0L,
+                PageRequest.of(0, PAGE_SIZE));
+    }
+
+    // Continue after the last (date, id) of the previous page
+    private List<AttendanceResponseDTO> nextPage(LocalDate startDate, LocalDate endDate,
+                                                 List<AttendanceResponseDTO> previous) {
+        if (previous.size() < PAGE_SIZE) {
+            return List.of();
+        }
+        AttendanceResponseDTO last = previous.get(previous.size() - 1);
+        return attendanceRepository.findExportPage(startDate, endDate, last.getDate(), last.getId(),
+                PageRequest.of(0, PAGE_SIZE));
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    // Quote values that contain separators, quotes or line breaks
+    private static String csv(Object value) {
+        String text = text(value);
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.DepartmentSettings;
+
+/**
+ * The attendance status policy, with no side effects: it reads punch times, department
+ * settings and the OT flag and returns a Result. Nothing is logged or written here;
+ * callers apply the worked-day and late-login counters the result asks for, and feed
+ * the late-login count back through Result.withLateLoginCount.
+ *
+ * Policy:
+ *  - hours below the half-day threshold: Absent, idle = full day
+ *  - hours below the full-day threshold: Half Day, idle = full day - hours
+ *  - otherwise Present (On Time), or Present (Late Login) when punched in after the
+ *    late-login threshold; every 3rd late login of a month becomes a Half Day
+ *  - a full day that is not an OT day counts as a worked day
+ */
+@Component
+public class AttendancePolicyEngine {
+
+    private static final DepartmentSettings DEFAULTS = new DepartmentSettings("DEFAULT", "DEFAULT",
+            LocalTime.of(9, 15),  // punchInStart
+            LocalTime.of(20, 0),  // punchOutEnd
+            LocalTime.of(9, 30),  // officeStart
+            LocalTime.of(18, 30), // officeEnd
+            LocalTime.of(9, 45),  // lateLoginThreshold
+            4.0,                  // halfDayThreshold
+            9.0,                  // fullDayThreshold
+            LocalTime.of(9, 0),   // morningHalfLogin
+            LocalTime.of(13, 0),  // morningHalfLogout
+            LocalTime.of(14, 0),  // afternoonHalfLogin
+            LocalTime.of(18, 0)   // afternoonHalfLogout
+    );
+
+    // Every Nth late login in a month is downgraded to a half day
+    public static final int LATE_LOGINS_PER_HALF_DAY = 3;
+
+    // Settings used when a department has none; a fresh copy, so callers may not alter the shared one
+    public DepartmentSettings defaultSettings() {
+        return new DepartmentSettings(DEFAULTS.getDepartmentName(), DEFAULTS.getEmpType(),
+                DEFAULTS.getPunchInStart(), DEFAULTS.getPunchOutEnd(), DEFAULTS.getOfficeStart(), DEFAULTS.getOfficeEnd(),
+                DEFAULTS.getLateLoginThreshold(), DEFAULTS.getHalfDayThreshold(), DEFAULTS.getFullDayThreshold(),
+                DEFAULTS.getMorningHalfLogin(), DEFAULTS.getMorningHalfLogout(),
+                DEFAULTS.getAfternoonHalfLogin(), DEFAULTS.getAfternoonHalfLogout());
+    }
+
+    // Hours between punch in and punch out, in whole minutes (the precision stored on attendance rows)
+    public static double hoursBetween(LocalDateTime punchIn, LocalDateTime punchOut) {
+        return ChronoUnit.MINUTES.between(punchIn, punchOut) / 60.0;
+    }
+
+    public Result evaluate(LocalDateTime punchIn, LocalDateTime punchOut, DepartmentSettings settings, boolean otDay) {
+        return evaluate(punchIn.toLocalTime(), hoursBetween(punchIn, punchOut), settings, otDay);
+    }
+
+    public Result evaluate(LocalTime punchIn, double hoursWorked, DepartmentSettings settings, boolean otDay) {
+        return evaluate(punchIn, hoursWorked, settings.getLateLoginThreshold(),
+                settings.getHalfDayThreshold(), settings.getFullDayThreshold(), otDay);
+    }
+
+    // Primitive form for bulk recomputes that already hold the thresholds
+    public Result evaluate(LocalTime punchIn, double hoursWorked, LocalTime lateLoginThreshold,
+                           double halfDayThreshold, double fullDayThreshold, boolean otDay) {
+        boolean lateLogin = punchIn != null && punchIn.isAfter(lateLoginThreshold);
+
+        if (hoursWorked < halfDayThreshold) {
+            return new Result(AttendanceStatus.ABSENT, hoursWorked, fullDayThreshold, lateLogin, false, false);
+        }
+        if (hoursWorked < fullDayThreshold) {
+            return new Result(AttendanceStatus.HALF_DAY, hoursWorked, fullDayThreshold - hoursWorked, lateLogin, false, false);
+        }
+        return new Result(lateLogin ? AttendanceStatus.PRESENT_LATE_LOGIN : AttendanceStatus.PRESENT_ON_TIME,
+                hoursWorked, 0.0, lateLogin, lateLogin, !otDay);
+    }
+
+    /**
+     * Outcome of one evaluation. countsAsLateLogin and countsAsWorkedDay tell the caller which
+     * counters to increment; once the late-login counter is known, withLateLoginCount applies
+     * the every-3rd-late-login rule.
+     */
+    public static final class Result {
+        private final AttendanceStatus status;
+        private final double hoursWorked;
+        private final double idleTime;
+        private final boolean lateLogin;
+        private final boolean countsAsLateLogin;
+        private final boolean countsAsWorkedDay;
+
+        private Result(AttendanceStatus status, double hoursWorked, double idleTime, boolean lateLogin,
+                       boolean countsAsLateLogin, boolean countsAsWorkedDay) {
+            this.status = status;
+            this.hoursWorked = hoursWorked;
+            this.idleTime = idleTime;
+            this.lateLogin = lateLogin;
+            this.countsAsLateLogin = countsAsLateLogin;
+            this.countsAsWorkedDay = countsAsWorkedDay;
+        }
+
+        // Result after this late login brought the month's count to lateLoginCount
+        public Result withLateLoginCount(int lateLoginCount) {
+            if (!countsAsLateLogin || lateLoginCount % LATE_LOGINS_PER_HALF_DAY != 0) {
+                return this;
+            }
+            return new Result(AttendanceStatus.HALF_DAY, hoursWorked, idleTime, lateLogin, true, countsAsWorkedDay);
+        }
+
+        public AttendanceStatus getStatus() { return status; }
+        public double getHoursWorked() { return hoursWorked; }
+        public double getIdleTime() { return idleTime; }
+        public boolean isLateLogin() { return lateLogin; }
+        public boolean countsAsLateLogin() { return countsAsLateLogin; }
+        public boolean countsAsWorkedDay() { return countsAsWorkedDay; }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.exception.AttendanceException;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Re-applies the attendance status policy (AttendancePolicyEngine) to existing rows of a
+ * department after its settings change. Members are split into partitions that run in
+ * parallel, each in its own transaction; rows are evaluated in memory and only changed rows are written, as
+ * JDBC batches on commit, with one monthly summary upsert per (employee, month). Reports status counts
+ * before and after.
+ *
+ * Employee counters (worked days, OT days) and late_login_counter are not reconciled: which rows were
+ * counted depended on the settings in force when they were punched out, which are not recorded. They
+ * keep their live values; the late-login rule here counts the employee's stored rows from the first
+ * of each month instead of reading late_login_counter.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttendanceRecalculationService {
+
+    private static final int EMPLOYEES_PER_PARTITION = 50;
+    private static final int MAX_THREADS = 8;
+
+    private final EmployeeRepository employeeRepository;
+    private final AttendanceRepository attendanceRepository;
+    private final DepartmentSettingsCache departmentSettingsCache;
+    private final AttendancePolicyEngine attendancePolicyEngine;
+    private final AttendanceSummaryService attendanceSummaryService;
+    private final PlatformTransactionManager transactionManager;
+
+    public Map<String, Object> recalculate(String department, LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new AttendanceException("Start date cannot be after end date");
+        }
+        long startedAt = System.currentTimeMillis();
+
+        // Members grouped by employee type, each type with its settings resolved once
+        Map<String, DepartmentSettings> settingsByType = new HashMap<>();
+        List<List<String>> partitions = new ArrayList<>();
+        Map<String, String> typeByEmployee = new HashMap<>();
+        List<String> current = new ArrayList<>();
+        for (Object[] row : employeeRepository.findIdsAndTypesByCurrentDepartment(department)) {
+            String employeeId = (String) row[0];
+            String empType = row[1] != null ? ((Employee.EmployeeType) row[1]).name() : "FULL_TIME";
+            typeByEmployee.put(employeeId, empType);
+            settingsByType.computeIfAbsent(empType, type -> departmentSettingsCache.resolve(department, type)
+                    .orElseGet(attendancePolicyEngine::defaultSettings));
+            current.add(employeeId);
+            if (current.size() == EMPLOYEES_PER_PARTITION) {
+                partitions.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            partitions.add(current);
+        }
+
+        TransactionTemplate partitionTransaction = new TransactionTemplate(transactionManager);
+        partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int threads = Math.max(1, Math.min(MAX_THREADS, Math.min(partitions.size(), Runtime.getRuntime().availableProcessors())));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<PartitionResult>> futures = new ArrayList<>();
+        try {
+            for (List<String> partition : partitions) {
+                futures.add(pool.submit(() -> partitionTransaction.execute(status ->
+                        recalculatePartition(partition, typeByEmployee, settingsByType, startDate, endDate))));
+            }
+
+            PartitionResult total = new PartitionResult();
+            AtomicInteger failedPartitions = new AtomicInteger();
+            for (Future<PartitionResult> future : futures) {
+                try {
+                    total.add(future.get());
+                } catch (ExecutionException e) {
+                    failedPartitions.incrementAndGet();
+                    log.warn("Recalculation partition for {} failed", department, e.getCause());
+                }
+            }
+
+            Map<String, Object> report = new HashMap<>();
+            report.put("department", department);
+            report.put("startDate", startDate);
+            report.put("endDate", endDate);
+            report.put("employees", typeByEmployee.size());
+            report.put("partitions", partitions.size());
+            report.put("failedPartitions", failedPartitions.get());
+            report.put("rowsEvaluated", total.evaluated);
+            report.put("rowsChanged", total.changed);
+            report.put("before", labelled(total.before));
+            report.put("after", labelled(total.after));
+            report.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AttendanceException("Recalculation interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private PartitionResult recalculatePartition(List<String> employeeIds, Map<String, String> typeByEmployee,
+                                                 Map<String, DepartmentSettings> settingsByType,
+                                                 LocalDate startDate, LocalDate endDate) {
+        PartitionResult result = new PartitionResult();
+        AttendanceSummaryService.Batch summaryChanges = new AttendanceSummaryService.Batch();
+
+        // Rows from the start of the first month count towards the "every 3rd late login" rule
+        LocalDate loadFrom = startDate.withDayOfMonth(1);
+        List<Attendance> rows = attendanceRepository.findForRecalculation(employeeIds, loadFrom, endDate);
+
+        String employeeId = null;
+        YearMonth month = null;
+        int lateLogins = 0;
+        for (Attendance attendance : rows) {
+            String rowEmployeeId = attendance.getEmployee().getEmployeeId();
+            YearMonth rowMonth = YearMonth.from(attendance.getDate());
+            if (!rowEmployeeId.equals(employeeId) || !rowMonth.equals(month)) {
+                employeeId = rowEmployeeId;
+                month = rowMonth;
+                lateLogins = 0;
+            }
+            if (attendance.getPunchInTime() == null || attendance.getPunchOutTime() == null
+                    || attendance.getHoursWorked() == null) {
+                continue;
+            }
+
+            DepartmentSettings settings = settingsByType.get(typeByEmployee.get(rowEmployeeId));
+            AttendancePolicyEngine.Result evaluated = attendancePolicyEngine.evaluate(
+                    attendance.getPunchInTime().toLocalTime(), attendance.getHoursWorked(), settings,
+                    Boolean.TRUE.equals(attendance.getIsOtDay()));
+            if (evaluated.countsAsLateLogin()) {
+                lateLogins++;
+                evaluated = evaluated.withLateLoginCount(lateLogins);
+            }
+            if (attendance.getDate().isBefore(startDate)) {
+                continue;
+            }
+            AttendanceStatus status = evaluated.getStatus();
+            double idleTime = evaluated.getIdleTime();
+            boolean lateLogin = evaluated.isLateLogin();
+
+            result.evaluated++;
+            result.count(result.before, attendance.getAttendanceStatus());
+            result.count(result.after, status);
+
+            boolean changed = status != attendance.getAttendanceStatus()
+                    || lateLogin != Boolean.TRUE.equals(attendance.getIsLateLogin())
+                    || attendance.getIdleTime() == null || Math.abs(idleTime - attendance.getIdleTime()) > 1e-9;
+            if (changed) {
+                AttendanceSummaryService.Contribution before = attendanceSummaryService.contributionOf(attendance);
+                attendance.setAttendanceStatus(status);
+                attendance.setIsLateLogin(lateLogin);
+                attendance.setIdleTime(idleTime);
+                summaryChanges.add(before, attendanceSummaryService.contributionOf(attendance));
+                result.changed++;
+            }
+        }
+        // The summary upserts flush the changed rows first, as batched updates
+        attendanceSummaryService.recordChanges(summaryChanges);
+        return result;
+    }
+
+    private static Map<String, Integer> labelled(Map<AttendanceStatus, Integer> counts) {
+        Map<String, Integer> labelled = new LinkedHashMap<>();
+        for (AttendanceStatus status : AttendanceStatus.values()) {
+            labelled.put(status.getLabel(), counts.getOrDefault(status, 0));
+        }
+        return labelled;
+    }
+
+    private static final class PartitionResult {
+        private final Map<AttendanceStatus, Integer> before = new HashMap<>();
+        private final Map<AttendanceStatus, Integer> after = new HashMap<>();
+        private int evaluated;
+        private int changed;
+
+        private void count(Map<AttendanceStatus, Integer> counts, AttendanceStatus status) {
+            if (status != null) {
+                counts.merge(status, 1, Integer::sum);
+            }
+        }
+
+        private void add(PartitionResult other) {
+            if (other == null) {
+                return;
+            }
+            other.before.forEach((status, count) -> before.merge(status, count, Integer::sum));
+            other.after.forEach((status, count) -> after.merge(status, count, Integer::sum));
+            evaluated += other.evaluated;
+            changed += other.changed;
+        }
+    }
+}
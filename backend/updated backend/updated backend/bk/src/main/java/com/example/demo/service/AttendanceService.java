@@ -5,36 +5,54 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import com.example.demo.model.Overtime.OTStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.dto.AttendanceResponseDTO;
+import com.example.demo.dto.DepartmentAttendanceSummaryDTO;
+import com.example.demo.dto.PunchContext;
 import com.example.demo.exception.AttendanceException;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceMonthlySummary;
+import com.example.demo.model.AttendanceStatus;
 import com.example.demo.model.DepartmentSettings;
 import com.example.demo.model.Employee;
-import com.example.demo.model.Holiday;
-import com.example.demo.model.LateLoginCounter;
 import com.example.demo.model.Overtime;
 import com.example.demo.repository.AttendanceRepository;
-import com.example.demo.repository.DepartmentSettingsRepository;
 import com.example.demo.repository.EmployeeRepository;
 import com.example.demo.repository.ExperienceRepository;
-import com.example.demo.repository.HolidayRepository;
 import com.example.demo.repository.LateLoginCounterRepository;
 import com.example.demo.repository.OvertimeRepository;
 
+import io.micrometer.observation.annotation.Observed;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
 @Transactional
+@Observed(name = "hrms.service")
 public class AttendanceService {
+
+    public static final String PUNCH_IN_NOT_ENABLED = "Punch In is not enabled for this employee. " +
+            "Possible reasons: Not working hours, Holiday without OT allocation, or Employee on leave";
+
 	@Autowired
 	private OvertimeService overtimeService;
     @Autowired
@@ -44,7 +62,7 @@ public class AttendanceService {
     private EmployeeRepository employeeRepository;
 
     @Autowired
-    private HolidayRepository holidayRepository;
+    private HolidayCalendar holidayCalendar;
 
     @Autowired
     private OvertimeRepository overtimeRepository;
@@ -53,19 +71,99 @@ public class AttendanceService {
     private LateLoginCounterRepository lateLoginCounterRepository;
 
     @Autowired
-    private DepartmentSettingsRepository departmentSettingsRepository;
+    private DepartmentSettingsCache departmentSettingsCache;
 
     @Autowired
     private ExperienceRepository experienceRepository;
 
+    @Autowired
+    private AttendanceSummaryService attendanceSummaryService;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AttendancePolicyEngine attendancePolicyEngine;
+
+    @Autowired
+    private HrmsMetrics hrmsMetrics;
+
+    @Autowired
+    private DayPlanRegistry dayPlanRegistry;
+
+    @Autowired
+    private ApprovedLeaveIndex approvedLeaveIndex;
+
+    @Autowired
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    private static final int AUTO_PUNCH_OUT_CHUNK_SIZE = 200;
+
+    private static final int HISTORY_MAX_PAGE_SIZE = 200;
+    private static final LocalDate HISTORY_EARLIEST_DATE = LocalDate.of(2000, 1, 1);
+
     // Punch In
- // Punch In
     public Attendance punchIn(String employeeId) {
-        LocalDate today = LocalDate.now();
-        LocalDateTime now = LocalDateTime.now();
+        Attendance attendance = preparePunchIn(employeeId, LocalDateTime.now());
+        return attendance.getId() != null ? attendance : insertPunchIn(attendance);
+    }
 
-        // Get department settings first
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
+    // Insert a new day row; uk_attendance_employee_date rejects it when a racing punch-in inserted first
+    private Attendance insertPunchIn(Attendance attendance) {
+        try {
+            return attendanceRepository.saveAndFlush(attendance);
+        } catch (DataIntegrityViolationException e) {
+            throw new AttendanceException("Already punched in today");
+        }
+    }
+
+    /**
+     * Persist a batch of punch-ins accepted by the ingestion queue, each at the time it was received.
+     * Punches that fail validation are skipped and reported; the rest are saved together.
+     * A new row that collides with a concurrent punch-in fails the whole batch on the unique key,
+     * and the queue then retries its punches one by one.
+     * Returns the rejection message per idempotency key (accepted punches are not in the map).
+     */
+    public Map<String, String> recordPunchIns(List<PunchIngestionQueue.QueuedPunch> punches) {
+        Map<String, String> rejected = new HashMap<>();
+        Set<String> punchedInThisBatch = new HashSet<>();
+        List<Attendance> attendances = new ArrayList<>();
+
+        for (PunchIngestionQueue.QueuedPunch punch : punches) {
+            String dayKey = punch.getEmployeeId() + '|' + punch.getReceivedAt().toLocalDate();
+            if (!punchedInThisBatch.add(dayKey)) {
+                rejected.put(punch.getIdempotencyKey(), "Already punched in today");
+                continue;
+            }
+            try {
+                Attendance attendance = preparePunchIn(punch.getEmployeeId(), punch.getReceivedAt());
+                if (attendance.getId() == null) {
+                    attendances.add(attendance);
+                }
+            } catch (AttendanceException | ResourceNotFoundException e) {
+                rejected.put(punch.getIdempotencyKey(), e.getMessage());
+            }
+        }
+
+        attendanceRepository.saveAll(attendances);
+        return rejected;
+    }
+
+    /**
+     * Validate a punch-in at the given time. A row that already exists for the day gets its punch-in
+     * through a conditional update right away; otherwise the new row is returned unsaved, for the
+     * caller to insert.
+     */
+    private Attendance preparePunchIn(String employeeId, LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+
+        // Load employee, today's attendance and OT allocation in one query
+        Optional<PunchContext> contextOpt = loadPunchContext(employeeId, today);
+        DepartmentSettings settings = contextOpt.map(this::getDepartmentSettings)
+                .orElseGet(this::getDefaultDepartmentSettings);
         
         // Add time validation here
         boolean isAfterPunchInStart = !now.toLocalTime().isBefore(settings.getPunchInStart());
@@ -76,77 +174,96 @@ public class AttendanceService {
             throw new AttendanceException("Punch In is only allowed between " + 
                 settings.getPunchInStart() + " and " + settings.getPunchOutEnd()+". Current time: " + now.toLocalTime());
         }
-        
-        if (!isPunchInEnabled(employeeId)) {
-            throw new AttendanceException("Punch In is not enabled for this employee. Possible reasons: Not working hours, Holiday without OT allocation, or Employee on leave");
-        }
 
-        Employee employee = employeeRepository.findById(employeeId)
+        PunchContext context = contextOpt
                 .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
 
         // Check if already punched in today
-        Optional<Attendance> existingAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, today);
-        if (existingAttendance.isPresent() && existingAttendance.get().getPunchInTime() != null) {
+        if (context.isPunchedIn()) {
             throw new AttendanceException("Already punched in today");
         }
 
-        Attendance attendance;
-        if (existingAttendance.isPresent()) {
-            attendance = existingAttendance.get();
-        } else {
-            attendance = new Attendance(employee, today);
+        if (!isPunchInEnabled(context, settings, now.toLocalTime())) {
+            throw new AttendanceException(PUNCH_IN_NOT_ENABLED);
         }
 
-        attendance.setPunchInTime(now);
+        // ✅ FIX: Check for ANY type of approved OT (both holiday OT and regular OT);
+        // keep the holiday check as well for backward compatibility
+        boolean isOtDay = context.isOtApproved()
+                || (holidayCalendar.isHoliday(today) && context.isOtAllocated())
+                || Boolean.TRUE.equals(context.getIsOtDay());
 
-        // ✅ FIX: Check for ANY type of approved OT (both holiday OT and regular OT)
-        Optional<Overtime> overtimeOpt = overtimeRepository.findByEmployeeEmployeeIdAndDate(employeeId, today);
-        if (overtimeOpt.isPresent() && overtimeOpt.get().getStatus() == OTStatus.APPROVED) {
-            attendance.setIsOtDay(true);
-            System.out.println("Marked as OT day. Type: " + overtimeOpt.get().getType());
-        }
-        // Keep the holiday check as well for backward compatibility
-        else {
-            Optional<Holiday> holiday = holidayRepository.findByDate(today);
-            if (holiday.isPresent() && overtimeRepository.existsByEmployeeEmployeeIdAndDate(employeeId, today)) {
-                attendance.setIsOtDay(true);
-                System.out.println("Marked as holiday OT day");
+        // Check if it's a late login based on department settings
+        boolean isLateLogin = now.toLocalTime().isAfter(settings.getLateLoginThreshold());
+
+        Attendance attendance;
+        if (context.hasAttendance()) {
+            // Only succeeds while the row has no punch-in, so a racing punch-in cannot overwrite this one
+            if (attendanceRepository.punchInIfAbsent(context.getAttendanceId(), now, isLateLogin, isOtDay) == 0) {
+                throw new AttendanceException("Already punched in today");
             }
+            attendance = attendanceRepository.findById(context.getAttendanceId())
+                    .orElseThrow(() -> new AttendanceException("Attendance record not found for today"));
+        } else {
+            // Employee reference is a proxy, so creating the row does not select the employee again
+            attendance = new Attendance(employeeRepository.getReferenceById(employeeId), context.getEmployeeName(), today);
+            attendance.setPunchInTime(now);
+            attendance.setIsOtDay(isOtDay);
+            attendance.setIsLateLogin(isLateLogin);
         }
 
-        // Check if it's a late login based on department settings
-        boolean isLateLogin = now.toLocalTime().isAfter(settings.getLateLoginThreshold());
-        attendance.setIsLateLogin(isLateLogin);
+        dayPlanRegistry.punchedInAfterCommit(employeeId, today);
+        // Counted on commit only: a punch that loses the unique-key race or is retried is counted once
+        presenceRegistry.afterCommit(() -> {
+            presenceRegistry.punchedIn(employeeId, context.getEmployeeName(),
+                    context.getDepartment(), now, isLateLogin, isOtDay);
+            hrmsMetrics.punch("in");
+        });
+        eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
 
-        return attendanceRepository.save(attendance);
+        return attendance;
     }
-    // Punch Out
+    // Punch Out; retried when a concurrent writer (auto punch-out, permission approval) changed the row first
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Attendance punchOut(String employeeId) {
+        return optimisticRetryExecutor.execute("Punch-out of " + employeeId, () -> doPunchOut(employeeId));
+    }
+
+    private Attendance doPunchOut(String employeeId) {
         LocalDate today = LocalDate.now();
         LocalDateTime now = LocalDateTime.now();
         
-        Optional<Attendance> attendanceOpt = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, today);
+        Optional<PunchContext> contextOpt = loadPunchContext(employeeId, today);
 
-        if (attendanceOpt.isEmpty()) {
+        if (contextOpt.isEmpty() || !contextOpt.get().hasAttendance()) {
             throw new AttendanceException("No attendance record found for today. Please punch in first.");
         }
 
-        Attendance attendance = attendanceOpt.get();
+        PunchContext context = contextOpt.get();
 
-        if (attendance.getPunchInTime() == null) {
+        if (!context.isPunchedIn()) {
             throw new AttendanceException("Not punched in today. Please punch in first.");
         }
 
-        if (attendance.getPunchOutTime() != null) {
+        if (context.isPunchedOut()) {
             throw new AttendanceException("Already punched out today");
         }
         
         // Check if within punch out end time
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
+        DepartmentSettings settings = getDepartmentSettings(context);
         if (now.toLocalTime().isAfter(settings.getPunchOutEnd())) {
             throw new AttendanceException("Punch out not allowed after " + settings.getPunchOutEnd());
         }
 
+        // Claim the punch-out with a conditional update first; a racing punch-out finds it already set
+        if (attendanceRepository.punchOutIfAbsent(context.getAttendanceId(), now) == 0) {
+            throw new AttendanceException("Already punched out today");
+        }
+        Attendance attendance = attendanceRepository.findById(context.getAttendanceId())
+                .orElseThrow(() -> new AttendanceException("No attendance record found for today. Please punch in first."));
+        // Until now the row had no punch-out, so it added nothing to its month
+        AttendanceSummaryService.Contribution before = AttendanceSummaryService.Contribution.NONE;
+
         attendance.setPunchOutTime(now);
 
         // Calculate hours worked
@@ -155,55 +272,62 @@ public class AttendanceService {
         attendance.setHoursWorked(hoursWorked);
 
         // Calculate status and idle time according to HRMS policies
-        calculateAttendanceStatus(attendance);
+        calculateAttendanceStatus(attendance, settings);
         overtimeService.updateOTStatsAfterPunchOut(employeeId, today, hoursWorked);
 
-        return attendanceRepository.save(attendance);
+        Attendance saved = attendanceRepository.save(attendance);
+        attendanceSummaryService.recordChange(before, saved);
+        dayPlanRegistry.punchedOutAfterCommit(employeeId, today);
+        presenceRegistry.afterCommit(() -> {
+            presenceRegistry.punchedOut(employeeId, now);
+            hrmsMetrics.punch("out");
+        });
+        eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
+        return saved;
     }
 
     // Check if punch out is enabled
     public boolean isPunchOutEnabled(String employeeId) {
-        LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
-        
-        // Check if employee exists
-        Optional<Employee> employeeOpt = employeeRepository.findById(employeeId);
-        if (employeeOpt.isEmpty()) {
+        // Today's plan answers without a query
+        DayPlanRegistry.DayPlan plan = dayPlanRegistry.get(employeeId, LocalDate.now());
+        if (plan != null) {
+            return plan.isPunchOutEnabled(LocalTime.now());
+        }
+        Optional<PunchContext> contextOpt = loadPunchContext(employeeId, LocalDate.now());
+        if (contextOpt.isEmpty()) {
             return false;
         }
-        
-        // Get department settings
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
-        
-        // Check if punched in today
-        Optional<Attendance> todayAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, today);
-        if (todayAttendance.isEmpty() || todayAttendance.get().getPunchInTime() == null) {
+        return isPunchOutEnabled(contextOpt.get(), getDepartmentSettings(contextOpt.get()), LocalTime.now());
+    }
+
+    private boolean isPunchOutEnabled(PunchContext context, DepartmentSettings settings, LocalTime now) {
+        if (!context.isPunchedIn()) {
             return false; // Not punched in
         }
         
-        if (todayAttendance.get().getPunchOutTime() != null) {
+        if (context.isPunchedOut()) {
             return false; // Already punched out
         }
         
         // Check if within punch out end time
-        boolean isBeforePunchOutEnd = now.isBefore(settings.getPunchOutEnd());
-        
-        return isBeforePunchOutEnd;
+        return now.isBefore(settings.getPunchOutEnd());
     }
 
     // Get punch out status with details
     public Map<String, Object> getPunchOutStatus(String employeeId) {
         Map<String, Object> response = new HashMap<>();
         
-        boolean isPunchOutEnabled = isPunchOutEnabled(employeeId);
+        Optional<PunchContext> contextOpt = loadPunchContext(employeeId, LocalDate.now());
+        DepartmentSettings settings = contextOpt.map(this::getDepartmentSettings)
+                .orElseGet(this::getDefaultDepartmentSettings);
+
+        boolean isPunchOutEnabled = contextOpt.isPresent()
+                && isPunchOutEnabled(contextOpt.get(), settings, LocalTime.now());
         response.put("punchOutEnabled", isPunchOutEnabled);
-        
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
         response.put("punchOutEndTime", settings.getPunchOutEnd());
         
-        Optional<Attendance> todayAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, LocalDate.now());
-        if (todayAttendance.isPresent() && todayAttendance.get().getPunchInTime() != null) {
-            response.put("punchInTime", todayAttendance.get().getPunchInTime());
+        if (contextOpt.isPresent() && contextOpt.get().isPunchedIn()) {
+            response.put("punchInTime", contextOpt.get().getPunchInTime());
         }
         
         return response;
@@ -211,73 +335,42 @@ public class AttendanceService {
 
     // Punch-In Eligibility according to HRMS policies
     public boolean isPunchInEnabled(String employeeId) {
-        LocalDate today = LocalDate.now();
-        LocalTime now = LocalTime.now();
-        System.out.println("=== DEBUG: Punch In Check ===");
-        System.out.println("Current Time: " + now);
-        System.out.println("Current Date: " + today);
-        // Check if employee exists
-        Optional<Employee> employeeOpt = employeeRepository.findById(employeeId);
-        System.out.println("Employee exists: " + employeeOpt.isPresent());
-        if (employeeOpt.isEmpty()) {
-        	  System.out.println("DEBUG: Employee not found");
-            return false;
+        return isPunchInEnabledForDate(employeeId, LocalDate.now());
+    }
+
+    // Punch-In Eligibility evaluated against an already loaded context (no queries)
+    private boolean isPunchInEnabled(PunchContext context, DepartmentSettings settings, LocalTime now) {
+        LocalDate date = context.getDate();
+
+        // Today: holiday, OT, leave and window come from the precomputed plan
+        DayPlanRegistry.DayPlan plan = dayPlanRegistry.get(context.getEmployeeId(), date);
+        if (plan != null) {
+            return !context.isPunchedIn() && !context.isPunchedOut() && plan.isPunchInOpen(now);
         }
+
+        // OT only unlocks a holiday when it is allocated for this employee
+        boolean isHoliday = holidayCalendar.isHoliday(date);
+        boolean isOtAllocated = isHoliday && context.isOtAllocated();
         
-        // Get department settings
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
-        System.out.println("Department: " + settings.getDepartmentName());
-        System.out.println("Emp Type: " + settings.getEmpType());
-        System.out.println("Punch In Start: " + settings.getPunchInStart());
-        System.out.println("Punch Out End: " + settings.getPunchOutEnd());
-        System.out.println("Late Login Threshold: " + settings.getLateLoginThreshold());
-        
-        // Check if today is a holiday
-        Optional<Holiday> holiday = holidayRepository.findByDate(today);
-        boolean isHoliday = holiday.isPresent();
-        System.out.println("Is Holiday: " + isHoliday);
-        
-        // Check if OT is allocated for this employee on holiday
-        boolean isOtAllocated = false;
-        if (isHoliday) {
-            isOtAllocated = overtimeRepository.existsByEmployeeEmployeeIdAndDate(employeeId, today);
-            System.out.println("OT Allocated: " + isOtAllocated);
-        }
-        
-        // Check if employee is on leave today
-        boolean isOnLeave = isEmployeeOnLeave(employeeId, today);
-        System.out.println("Is On Leave: " + isOnLeave);
-        // Check if it's a working day (Monday to Friday)
-        DayOfWeek dayOfWeek = today.getDayOfWeek();
-        boolean isWorkingDay = dayOfWeek != DayOfWeek.SUNDAY;
-        System.out.println("Is Working Day: " + isWorkingDay);
-        System.out.println("Today is: " + dayOfWeek);
+        // Check if employee is on leave at this time (a half-day leave only covers its session)
+        boolean isOnLeave = isEmployeeOnLeave(context.getEmployeeId(), date, now, settings);
+
+        // Check if it's a working day (Monday to Saturday)
+        boolean isWorkingDay = date.getDayOfWeek() != DayOfWeek.SUNDAY;
         
         // Check time condition (after punch_in_start time)
         boolean isAfterPunchInStart = !now.isBefore(settings.getPunchInStart());
-        boolean isBeforePunchOutEnd = now.isBefore(settings.getPunchOutEnd());
-        boolean isWithinTimeWindow = isAfterPunchInStart && isBeforePunchOutEnd;
-        System.out.println("After Punch In Start: " + isAfterPunchInStart);
-        System.out.println("Current time: " + now);
-        System.out.println("Punch in start: " + settings.getPunchInStart());
-        
-        // Check if already punched in today
-        Optional<Attendance> todayAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, today);
-        boolean isAlreadyPunchedIn = todayAttendance.isPresent() && todayAttendance.get().getPunchInTime() != null;
-        boolean isAlreadyPunchedOut = todayAttendance.isPresent() && todayAttendance.get().getPunchOutTime() != null;
-        System.out.println("Already Punched In: " + isAlreadyPunchedIn);
-        System.out.println("Already Punched Out: " + isAlreadyPunchedOut);
         
         // Punch In enabled conditions
-        boolean enabled = !isAlreadyPunchedIn && !isAlreadyPunchedOut &&
+        return !context.isPunchedIn() && !context.isPunchedOut() &&
                ((isWorkingDay && !isHoliday) || (isHoliday && isOtAllocated)) &&
                isAfterPunchInStart && !isOnLeave;
-        
-        System.out.println("Final Punch In Enabled: " + enabled);
-        System.out.println("=== DEBUG END ===");
-        
-        
-        return enabled;
+    }
+
+    // Load everything the punch endpoints need for the employee and date; empty if the employee does not exist
+    private Optional<PunchContext> loadPunchContext(String employeeId, LocalDate date) {
+        List<PunchContext> contexts = attendanceRepository.findPunchContext(employeeId, date);
+        return contexts.isEmpty() ? Optional.empty() : Optional.of(contexts.get(0));
     }
  // Add these methods for testing with custom times
     public Attendance manualPunchIn(String employeeId, LocalDateTime customPunchInTime) {
@@ -292,20 +385,12 @@ public class AttendanceService {
             throw new AttendanceException("Already punched in today");
         }
 
-        Attendance attendance;
-        if (existingAttendance.isPresent()) {
-            attendance = existingAttendance.get();
-        } else {
-            attendance = new Attendance(employee, today);
-        }
-
-        attendance.setPunchInTime(customPunchInTime);
-
         // ✅ FIX: Check for ANY type of approved OT
+        boolean isOtDay = existingAttendance.isPresent() && Boolean.TRUE.equals(existingAttendance.get().getIsOtDay());
         Optional<Overtime> overtimeOpt = overtimeRepository.findByEmployeeEmployeeIdAndDate(employeeId, today);
         if (overtimeOpt.isPresent() && overtimeOpt.get().getStatus() == OTStatus.APPROVED) {
-            attendance.setIsOtDay(true);
-            System.out.println("Marked as OT day. Type: " + overtimeOpt.get().getType());
+            isOtDay = true;
+            log.debug("Manual punch-in of {} marked as OT day ({})", employeeId, overtimeOpt.get().getType());
         }
 
         // Check if it's a late login based on department settings
@@ -317,9 +402,37 @@ public class AttendanceService {
             throw new AttendanceException("Punch In time must be between " + 
                 settings.getPunchInStart() + " and " + settings.getPunchOutEnd());
         }
-        attendance.setIsLateLogin(isLateLogin);
 
-        return attendanceRepository.save(attendance);
+        Attendance saved;
+        if (existingAttendance.isPresent()) {
+            Long attendanceId = existingAttendance.get().getId();
+            if (attendanceRepository.punchInIfAbsent(attendanceId, customPunchInTime, isLateLogin, isOtDay) == 0) {
+                throw new AttendanceException("Already punched in today");
+            }
+            saved = attendanceRepository.findById(attendanceId)
+                    .orElseThrow(() -> new AttendanceException("Attendance record not found for today"));
+        } else {
+            Attendance attendance = new Attendance(employee, today);
+            attendance.setPunchInTime(customPunchInTime);
+            attendance.setIsOtDay(isOtDay);
+            attendance.setIsLateLogin(isLateLogin);
+            saved = insertPunchIn(attendance);
+        }
+
+        dayPlanRegistry.punchedInAfterCommit(employeeId, today);
+        // The board only shows today; a manual punch for another date leaves it alone
+        boolean onBoard = today.equals(LocalDate.now());
+        String department = onBoard ? experienceRepository.findCurrentDepartmentByEmployeeId(employeeId).orElse(null) : null;
+        boolean otDay = isOtDay;
+        presenceRegistry.afterCommit(() -> {
+            if (onBoard) {
+                presenceRegistry.punchedIn(employeeId, employee.getName(), department,
+                        customPunchInTime, isLateLogin, otDay);
+            }
+            hrmsMetrics.punch("manual_in");
+        });
+        eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
+        return saved;
     }
     public Attendance manualPunchOut(String employeeId, LocalDateTime customPunchOutTime) {
         LocalDate today = customPunchOutTime.toLocalDate();
@@ -339,12 +452,20 @@ public class AttendanceService {
             throw new AttendanceException("Already punched out today");
         }
 
-        attendance.setPunchOutTime(customPunchOutTime);
+        AttendanceSummaryService.Contribution before = attendanceSummaryService.contributionOf(attendance);
         DepartmentSettings settings = getDepartmentSettings(employeeId);
         if (customPunchOutTime.toLocalTime().isAfter(settings.getPunchOutEnd())) {
             throw new AttendanceException("Punch out not allowed after " + settings.getPunchOutEnd());
         }
 
+        // Claim the punch-out first, as in punchOut, then continue on the reloaded row
+        if (attendanceRepository.punchOutIfAbsent(attendance.getId(), customPunchOutTime) == 0) {
+            throw new AttendanceException("Already punched out today");
+        }
+        attendance = attendanceRepository.findById(attendance.getId())
+                .orElseThrow(() -> new AttendanceException("No attendance record found for today. Please punch in first."));
+        attendance.setPunchOutTime(customPunchOutTime);
+
         // Calculate hours worked
         Duration duration = Duration.between(attendance.getPunchInTime(), customPunchOutTime);
         double hoursWorked = duration.toMinutes() / 60.0;
@@ -356,7 +477,17 @@ public class AttendanceService {
         // ✅ CRITICAL: Call OT service to update stats
         overtimeService.updateOTStatsAfterPunchOut(employeeId, today, hoursWorked);
 
-        return attendanceRepository.save(attendance);
+        Attendance saved = attendanceRepository.save(attendance);
+        attendanceSummaryService.recordChange(before, saved);
+        dayPlanRegistry.punchedOutAfterCommit(employeeId, today);
+        presenceRegistry.afterCommit(() -> {
+            if (today.equals(LocalDate.now())) {
+                presenceRegistry.punchedOut(employeeId, customPunchOutTime);
+            }
+            hrmsMetrics.punch("manual_out");
+        });
+        eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
+        return saved;
     }
     // Get department settings for employee with emp_type
     private DepartmentSettings getDepartmentSettings(String employeeId) {
@@ -372,126 +503,58 @@ public class AttendanceService {
         Optional<String> departmentOpt = experienceRepository.findCurrentDepartmentByEmployeeId(employeeId);
         String department = departmentOpt.orElse("DEFAULT");
         
-        // First try specific emp_type settings, then fallback to DEFAULT
-        Optional<DepartmentSettings> specificSettings = departmentSettingsRepository.findByDepartmentNameAndEmpType(department, empType);
-        if (specificSettings.isPresent()) {
-            return specificSettings.get();
-        }
-        
-        // Fallback to DEFAULT emp_type for the department
-        Optional<DepartmentSettings> defaultSettings = departmentSettingsRepository.findDefaultByDepartmentName(department);
-        if (defaultSettings.isPresent()) {
-            return defaultSettings.get();
-        }
-        
-        // Final fallback to global DEFAULT
-        return getDefaultDepartmentSettings();
+        return resolveDepartmentSettings(department, empType);
+    }
+
+    // Get department settings from an already loaded punch context (no queries)
+    private DepartmentSettings getDepartmentSettings(PunchContext context) {
+        String empType = context.getEmployeeType() != null ? context.getEmployeeType().name() : "FULL_TIME";
+        String department = context.getDepartment() != null ? context.getDepartment() : "DEFAULT";
+        return resolveDepartmentSettings(department, empType);
+    }
+
+    private DepartmentSettings resolveDepartmentSettings(String department, String empType) {
+        // Specific emp_type settings, then DEFAULT for the department (resolved in memory),
+        // then the global DEFAULT
+        return departmentSettingsCache.resolve(department, empType)
+                .orElseGet(this::getDefaultDepartmentSettings);
     }
 
     public DepartmentSettings getDefaultDepartmentSettings() {
-        return new DepartmentSettings("DEFAULT", "DEFAULT",
-            LocalTime.of(9, 15),  // punchInStart
-            LocalTime.of(20, 0),  // punchOutEnd
-            LocalTime.of(9, 30),  // officeStart  
-            LocalTime.of(18, 30), // officeEnd
-            LocalTime.of(9, 45),  // lateLoginThreshold
-            4.0,                  // halfDayThreshold
-            9.0,                  // fullDayThreshold
-            LocalTime.of(9, 0),   // morningHalfLogin
-            LocalTime.of(13, 0),  // morningHalfLogout
-            LocalTime.of(14, 0),  // afternoonHalfLogin
-            LocalTime.of(18, 0)   // afternoonHalfLogout
-        );
+        return attendancePolicyEngine.defaultSettings();
     }
 
     // Calculate attendance status with department settings
  // Calculate attendance status with department settings
     public void calculateAttendanceStatus(Attendance attendance) {
-        DepartmentSettings settings = getDepartmentSettings(attendance.getEmployee().getEmployeeId());
-        double hoursWorked = attendance.getHoursWorked();
-        System.out.println("=== DEBUG: Status Calculation ===");
-        System.out.println("Hours worked: " + hoursWorked);
-        System.out.println("Half day threshold: " + settings.getHalfDayThreshold());
-        System.out.println("Full day threshold: " + settings.getFullDayThreshold());
-        System.out.println("Is late login: " + attendance.getIsLateLogin());
-        System.out.println("Is OT Day: " + attendance.getIsOtDay());
-        
-        String status;
-        double idleTime;
-
-        if (hoursWorked < settings.getHalfDayThreshold()) {
-            status = "Absent";
-            idleTime = settings.getFullDayThreshold();
-            System.out.println("Case: Absent (< " + settings.getHalfDayThreshold() + " hours)");
-        } else if (hoursWorked >= settings.getHalfDayThreshold() && hoursWorked < settings.getFullDayThreshold()) {
-            status = "Half Day";
-            idleTime = settings.getFullDayThreshold() - hoursWorked;
-            System.out.println("Case: Half Day (" + settings.getHalfDayThreshold() + " - " + settings.getFullDayThreshold() + " hours)");
-        } else {
-            status = "Present (On Time)";
-            idleTime = Math.max(0, settings.getFullDayThreshold() - hoursWorked);
-            System.out.println("Case: Present (On Time) (>= " + settings.getFullDayThreshold() + " hours)");
-            
-            // ✅ NEW: Increment worked_days for regular working days (not OT)
-            if (attendance.getIsOtDay() == null || !attendance.getIsOtDay()) {
-                Employee employee = attendance.getEmployee();
-                Integer currentWorkedDays = employee.getWorkedDays() != null ? employee.getWorkedDays() : 0;
-                employee.setWorkedDays(currentWorkedDays + 1);
-                employeeRepository.save(employee);
-                System.out.println("Incremented worked_days to: " + employee.getWorkedDays());
-            }
-        }
+        calculateAttendanceStatus(attendance, getDepartmentSettings(attendance.getEmployee().getEmployeeId()));
+    }
 
-        // Override for late login
-        if (attendance.getIsLateLogin() != null && attendance.getIsLateLogin() && 
-            hoursWorked >= settings.getFullDayThreshold()) {
-            System.out.println("Late login override: Changing status to Present (Late Login)");
-            status = "Present (Late Login)";
-            idleTime = Math.max(0, settings.getFullDayThreshold() - hoursWorked);
-            System.out.println("Case: Present (On Time) (>= " + settings.getFullDayThreshold() + " hours)");
-            
-            // ✅ NEW: Increment worked_days for late login (if not OT)
-            if (attendance.getIsOtDay() == null || !attendance.getIsOtDay()) {
-                Employee employee = attendance.getEmployee();
-                Integer currentWorkedDays = employee.getWorkedDays() != null ? employee.getWorkedDays() : 0;
-                employee.setWorkedDays(currentWorkedDays + 1);
-                employeeRepository.save(employee);
-                System.out.println("Incremented worked_days (late login) to: " + employee.getWorkedDays());
-            }
-            else {
-                System.out.println("⚠️  OT day - workedDays NOT incremented");
-            }
-            
-            // Update late login counter and check for 3rd late login
-            LocalDate date = attendance.getDate();
-            int month = date.getMonthValue();
-            int year = date.getYear();
-            String empId = attendance.getEmployee().getEmployeeId();
+    private void calculateAttendanceStatus(Attendance attendance, DepartmentSettings settings) {
+        String employeeId = attendance.getEmployee().getEmployeeId();
+        AttendancePolicyEngine.Result result = attendancePolicyEngine.evaluate(attendance.getPunchInTime().toLocalTime(),
+                attendance.getHoursWorked(), settings, Boolean.TRUE.equals(attendance.getIsOtDay()));
 
-            LateLoginCounter counter = lateLoginCounterRepository
-                .findByEmployeeEmployeeIdAndMonthAndYear(empId, month, year)
-                .orElse(new LateLoginCounter(attendance.getEmployee(), month, year));
-            
-            counter.setLateLoginCount(counter.getLateLoginCount() + 1);
-            lateLoginCounterRepository.save(counter);
-            
-            // Special case: if it's the 3rd late login, it becomes Half Day
-            if (counter.getLateLoginCount() % 3 == 0) {
-                status = "Half Day"; // 3rd late login becomes half day
-                System.out.println("3rd late login converted to Half Day");
-            }
+        // Counters the policy asked for; OT days never count as worked days
+        if (result.countsAsWorkedDay()) {
+            employeeRepository.incrementWorkedDays(employeeId);
+        }
+        if (result.countsAsLateLogin()) {
+            LocalDate date = attendance.getDate();
+            // Atomic upsert; the row stays locked until commit, so the count read back is ours alone
+            int lateLoginCount = lateLoginCounterRepository.incrementAndGet(employeeId, date.getMonthValue(), date.getYear());
+            result = result.withLateLoginCount(lateLoginCount);
         }
 
-        attendance.setStatus(status);
-        attendance.setIdleTime(idleTime);
-        
-        System.out.println("Final status: " + status);
-        System.out.println("=== DEBUG END ===");
-        
-        System.out.println("=== DEBUG: OT CHECK ===");
-        System.out.println("Is OT Day: " + attendance.getIsOtDay());
-        System.out.println("Current workedDays: " + attendance.getEmployee().getWorkedDays());
-        System.out.println("Will increment workedDays: " + (attendance.getIsOtDay() == null || !attendance.getIsOtDay()));
+        applyStatus(attendance, result);
+    }
+
+    private void applyStatus(Attendance attendance, AttendancePolicyEngine.Result result) {
+        attendance.setAttendanceStatus(result.getStatus());
+        attendance.setIdleTime(result.getIdleTime());
+        attendance.setIsLateLogin(result.isLateLogin());
+
+        log.debug("Attendance status for {}: {}", attendance.getEmployee().getEmployeeId(), result.getStatus());
     }
 
     /**
@@ -504,56 +567,12 @@ public class AttendanceService {
         response.put("month", month);
         
         try {
-            // Get all attendance records for the month
-            LocalDate startDate = LocalDate.of(year, month, 1);
-            LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
-            
-            List<Attendance> monthlyAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDateBetween(
-                employeeId, startDate, endDate);
-            
-            double totalWorkedHours = 0.0;
-            double totalIdleHours = 0.0;
-            int workingDays = 0;
-            int presentDays = 0;
-            int absentDays = 0;
-            int halfDays = 0;
-            
-            // Calculate totals
-            for (Attendance attendance : monthlyAttendance) {
-                if (attendance.getHoursWorked() != null) {
-                    totalWorkedHours += attendance.getHoursWorked();
-                }
-                
-                if (attendance.getIdleTime() != null) {
-                    totalIdleHours += attendance.getIdleTime();
-                }
-                
-                // Count days by status
-                if (attendance.getStatus() != null) {
-                    if (attendance.getStatus().equals("Present (On Time)") || 
-                        attendance.getStatus().equals("Present (Late Login)")) {
-                        presentDays++;
-                    } else if (attendance.getStatus().equals("Half Day")) {
-                        halfDays++;
-                    } else if (attendance.getStatus().equals("Absent")) {
-                        absentDays++;
-                    }
-                }
-                
-                // Count working days (excluding weekends)
-                if (attendance.getDate().getDayOfWeek() != DayOfWeek.SATURDAY && 
-                    attendance.getDate().getDayOfWeek() != DayOfWeek.SUNDAY) {
-                    workingDays++;
-                }
-            }
-            
-            response.put("totalWorkedHours", Math.round(totalWorkedHours * 100.0) / 100.0);
-            response.put("totalIdleHours", Math.round(totalIdleHours * 100.0) / 100.0);
-            response.put("workingDays", workingDays);
-            response.put("presentDays", presentDays);
-            response.put("halfDays", halfDays);
-            response.put("absentDays", absentDays);
-            response.put("attendanceRecords", monthlyAttendance.size());
+            // Served from the monthly rollup plus any still-open days; an employee without rows has an empty month
+            YearMonth period = YearMonth.of(year, month);
+            AttendanceMonthlySummary summary = attendanceSummaryService
+                    .getSummariesWithOpenDays(employeeId, period, period)
+                    .getOrDefault(period, new AttendanceMonthlySummary(employeeId, year, month));
+            putMonthlySummary(response, summary);
             
         } catch (Exception e) {
             response.put("error", "Failed to calculate monthly hours: " + e.getMessage());
@@ -562,6 +581,61 @@ public class AttendanceService {
         return response;
     }
 
+    private void putMonthlySummary(Map<String, Object> response, AttendanceMonthlySummary summary) {
+        response.put("totalWorkedHours", Math.round(summary.getWorkedHours() * 100.0) / 100.0);
+        response.put("totalIdleHours", Math.round(summary.getIdleHours() * 100.0) / 100.0);
+        response.put("workingDays", summary.getWorkingDays());
+        response.put("presentDays", summary.getPresentDays());
+        response.put("halfDays", summary.getHalfDays());
+        response.put("absentDays", summary.getAbsentDays());
+        response.put("lateDays", summary.getLateDays());
+        response.put("attendanceRecords", summary.getAttendanceRecords());
+    }
+
+    // Attendance rows per status label between the dates, counted in the database
+    @Transactional(readOnly = true)
+    public Map<String, Long> getStatusCounts(LocalDate startDate, LocalDate endDate) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (AttendanceStatus status : AttendanceStatus.values()) {
+            counts.put(status.getLabel(), 0L);
+        }
+        for (Object[] row : attendanceRepository.countByStatusBetween(startDate, endDate)) {
+            if (row[0] != null) {
+                counts.put(((AttendanceStatus) row[0]).getLabel(), (Long) row[1]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Department view for a month: one aggregated row per current member of the department.
+     * Nothing but the projection rows is loaded.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDepartmentMonthlySummary(String department, int year, int month) {
+        LocalDate startDate = LocalDate.of(year, month, 1);
+        LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
+
+        List<DepartmentAttendanceSummaryDTO> employees =
+                attendanceRepository.summarizeDepartment(department, startDate, endDate);
+
+        double totalWorkedHours = 0.0;
+        double totalIdleHours = 0.0;
+        for (DepartmentAttendanceSummaryDTO employee : employees) {
+            totalWorkedHours += employee.getTotalWorkedHours();
+            totalIdleHours += employee.getTotalIdleHours();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("department", department);
+        response.put("year", year);
+        response.put("month", month);
+        response.put("employeeCount", employees.size());
+        response.put("employees", employees);
+        response.put("totalWorkedHours", Math.round(totalWorkedHours * 100.0) / 100.0);
+        response.put("totalIdleHours", Math.round(totalIdleHours * 100.0) / 100.0);
+        return response;
+    }
 
     /**
      * Get daily breakdown of hours for a month
@@ -634,15 +708,25 @@ public class AttendanceService {
             LocalDate.of(endYear, endMonth, 1).lengthOfMonth());
         
         try {
-            LocalDate current = startDate;
-            while (!current.isAfter(endDate)) {
-                Map<String, Object> monthlySummary = getMonthlyHoursSummary(employeeId, current.getYear(), current.getMonthValue());
-                
-                if (!monthlySummary.containsKey("error")) {
-                    monthlySummaries.add(monthlySummary);
-                    grandTotalWorkedHours += (Double) monthlySummary.get("totalWorkedHours");
-                    grandTotalIdleHours += (Double) monthlySummary.get("totalIdleHours");
-                }
+            // One read of the rollup (and open days) for the whole period; months without rows are reported as empty
+            Map<YearMonth, AttendanceMonthlySummary> stored = attendanceSummaryService.getSummariesWithOpenDays(
+                    employeeId, YearMonth.from(startDate), YearMonth.from(endDate));
+
+            YearMonth current = YearMonth.from(startDate);
+            YearMonth last = YearMonth.from(endDate);
+            while (!current.isAfter(last)) {
+                AttendanceMonthlySummary summary = stored.getOrDefault(current,
+                        new AttendanceMonthlySummary(employeeId, current.getYear(), current.getMonthValue()));
+
+                Map<String, Object> monthlySummary = new HashMap<>();
+                monthlySummary.put("employeeId", employeeId);
+                monthlySummary.put("year", current.getYear());
+                monthlySummary.put("month", current.getMonthValue());
+                putMonthlySummary(monthlySummary, summary);
+
+                monthlySummaries.add(monthlySummary);
+                grandTotalWorkedHours += summary.getWorkedHours();
+                grandTotalIdleHours += summary.getIdleHours();
                 
                 current = current.plusMonths(1);
             }
@@ -658,36 +742,213 @@ public class AttendanceService {
         
         return response;
     }
-    private boolean isEmployeeOnLeave(String employeeId, LocalDate date) {
-        // Implement leave checking logic based on your leave module
-        // For now, return false as placeholder
-        System.out.println("DEBUG: Leave check not implemented yet - returning false");
-        return false;
+    // Approved leave comes from the in-memory index, so this never queries
+    private boolean isEmployeeOnLeave(String employeeId, LocalDate date, LocalTime time, DepartmentSettings settings) {
+        return approvedLeaveIndex.isOnLeave(employeeId, date, time, settings);
     }
 
     // Auto Punch-Out if missed (runs daily at 7:00 PM)
     @Scheduled(cron = "0 0 19 * * ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void autoPunchOutEmployees() {
-        LocalDate today = LocalDate.now();
-        List<Attendance> activeAttendances = attendanceRepository.findByDateAndPunchOutTimeIsNull(today);
+        autoPunchOutEmployees(LocalDate.now());
+    }
 
-        for (Attendance attendance : activeAttendances) {
-            DepartmentSettings settings = getDepartmentSettings(attendance.getEmployee().getEmployeeId());
-            LocalDateTime punchOutTime = LocalDateTime.of(today, settings.getPunchOutEnd());
-            
+    /**
+     * Punch out every open attendance row of the date in fixed-size chunks, one transaction per chunk,
+     * so a failing chunk is rolled back alone. A chunk that collides with a live punch-out is retried
+     * and skips the rows closed in the meantime. Returns rows processed, rows failed and elapsed time.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> autoPunchOutEmployees(LocalDate date) {
+        long startedAt = System.currentTimeMillis();
+
+        // Settings are resolved once per (department, emp type) for the whole run
+        Map<String, DepartmentSettings> settingsByDepartment = new HashMap<>();
+        int processed = 0;
+        int failed = 0;
+        int chunks = 0;
+        long afterId = 0L;
+
+        while (true) {
+            List<Long> ids = attendanceRepository.findOpenAttendanceIds(date, afterId,
+                    PageRequest.of(0, AUTO_PUNCH_OUT_CHUNK_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            chunks++;
+
+            try {
+                processed += optimisticRetryExecutor.execute("Auto punch-out chunk ending at " + afterId,
+                        () -> autoPunchOutChunk(date, ids, settingsByDepartment));
+            } catch (RuntimeException e) {
+                failed += ids.size();
+                log.warn("Auto punch-out chunk ending at attendance id {} failed", afterId, e);
+            }
+        }
+
+        long elapsedMillis = System.currentTimeMillis() - startedAt;
+        log.info("Auto punch-out for {}: {} rows in {} chunks, {} failed, {} ms",
+                date, processed, chunks, failed, elapsedMillis);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("date", date);
+        report.put("processed", processed);
+        report.put("failed", failed);
+        report.put("chunks", chunks);
+        report.put("elapsedMillis", elapsedMillis);
+        return report;
+    }
+
+    /**
+     * Punch out one chunk of open attendance rows. Counter statements run before the first row is
+     * changed or after the rows are flushed, never in between: each of them would auto-flush the
+     * session and send the row updates one by one instead of as a single JDBC batch.
+     */
+    private int autoPunchOutChunk(LocalDate date, List<Long> ids, Map<String, DepartmentSettings> settingsByDepartment) {
+        // Rows punched out since the ids were read (e.g. before a retry) are left alone
+        List<Attendance> attendances = new ArrayList<>();
+        for (Attendance attendance : attendanceRepository.findAllWithEmployeeByIdIn(ids)) {
+            if (attendance.getPunchInTime() != null && attendance.getPunchOutTime() == null) {
+                attendances.add(attendance);
+            }
+        }
+        if (attendances.isEmpty()) {
+            return 0;
+        }
+
+        List<String> employeeIds = new ArrayList<>();
+        for (Attendance attendance : attendances) {
+            employeeIds.add(attendance.getEmployee().getEmployeeId());
+        }
+
+        // Current department of every employee in the chunk with one query (latest joining date wins)
+        Map<String, String> departments = new HashMap<>();
+        for (Object[] row : experienceRepository.findCurrentDepartmentsByEmployeeIds(employeeIds)) {
+            departments.put((String) row[0], (String) row[1]);
+        }
+
+        // Evaluate every row without changing it yet; one row per employee, since the chunk is one date
+        List<LocalDateTime> punchOutTimes = new ArrayList<>();
+        List<AttendancePolicyEngine.Result> results = new ArrayList<>();
+        List<String> lateEmployeeIds = new ArrayList<>();
+        List<String> workedDayEmployeeIds = new ArrayList<>();
+        for (Attendance attendance : attendances) {
+            Employee employee = attendance.getEmployee();
+            String empType = employee.getTypeOfEmployee() != null ? employee.getTypeOfEmployee().name() : "FULL_TIME";
+            String department = departments.getOrDefault(employee.getEmployeeId(), "DEFAULT");
+            DepartmentSettings settings = settingsByDepartment.computeIfAbsent(department + "|" + empType,
+                    key -> resolveDepartmentSettings(department, empType));
+
+            LocalDateTime punchOutTime = LocalDateTime.of(date, settings.getPunchOutEnd());
+            double hoursWorked = Duration.between(attendance.getPunchInTime(), punchOutTime).toMinutes() / 60.0;
+            AttendancePolicyEngine.Result result = attendancePolicyEngine.evaluate(attendance.getPunchInTime().toLocalTime(),
+                    hoursWorked, settings, Boolean.TRUE.equals(attendance.getIsOtDay()));
+
+            punchOutTimes.add(punchOutTime);
+            results.add(result);
+            if (result.countsAsLateLogin()) {
+                lateEmployeeIds.add(employee.getEmployeeId());
+            }
+            if (result.countsAsWorkedDay()) {
+                workedDayEmployeeIds.add(employee.getEmployeeId());
+            }
+        }
+
+        // Late-login counters first: the upserted rows stay locked until commit, so the counts read back are ours
+        Map<String, Integer> lateLoginCounts = new HashMap<>();
+        if (!lateEmployeeIds.isEmpty()) {
+            for (String employeeId : lateEmployeeIds) {
+                lateLoginCounterRepository.increment(employeeId, date.getMonthValue(), date.getYear());
+            }
+            for (Object[] row : lateLoginCounterRepository.findLateLoginCounts(lateEmployeeIds,
+                    date.getMonthValue(), date.getYear())) {
+                lateLoginCounts.put((String) row[0], ((Number) row[1]).intValue());
+            }
+        }
+
+        AttendanceSummaryService.Batch summaryChanges = new AttendanceSummaryService.Batch();
+        for (int i = 0; i < attendances.size(); i++) {
+            Attendance attendance = attendances.get(i);
+            String employeeId = attendance.getEmployee().getEmployeeId();
+            LocalDateTime punchOutTime = punchOutTimes.get(i);
+            AttendancePolicyEngine.Result result = results.get(i);
+            if (result.countsAsLateLogin()) {
+                result = result.withLateLoginCount(lateLoginCounts.get(employeeId));
+            }
+
+            AttendanceSummaryService.Contribution before = attendanceSummaryService.contributionOf(attendance);
             attendance.setPunchOutTime(punchOutTime);
-            
-            // Calculate hours worked
-            Duration duration = Duration.between(attendance.getPunchInTime(), punchOutTime);
-            double hoursWorked = duration.toMinutes() / 60.0;
-            attendance.setHoursWorked(hoursWorked);
-            
-            calculateAttendanceStatus(attendance);
-            attendanceRepository.save(attendance);
+            attendance.setHoursWorked(result.getHoursWorked());
+            applyStatus(attendance, result);
+            summaryChanges.add(before, attendanceSummaryService.contributionOf(attendance));
+
+            dayPlanRegistry.punchedOutAfterCommit(employeeId, date);
+            presenceRegistry.afterCommit(() -> {
+                presenceRegistry.punchedOut(employeeId, punchOutTime);
+                hrmsMetrics.punch("auto_out");
+            });
+            eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
+        }
+
+        // The row updates go out together here; the statements after it find nothing left to flush
+        attendanceRepository.saveAllAndFlush(attendances);
+        if (!workedDayEmployeeIds.isEmpty()) {
+            employeeRepository.incrementWorkedDaysOfAll(workedDayEmployeeIds);
         }
+        attendanceSummaryService.recordChanges(summaryChanges);
+        return attendances.size();
     }
 
     // Additional methods for attendance history
+    /**
+     * One page of an employee's attendance history, newest first. The cursor is the
+     * "date:id" of the last row of the previous page (null for the first page); the
+     * response carries nextCursor, or null when there is nothing more to load.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAttendanceHistoryPage(String employeeId, LocalDate startDate, LocalDate endDate,
+                                                        String cursor, int limit) {
+        LocalDate from = startDate != null ? startDate : HISTORY_EARLIEST_DATE;
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        if (from.isAfter(to)) {
+            throw new AttendanceException("Start date cannot be after end date");
+        }
+        int pageSize = Math.max(1, Math.min(limit, HISTORY_MAX_PAGE_SIZE));
+
+        LocalDate beforeDate = to.plusDays(1);
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                int separator = cursor.lastIndexOf(':');
+                beforeDate = LocalDate.parse(cursor.substring(0, separator));
+                beforeId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new AttendanceException("Invalid cursor: " + cursor);
+            }
+        }
+
+        // One extra row tells whether another page exists
+        List<AttendanceResponseDTO> rows = attendanceRepository.findHistoryPage(
+                employeeId, from, to, beforeDate, beforeId, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<AttendanceResponseDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            AttendanceResponseDTO last = items.get(items.size() - 1);
+            nextCursor = last.getDate() + ":" + last.getId();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("employeeId", employeeId);
+        response.put("items", items);
+        response.put("nextCursor", nextCursor);
+        response.put("hasMore", hasMore);
+        return response;
+    }
+
     public List<Attendance> getAttendanceHistory(String employeeId, LocalDate startDate, LocalDate endDate) {
         if (!employeeRepository.existsById(employeeId)) {
             throw new ResourceNotFoundException("Employee not found with id: " + employeeId);
@@ -713,29 +974,32 @@ public class AttendanceService {
     public Map<String, Object> getPunchStatus(String employeeId, LocalDate date) {
         Map<String, Object> response = new HashMap<>();
         
-        boolean isPunchInEnabled = isPunchInEnabledForDate(employeeId, date);
+        // One query for employee, attendance and OT allocation on this date
+        Optional<PunchContext> contextOpt = loadPunchContext(employeeId, date);
+        DepartmentSettings settings = contextOpt.map(this::getDepartmentSettings)
+                .orElseGet(this::getDefaultDepartmentSettings);
+
+        boolean isPunchInEnabled = contextOpt.isPresent()
+                && isPunchInEnabled(contextOpt.get(), settings, LocalTime.now());
         response.put("punchInEnabled", isPunchInEnabled);
         
-        // Get attendance for the specific date
-        Optional<Attendance> dateAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, date);
-        
-        if (dateAttendance.isPresent()) {
-            Attendance attendance = dateAttendance.get();
+        if (contextOpt.isPresent() && contextOpt.get().hasAttendance()) {
+            PunchContext context = contextOpt.get();
             String currentStatus = "Inactive";
             
-            if (attendance.getPunchInTime() != null && attendance.getPunchOutTime() == null) {
+            if (context.isPunchedIn() && !context.isPunchedOut()) {
                 currentStatus = "Active"; // Currently punched in
-            } else if (attendance.getPunchInTime() != null && attendance.getPunchOutTime() != null) {
+            } else if (context.isPunchedIn() && context.isPunchedOut()) {
                 currentStatus = "Completed"; // Already punched out
             }
             
             response.put("currentStatus", currentStatus);
-            response.put("punchInTime", attendance.getPunchInTime());
-            response.put("punchOutTime", attendance.getPunchOutTime());
-            response.put("attendanceStatus", attendance.getStatus());
-            response.put("hoursWorked", attendance.getHoursWorked());
-            response.put("isLateLogin", attendance.getIsLateLogin());
-            response.put("isOtDay", attendance.getIsOtDay());
+            response.put("punchInTime", context.getPunchInTime());
+            response.put("punchOutTime", context.getPunchOutTime());
+            response.put("attendanceStatus", context.getAttendanceStatus());
+            response.put("hoursWorked", context.getHoursWorked());
+            response.put("isLateLogin", context.getIsLateLogin());
+            response.put("isOtDay", context.getIsOtDay());
         } else {
             response.put("currentStatus", "Inactive");
             response.put("attendanceStatus", "Absent");
@@ -743,11 +1007,10 @@ public class AttendanceService {
         
         // Add date information
         response.put("date", date);
-        response.put("isHoliday", holidayRepository.findByDate(date).isPresent());
+        response.put("isHoliday", holidayCalendar.isHoliday(date));
         response.put("dayOfWeek", date.getDayOfWeek().name());
         
         // Add department settings info
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
         response.put("punchInStart", settings.getPunchInStart());
         response.put("punchOutEnd", settings.getPunchOutEnd());
         response.put("lateLoginThreshold", settings.getLateLoginThreshold());
@@ -761,48 +1024,15 @@ public class AttendanceService {
     }
  // Punch-In Eligibility for any specific date
     public boolean isPunchInEnabledForDate(String employeeId, LocalDate date) {
-        LocalTime now = LocalTime.now();
-        
-        // Check if employee exists
-        Optional<Employee> employeeOpt = employeeRepository.findById(employeeId);
-        if (employeeOpt.isEmpty()) {
-            return false;
+        // Today's plan answers without a query
+        DayPlanRegistry.DayPlan plan = dayPlanRegistry.get(employeeId, date);
+        if (plan != null) {
+            return plan.isPunchInEnabled(LocalTime.now());
         }
-        
-        // Get department settings
-        DepartmentSettings settings = getDepartmentSettings(employeeId);
-        
-        // Check if the date is a holiday
-        Optional<Holiday> holiday = holidayRepository.findByDate(date);
-        boolean isHoliday = holiday.isPresent();
-        
-        // Check if OT is allocated for this employee on holiday
-        boolean isOtAllocated = false;
-        if (isHoliday) {
-            isOtAllocated = overtimeRepository.existsByEmployeeEmployeeIdAndDate(employeeId, date);
+        Optional<PunchContext> contextOpt = loadPunchContext(employeeId, date);
+        if (contextOpt.isEmpty()) {
+            return false;
         }
-        
-        // Check if employee is on leave on this date
-        boolean isOnLeave = isEmployeeOnLeave(employeeId, date);
-        
-        // Check if it's a working day (Monday to Friday)
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        boolean isWorkingDay = dayOfWeek != DayOfWeek.SUNDAY;
-        
-        // Check time condition (after punch_in_start time)
-        boolean isAfterPunchInStart = !now.isBefore(settings.getPunchInStart());
-        boolean isBeforePunchOutEnd = now.isBefore(settings.getPunchOutEnd());
-        
-        // Check if already punched in on this date
-        Optional<Attendance> dateAttendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, date);
-        boolean isAlreadyPunchedIn = dateAttendance.isPresent() && dateAttendance.get().getPunchInTime() != null;
-        boolean isAlreadyPunchedOut = dateAttendance.isPresent() && dateAttendance.get().getPunchOutTime() != null;
-        
-        // Punch In enabled conditions
-        boolean enabled = !isAlreadyPunchedIn && !isAlreadyPunchedOut &&
-               ((isWorkingDay && !isHoliday) || (isHoliday && isOtAllocated)) &&
-               isAfterPunchInStart && !isOnLeave;
-        
-        return enabled;
+        return isPunchInEnabled(contextOpt.get(), getDepartmentSettings(contextOpt.get()), LocalTime.now());
     }
-}
\ No newline at end of file
+}
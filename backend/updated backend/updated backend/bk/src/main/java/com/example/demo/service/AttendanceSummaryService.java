@@ -0,0 +1,279 @@
+package com.example.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceMonthlySummary;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.repository.AttendanceMonthlySummaryRepository;
+import com.example.demo.repository.AttendanceRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps attendance_monthly_summary in step with the attendance table. Writers take a
+ * Contribution of the row before changing it and pass it to recordChange afterwards;
+ * only the difference is added to the month, with a single upsert statement. Bulk writers
+ * collect their changes in a Batch and apply it with recordChanges: one upsert per
+ * (employee, month) instead of one per row.
+ *
+ * The table only holds punched-out rows. Reports that want the month as it stands, open
+ * days included, read it through getSummariesWithOpenDays.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttendanceSummaryService {
+
+    private final AttendanceMonthlySummaryRepository summaryRepository;
+    private final AttendanceRepository attendanceRepository;
+
+    // What the row currently adds to its month (nothing until it is punched out)
+    public Contribution contributionOf(Attendance attendance) {
+        if (attendance == null || attendance.getPunchOutTime() == null) {
+            return Contribution.NONE;
+        }
+        return shareOf(attendance);
+    }
+
+    // The row's share of its month whether or not it is punched out
+    private static Contribution shareOf(Attendance attendance) {
+        if (attendance.getDate() == null) {
+            return Contribution.NONE;
+        }
+        AttendanceStatus status = attendance.getAttendanceStatus();
+        DayOfWeek day = attendance.getDate().getDayOfWeek();
+        return new Contribution(
+                attendance.getEmployee().getEmployeeId(),
+                attendance.getDate(),
+                attendance.getHoursWorked() != null ? attendance.getHoursWorked() : 0.0,
+                attendance.getIdleTime() != null ? attendance.getIdleTime() : 0.0,
+                status != null && status.isPresent() ? 1 : 0,
+                status == AttendanceStatus.HALF_DAY ? 1 : 0,
+                status == AttendanceStatus.ABSENT ? 1 : 0,
+                Boolean.TRUE.equals(attendance.getIsLateLogin()) ? 1 : 0,
+                day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY ? 1 : 0,
+                1);
+    }
+
+    // Apply the difference between the row's previous contribution and its current state
+    @Transactional
+    public void recordChange(Contribution before, Attendance after) {
+        Contribution current = contributionOf(after);
+        if (before.sameMonth(current)) {
+            add(current.minus(before));
+        } else {
+            add(before.negate());
+            add(current);
+        }
+    }
+
+    // Apply the summed deltas of a Batch, one upsert per (employee, month)
+    @Transactional
+    public void recordChanges(Batch batch) {
+        batch.deltas.values().forEach(this::add);
+    }
+
+    public Optional<AttendanceMonthlySummary> getMonthlySummary(String employeeId, int year, int month) {
+        return summaryRepository.findByEmployeeIdAndYearAndMonth(employeeId, year, month);
+    }
+
+    // All stored months of the employee between the two months (inclusive), in order
+    public List<AttendanceMonthlySummary> getSummaries(String employeeId, YearMonth from, YearMonth to) {
+        return summaryRepository.findForPeriod(employeeId, monthIndex(from), monthIndex(to));
+    }
+
+    /**
+     * The employee's months between from and to (inclusive) as they stand: the stored rollup
+     * plus the rows still open (punched in, not yet out), which the table only picks up at
+     * punch-out. Returns detached copies; months with neither are left out.
+     */
+    @Transactional(readOnly = true)
+    public Map<YearMonth, AttendanceMonthlySummary> getSummariesWithOpenDays(String employeeId, YearMonth from, YearMonth to) {
+        Map<YearMonth, AttendanceMonthlySummary> months = new LinkedHashMap<>();
+        for (AttendanceMonthlySummary stored : getSummaries(employeeId, from, to)) {
+            AttendanceMonthlySummary copy = monthOf(months, employeeId, YearMonth.of(stored.getYear(), stored.getMonth()));
+            copy.setWorkedHours(stored.getWorkedHours());
+            copy.setIdleHours(stored.getIdleHours());
+            copy.setPresentDays(stored.getPresentDays());
+            copy.setHalfDays(stored.getHalfDays());
+            copy.setAbsentDays(stored.getAbsentDays());
+            copy.setLateDays(stored.getLateDays());
+            copy.setWorkingDays(stored.getWorkingDays());
+            copy.setAttendanceRecords(stored.getAttendanceRecords());
+            copy.setUpdatedAt(stored.getUpdatedAt());
+        }
+        for (Attendance open : attendanceRepository.findByEmployeeEmployeeIdAndDateBetweenAndPunchOutTimeIsNull(
+                employeeId, from.atDay(1), to.atEndOfMonth())) {
+            Contribution share = shareOf(open);
+            if (!share.isEmpty()) {
+                share.addTo(monthOf(months, employeeId, YearMonth.from(share.date)));
+            }
+        }
+        return months;
+    }
+
+    private static AttendanceMonthlySummary monthOf(Map<YearMonth, AttendanceMonthlySummary> months,
+                                                    String employeeId, YearMonth month) {
+        return months.computeIfAbsent(month,
+                key -> new AttendanceMonthlySummary(employeeId, key.getYear(), key.getMonthValue()));
+    }
+
+    /**
+     * Backfill: drop and recompute the rollup of every employee for the months between
+     * from and to (inclusive) straight from the attendance table.
+     */
+    @Transactional
+    public Map<String, Object> rebuild(YearMonth from, YearMonth to) {
+        long startedAt = System.currentTimeMillis();
+        int deleted = summaryRepository.deleteForPeriod(monthIndex(from), monthIndex(to));
+        int inserted = summaryRepository.rebuildForPeriod(from.atDay(1), to.atEndOfMonth(), LocalDateTime.now());
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("from", from.toString());
+        report.put("to", to.toString());
+        report.put("deletedRows", deleted);
+        report.put("insertedRows", inserted);
+        report.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+        return report;
+    }
+
+    // Databases that had attendance before the rollup existed start with an empty table:
+    // fill it once from every completed row. After that the writers keep it current.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (summaryRepository.count() > 0) {
+            return;
+        }
+        List<Object[]> range = attendanceRepository.findCompletedDateRange();
+        if (range.isEmpty() || range.get(0)[0] == null) {
+            return;
+        }
+        YearMonth from = YearMonth.from((LocalDate) range.get(0)[0]);
+        YearMonth to = YearMonth.from((LocalDate) range.get(0)[1]);
+        log.info("Backfilled the monthly attendance summary from {} to {}: {}", from, to, rebuild(from, to));
+    }
+
+    private void add(Contribution delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        summaryRepository.addToMonth(delta.employeeId, delta.date.getYear(), delta.date.getMonthValue(),
+                delta.workedHours, delta.idleHours, delta.presentDays, delta.halfDays, delta.absentDays,
+                delta.lateDays, delta.workingDays, delta.records, LocalDateTime.now());
+    }
+
+    private static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue();
+    }
+
+    /** Immutable snapshot of one attendance row's share of its monthly summary. */
+    public static final class Contribution {
+        public static final Contribution NONE = new Contribution(null, null, 0.0, 0.0, 0, 0, 0, 0, 0, 0);
+
+        private final String employeeId;
+        private final LocalDate date;
+        private final double workedHours;
+        private final double idleHours;
+        private final int presentDays;
+        private final int halfDays;
+        private final int absentDays;
+        private final int lateDays;
+        private final int workingDays;
+        private final int records;
+
+        private Contribution(String employeeId, LocalDate date, double workedHours, double idleHours,
+                             int presentDays, int halfDays, int absentDays, int lateDays, int workingDays, int records) {
+            this.employeeId = employeeId;
+            this.date = date;
+            this.workedHours = workedHours;
+            this.idleHours = idleHours;
+            this.presentDays = presentDays;
+            this.halfDays = halfDays;
+            this.absentDays = absentDays;
+            this.lateDays = lateDays;
+            this.workingDays = workingDays;
+            this.records = records;
+        }
+
+        private boolean sameMonth(Contribution other) {
+            if (employeeId == null || other.employeeId == null) {
+                return true;
+            }
+            return employeeId.equals(other.employeeId)
+                    && YearMonth.from(date).equals(YearMonth.from(other.date));
+        }
+
+        private Contribution minus(Contribution other) {
+            return new Contribution(employeeId != null ? employeeId : other.employeeId,
+                    date != null ? date : other.date,
+                    workedHours - other.workedHours, idleHours - other.idleHours,
+                    presentDays - other.presentDays, halfDays - other.halfDays, absentDays - other.absentDays,
+                    lateDays - other.lateDays, workingDays - other.workingDays, records - other.records);
+        }
+
+        private Contribution negate() {
+            return NONE.minus(this);
+        }
+
+        private Contribution plus(Contribution other) {
+            return minus(other.negate());
+        }
+
+        private void addTo(AttendanceMonthlySummary summary) {
+            summary.setWorkedHours(summary.getWorkedHours() + workedHours);
+            summary.setIdleHours(summary.getIdleHours() + idleHours);
+            summary.setPresentDays(summary.getPresentDays() + presentDays);
+            summary.setHalfDays(summary.getHalfDays() + halfDays);
+            summary.setAbsentDays(summary.getAbsentDays() + absentDays);
+            summary.setLateDays(summary.getLateDays() + lateDays);
+            summary.setWorkingDays(summary.getWorkingDays() + workingDays);
+            summary.setAttendanceRecords(summary.getAttendanceRecords() + records);
+        }
+
+        private String monthKey() {
+            return employeeId + "|" + YearMonth.from(date);
+        }
+
+        private boolean isEmpty() {
+            return employeeId == null || (workedHours == 0.0 && idleHours == 0.0 && presentDays == 0
+                    && halfDays == 0 && absentDays == 0 && lateDays == 0 && workingDays == 0 && records == 0);
+        }
+    }
+
+    /** Row changes of a bulk update, summed per (employee, month) until recordChanges applies them. */
+    public static final class Batch {
+        private final Map<String, Contribution> deltas = new LinkedHashMap<>();
+
+        // Same split as recordChange: a row that moved month leaves its old month and joins the new one
+        public void add(Contribution before, Contribution after) {
+            if (before.sameMonth(after)) {
+                merge(after.minus(before));
+            } else {
+                merge(before.negate());
+                merge(after);
+            }
+        }
+
+        private void merge(Contribution delta) {
+            if (!delta.isEmpty()) {
+                deltas.merge(delta.monthKey(), delta, Contribution::plus);
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.demo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dto.PunchContext;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk import of biometric terminal logs: a CSV of employeeId,timestamp,direction
+ * (IN/OUT), read line by line. Each employee-day keeps only its first IN and last OUT,
+ * the status policy is applied in memory, and attendance rows are written with JDBC
+ * batches (UPDATE where the day already has a row, an upserting INSERT otherwise).
+ *
+ * Only past days are imported: today's punches are still being recorded live, and a day
+ * that was already punched out live is reported and kept as it is. Every day the import
+ * closes updates the counters a live punch-out would, with the same atomic statements:
+ * worked days (summed per employee), the month's late-login counter (in date order, so
+ * the every-3rd-late-login rule continues from the live count) and the OT day counters.
+ * The monthly summaries of the imported months are rebuilt at the end.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BiometricImportService {
+
+    private static final int BATCH_SIZE = 500;
+
+    // Errors beyond this are counted but not listed, so a broken file cannot blow up the response
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final DateTimeFormatter SPACED_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]");
+
+    private static final String INSERT_SQL = "INSERT INTO attendance (employee_id, employee_name, date, " +
+            "punch_in_time, punch_out_time, hours_worked, status_code, idle_time, is_late_login, is_ot_day, " +
+            "comp_off_used, manual_approval) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, false) " +
+            // A row a live punch created since the day was read is updated in place, as the key requires
+            "ON DUPLICATE KEY UPDATE punch_in_time = VALUES(punch_in_time), punch_out_time = VALUES(punch_out_time), " +
+            "hours_worked = VALUES(hours_worked), status_code = VALUES(status_code), idle_time = VALUES(idle_time), " +
+            "is_late_login = VALUES(is_late_login), is_ot_day = VALUES(is_ot_day), version = version + 1";
+
+    private static final String UPDATE_SQL = "UPDATE attendance SET punch_in_time = ?, punch_out_time = ?, " +
+            "hours_worked = ?, status_code = ?, idle_time = ?, is_late_login = ?, is_ot_day = ?, version = version + 1 " +
+            "WHERE id = ?";
+
+    private final AttendanceRepository attendanceRepository;
+    private final EmployeeRepository employeeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final HolidayCalendar holidayCalendar;
+    private final DepartmentSettingsCache departmentSettingsCache;
+    private final AttendancePolicyEngine attendancePolicyEngine;
+    private final AttendanceSummaryService attendanceSummaryService;
+    private final LateLoginCounterRepository lateLoginCounterRepository;
+    private final OvertimeService overtimeService;
+
+    @Transactional
+    public Map<String, Object> importCsv(Reader source) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        Report report = new Report();
+
+        TreeMap<LocalDate, Map<String, PunchDay>> days = read(source, report);
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        Map<String, Integer> workedDays = new HashMap<>();
+        for (Map.Entry<LocalDate, Map<String, PunchDay>> entry : days.entrySet()) {
+            LocalDate date = entry.getKey();
+            Map<String, PunchContext> contexts = contextsOn(date);
+            boolean holiday = holidayCalendar.isHoliday(date);
+
+            for (Map.Entry<String, PunchDay> day : entry.getValue().entrySet()) {
+                PunchContext context = contexts.get(day.getKey());
+                Object[] row = toRow(context, day.getValue(), holiday, workedDays, report);
+                if (row == null) {
+                    continue;
+                }
+                if (context.hasAttendance()) {
+                    updates.add(row);
+                } else {
+                    inserts.add(row);
+                }
+                report.daysImported++;
+            }
+            flush(inserts, updates, report, false);
+        }
+        flush(inserts, updates, report, true);
+        workedDays.forEach(employeeRepository::addWorkedDays);
+
+        if (!days.isEmpty()) {
+            attendanceSummaryService.rebuild(YearMonth.from(days.firstKey()), YearMonth.from(days.lastKey()));
+        }
+
+        Map<String, Object> result = report.toMap();
+        result.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+        log.info("Biometric import: {} rows read, {} days imported ({} inserted, {} updated), {} errors in {} ms",
+                report.rowsRead, report.daysImported, report.rowsInserted, report.rowsUpdated,
+                report.errorCount, result.get("elapsedMillis"));
+        return result;
+    }
+
+    // Parse the file into employee-days, reporting rows that cannot be used
+    private TreeMap<LocalDate, Map<String, PunchDay>> read(Reader source, Report report) throws IOException {
+        Set<String> employeeIds = new HashSet<>(employeeRepository.findAllIdsIncludingInactive());
+        LocalDate today = LocalDate.now();
+        TreeMap<LocalDate, Map<String, PunchDay>> days = new TreeMap<>();
+
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        int rowNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (rowNumber == 1 && unquote(fields[0]).equalsIgnoreCase("employeeId")) {
+                continue; // header
+            }
+            report.rowsRead++;
+            if (fields.length < 3) {
+                report.error(rowNumber, null, "Expected employeeId,timestamp,direction");
+                continue;
+            }
+
+            String employeeId = unquote(fields[0]);
+            if (!employeeIds.contains(employeeId)) {
+                report.error(rowNumber, employeeId, "Employee not found");
+                continue;
+            }
+            LocalDateTime timestamp = parseTimestamp(unquote(fields[1]));
+            if (timestamp == null) {
+                report.error(rowNumber, employeeId, "Invalid timestamp: " + unquote(fields[1]));
+                continue;
+            }
+            if (!timestamp.toLocalDate().isBefore(today)) {
+                report.error(rowNumber, employeeId, "Only past days can be imported; today's punches are recorded live");
+                continue;
+            }
+            Boolean in = parseDirection(unquote(fields[2]));
+            if (in == null) {
+                report.error(rowNumber, employeeId, "Direction must be IN or OUT: " + unquote(fields[2]));
+                continue;
+            }
+
+            PunchDay day = days.computeIfAbsent(timestamp.toLocalDate(), d -> new HashMap<>())
+                    .computeIfAbsent(employeeId, id -> new PunchDay());
+            if (in) {
+                day.in(timestamp, rowNumber);
+            } else {
+                day.out(timestamp, rowNumber);
+            }
+        }
+        return days;
+    }
+
+    // One context per employee for the date; with several OT rows, an approved one wins
+    private Map<String, PunchContext> contextsOn(LocalDate date) {
+        Map<String, PunchContext> contexts = new HashMap<>();
+        for (PunchContext context : attendanceRepository.findPunchContexts(date)) {
+            contexts.merge(context.getEmployeeId(), context,
+                    (existing, other) -> existing.isOtApproved() || !other.isOtAllocated() ? existing : other);
+        }
+        return contexts;
+    }
+
+    // Bind values for the day's INSERT or UPDATE, or null (with errors reported) when the day cannot be imported
+    private Object[] toRow(PunchContext context, PunchDay day, boolean holiday,
+                           Map<String, Integer> workedDays, Report report) {
+        if (context == null) {
+            report.error(day.firstRow(), null, "Employee not found");
+            return null;
+        }
+        String employeeId = context.getEmployeeId();
+        if (context.isPunchedOut()) {
+            // Its counters were updated by the live punch-out; overwriting it would leave them wrong
+            report.error(day.firstRow(), employeeId, "Already punched out on " + context.getDate() + "; kept as recorded");
+            return null;
+        }
+        if (day.firstIn == null) {
+            report.error(day.lastOutRow, employeeId, "OUT without an IN on " + day.lastOut.toLocalDate());
+            return null;
+        }
+        LocalDateTime punchOut = day.lastOut;
+        if (punchOut != null && !punchOut.isAfter(day.firstIn)) {
+            report.error(day.lastOutRow, employeeId, "OUT is not after the first IN; imported as punched in only");
+            punchOut = null;
+        }
+
+        String empType = context.getEmployeeType() != null ? context.getEmployeeType().name() : "FULL_TIME";
+        String department = context.getDepartment() != null ? context.getDepartment() : "DEFAULT";
+        DepartmentSettings settings = departmentSettingsCache.resolve(department, empType)
+                .orElseGet(attendancePolicyEngine::defaultSettings);
+        boolean otDay = context.isOtApproved() || (holiday && context.isOtAllocated());
+
+        AttendanceStatus status;
+        Double hoursWorked;
+        double idleTime;
+        boolean lateLogin;
+        if (punchOut == null) {
+            // Still open: the same state a live punch-in leaves behind
+            status = AttendanceStatus.ABSENT;
+            hoursWorked = null;
+            idleTime = settings.getFullDayThreshold();
+            lateLogin = day.firstIn.toLocalTime().isAfter(settings.getLateLoginThreshold());
+        } else {
+            // The import closes the day: the same counters as a live punch-out
+            AttendancePolicyEngine.Result result = attendancePolicyEngine.evaluate(day.firstIn, punchOut, settings, otDay);
+            if (result.countsAsWorkedDay()) {
+                workedDays.merge(employeeId, 1, Integer::sum);
+            }
+            if (result.countsAsLateLogin()) {
+                LocalDate date = context.getDate();
+                result = result.withLateLoginCount(
+                        lateLoginCounterRepository.incrementAndGet(employeeId, date.getMonthValue(), date.getYear()));
+            }
+            if (context.isOtApproved()) {
+                overtimeService.updateOTStatsAfterPunchOut(employeeId, context.getDate(), result.getHoursWorked());
+            }
+            status = result.getStatus();
+            hoursWorked = result.getHoursWorked();
+            idleTime = result.getIdleTime();
+            lateLogin = result.isLateLogin();
+        }
+
+        if (context.hasAttendance()) {
+            return new Object[] { day.firstIn, punchOut, hoursWorked, status.getCode(), idleTime, lateLogin, otDay,
+                    context.getAttendanceId() };
+        }
+        return new Object[] { employeeId, context.getEmployeeName(), context.getDate(), day.firstIn, punchOut,
+                hoursWorked, status.getCode(), idleTime, lateLogin, otDay };
+    }
+
+    private void flush(List<Object[]> inserts, List<Object[]> updates, Report report, boolean force) {
+        if (inserts.size() >= BATCH_SIZE || (force && !inserts.isEmpty())) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            report.rowsInserted += inserts.size();
+            inserts.clear();
+        }
+        if (updates.size() >= BATCH_SIZE || (force && !updates.isEmpty())) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            report.rowsUpdated += updates.size();
+            updates.clear();
+        }
+    }
+
+    private static String unquote(String field) {
+        String value = field.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+
+    // ISO (2024-05-01T09:30:00) or the spaced form most terminals write (2024-05-01 09:30[:00])
+    private static LocalDateTime parseTimestamp(String value) {
+        try {
+            return value.indexOf('T') > 0 ? LocalDateTime.parse(value) : LocalDateTime.parse(value, SPACED_TIMESTAMP);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // TRUE for IN, FALSE for OUT, null when unrecognised
+    private static Boolean parseDirection(String value) {
+        switch (value.toUpperCase(Locale.ROOT)) {
+            case "IN":
+            case "I":
+                return Boolean.TRUE;
+            case "OUT":
+            case "O":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    /** First IN and last OUT of one employee-day, with the CSV rows they came from. */
+    private static final class PunchDay {
+        private LocalDateTime firstIn;
+        private int firstInRow;
+        private LocalDateTime lastOut;
+        private int lastOutRow;
+
+        private void in(LocalDateTime timestamp, int row) {
+            if (firstIn == null || timestamp.isBefore(firstIn)) {
+                firstIn = timestamp;
+                firstInRow = row;
+            }
+        }
+
+        private void out(LocalDateTime timestamp, int row) {
+            if (lastOut == null || timestamp.isAfter(lastOut)) {
+                lastOut = timestamp;
+                lastOutRow = row;
+            }
+        }
+
+        private int firstRow() {
+            return firstIn != null ? firstInRow : lastOutRow;
+        }
+    }
+
+    private static final class Report {
+        private int rowsRead;
+        private int daysImported;
+        private int rowsInserted;
+        private int rowsUpdated;
+        private int errorCount;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+
+        private void error(int row, String employeeId, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("row", row);
+                error.put("employeeId", employeeId);
+                error.put("error", message);
+                errors.add(error);
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("rowsRead", rowsRead);
+            map.put("daysImported", daysImported);
+            map.put("rowsInserted", rowsInserted);
+            map.put("rowsUpdated", rowsUpdated);
+            map.put("errorCount", errorCount);
+            map.put("errors", errors);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.dto.PunchContext;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.repository.AttendanceRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Today's punch plan for every employee: whether the day is open for punching
+ * (working day, holiday, OT allocation, approved leave), the resolved punch window
+ * and whether the employee already punched in or out. Built in one query just after
+ * midnight (or on first use), so punch eligibility is a map lookup plus a clock compare.
+ *
+ * Entries are rebuilt when something that shapes them changes for today: an employee's
+ * plan after an OT or leave change, all plans after a holiday or settings change.
+ * Rebuilds and punch updates run after commit, so readers never see uncommitted state.
+ * Each full invalidation bumps a generation; a build that an invalidation overtook is
+ * discarded and redone, so it cannot publish plans read before the change.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DayPlanRegistry {
+
+    private final AttendanceRepository attendanceRepository;
+    private final HolidayCalendar holidayCalendar;
+    private final DepartmentSettingsCache departmentSettingsCache;
+    private final AttendancePolicyEngine attendancePolicyEngine;
+    private final ApprovedLeaveIndex approvedLeaveIndex;
+
+    private volatile Plans plans;
+    private final AtomicLong generation = new AtomicLong();
+
+    // Today's plan for the employee; null for other dates or unknown employees
+    public DayPlan get(String employeeId, LocalDate date) {
+        if (!date.equals(LocalDate.now())) {
+            return null;
+        }
+        Plans current = plans();
+        return current.date.equals(date) ? current.byEmployee.get(employeeId) : null;
+    }
+
+    @Scheduled(cron = "0 1 0 * * ?")
+    public synchronized void rebuild() {
+        publish(LocalDate.now());
+    }
+
+    // Drop every plan once the surrounding transaction commits; the next lookup rebuilds them
+    public void invalidateAllAfterCommit() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            plans = null;
+        });
+    }
+
+    // Rebuild one employee's plan after commit if the changed range covers today
+    public void invalidateAfterCommit(String employeeId, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        if (employeeId == null || from == null || today.isBefore(from) || (to != null && today.isAfter(to))) {
+            return;
+        }
+        afterCommit(() -> refresh(employeeId));
+    }
+
+    public void punchedInAfterCommit(String employeeId, LocalDate date) {
+        afterCommit(() -> update(employeeId, date, DayPlan::punchedIn));
+    }
+
+    public void punchedOutAfterCommit(String employeeId, LocalDate date) {
+        afterCommit(() -> update(employeeId, date, DayPlan::punchedOut));
+    }
+
+    private void refresh(String employeeId) {
+        Plans current = plans;
+        if (current == null) {
+            return; // the next lookup rebuilds everything anyway
+        }
+        List<PunchContext> contexts = attendanceRepository.findPunchContext(employeeId, current.date);
+        if (contexts.isEmpty()) {
+            current.byEmployee.remove(employeeId);
+        } else {
+            current.byEmployee.put(employeeId, planOf(contexts, current.date));
+        }
+    }
+
+    private void update(String employeeId, LocalDate date, UnaryOperator<DayPlan> change) {
+        Plans current = plans;
+        if (current != null && current.date.equals(date)) {
+            current.byEmployee.computeIfPresent(employeeId, (id, plan) -> change.apply(plan));
+        }
+    }
+
+    private Plans plans() {
+        Plans current = plans;
+        if (current == null || !current.date.equals(LocalDate.now())) {
+            synchronized (this) {
+                current = plans;
+                if (current == null || !current.date.equals(LocalDate.now())) {
+                    current = publish(LocalDate.now());
+                }
+            }
+        }
+        return current;
+    }
+
+    // Build and publish under the lock. The generation is checked after publishing: an invalidation
+    // that bumped it during the build may have cleared the field before our write, so the plans are
+    // withdrawn and built again; one that bumps it later clears them itself.
+    private Plans publish(LocalDate date) {
+        while (true) {
+            long startedGeneration = generation.get();
+            Plans built = build(date);
+            plans = built;
+            if (generation.get() == startedGeneration) {
+                return built;
+            }
+            plans = null;
+            log.debug("Day plan for {} was invalidated while it was built; building it again", date);
+        }
+    }
+
+    private Plans build(LocalDate date) {
+        long startedAt = System.currentTimeMillis();
+        Map<String, DayPlan> byEmployee = new ConcurrentHashMap<>();
+
+        // One row per employee (more when an employee has several OT rows for the date)
+        for (PunchContext context : attendanceRepository.findPunchContexts(date)) {
+            DayPlan existing = byEmployee.get(context.getEmployeeId());
+            if (existing == null || (!existing.otAllocated && context.isOtAllocated())) {
+                byEmployee.put(context.getEmployeeId(), planOf(List.of(context), date));
+            }
+        }
+        log.info("Day plan for {} built for {} employees in {} ms",
+                date, byEmployee.size(), System.currentTimeMillis() - startedAt);
+        return new Plans(date, byEmployee);
+    }
+
+    private DayPlan planOf(List<PunchContext> contexts, LocalDate date) {
+        PunchContext context = contexts.get(0);
+        boolean otAllocated = false;
+        for (PunchContext row : contexts) {
+            otAllocated |= row.isOtAllocated();
+        }
+        String empType = context.getEmployeeType() != null ? context.getEmployeeType().name() : "FULL_TIME";
+        String department = context.getDepartment() != null ? context.getDepartment() : "DEFAULT";
+        DepartmentSettings settings = departmentSettingsCache.resolve(department, empType)
+                .orElseGet(attendancePolicyEngine::defaultSettings);
+
+        return new DayPlan(date,
+                date.getDayOfWeek() != DayOfWeek.SUNDAY,
+                holidayCalendar.isHoliday(date),
+                otAllocated,
+                approvedLeaveIndex.coverage(context.getEmployeeId(), date),
+                settings.getPunchInStart(),
+                settings.getPunchOutEnd(),
+                settings.getMorningHalfLogout(),
+                settings.getAfternoonHalfLogin(),
+                context.isPunchedIn(),
+                context.isPunchedOut());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Plans {
+        private final LocalDate date;
+        private final Map<String, DayPlan> byEmployee;
+
+        private Plans(LocalDate date, Map<String, DayPlan> byEmployee) {
+            this.date = date;
+            this.byEmployee = byEmployee;
+        }
+    }
+
+    /** One employee's plan for one day; immutable, replaced as a whole on every change. */
+    public static final class DayPlan {
+        private final LocalDate date;
+        private final boolean workingDay;
+        private final boolean holiday;
+        private final boolean otAllocated;
+        private final ApprovedLeaveIndex.Coverage leave;
+        private final LocalTime punchInStart;
+        private final LocalTime punchOutEnd;
+        private final LocalTime morningHalfLogout;
+        private final LocalTime afternoonHalfLogin;
+        private final boolean punchedIn;
+        private final boolean punchedOut;
+        private final boolean open;
+
+        private DayPlan(LocalDate date, boolean workingDay, boolean holiday, boolean otAllocated,
+                        ApprovedLeaveIndex.Coverage leave, LocalTime punchInStart, LocalTime punchOutEnd,
+                        LocalTime morningHalfLogout, LocalTime afternoonHalfLogin, boolean punchedIn, boolean punchedOut) {
+            this.date = date;
+            this.workingDay = workingDay;
+            this.holiday = holiday;
+            this.otAllocated = otAllocated;
+            this.leave = leave;
+            this.punchInStart = punchInStart;
+            this.punchOutEnd = punchOutEnd;
+            this.morningHalfLogout = morningHalfLogout;
+            this.afternoonHalfLogin = afternoonHalfLogin;
+            this.punchedIn = punchedIn;
+            this.punchedOut = punchedOut;
+            // OT only unlocks a holiday when it is allocated for this employee; half-day leave is checked per punch
+            this.open = ((workingDay && !holiday) || (holiday && otAllocated)) && leave != ApprovedLeaveIndex.Coverage.FULL_DAY;
+        }
+
+        private DayPlan punchedIn() {
+            return new DayPlan(date, workingDay, holiday, otAllocated, leave, punchInStart, punchOutEnd,
+                    morningHalfLogout, afternoonHalfLogin, true, punchedOut);
+        }
+
+        private DayPlan punchedOut() {
+            return new DayPlan(date, workingDay, holiday, otAllocated, leave, punchInStart, punchOutEnd,
+                    morningHalfLogout, afternoonHalfLogin, punchedIn, true);
+        }
+
+        // The day allows a punch-in at this time, whatever the employee already did today
+        public boolean isPunchInOpen(LocalTime now) {
+            return open && !now.isBefore(punchInStart) && !leave.covers(now, morningHalfLogout, afternoonHalfLogin);
+        }
+
+        public boolean isPunchInEnabled(LocalTime now) {
+            return !punchedIn && !punchedOut && isPunchInOpen(now);
+        }
+
+        public boolean isPunchOutEnabled(LocalTime now) {
+            return punchedIn && !punchedOut && now.isBefore(punchOutEnd);
+        }
+
+        public LocalDate getDate() { return date; }
+        public boolean isWorkingDay() { return workingDay; }
+        public boolean isHoliday() { return holiday; }
+        public boolean isOtAllocated() { return otAllocated; }
+        public boolean isOnLeave() { return leave == ApprovedLeaveIndex.Coverage.FULL_DAY; }
+        public ApprovedLeaveIndex.Coverage getLeave() { return leave; }
+        public LocalTime getPunchInStart() { return punchInStart; }
+        public LocalTime getPunchOutEnd() { return punchOutEnd; }
+        public boolean isPunchedIn() { return punchedIn; }
+        public boolean isPunchedOut() { return punchedOut; }
+    }
+}
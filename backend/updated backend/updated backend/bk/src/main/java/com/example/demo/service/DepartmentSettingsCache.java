@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.DepartmentSettingsRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Read-mostly snapshot of all department settings keyed by (departmentName, empType),
+ * and by (departmentId, empType) for lookups from JobDetails.deptId. The DEFAULT
+ * emp_type fallback of every department is resolved when the snapshot is built, so a
+ * lookup is a single map read. The snapshot is replaced as a whole whenever
+ * DepartmentSettingsService writes, and never mutated in place.
+ */
+@Component
+@RequiredArgsConstructor
+public class DepartmentSettingsCache {
+
+    private static final String DEFAULT_TYPE = "DEFAULT";
+
+    private final DepartmentSettingsRepository departmentSettingsRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Settings for the department and employee type, falling back to the department's
+     * DEFAULT row. Empty when the department has no settings at all. Each call returns
+     * its own copy, so callers may modify it without affecting the snapshot.
+     */
+    public Optional<DepartmentSettings> resolve(String departmentName, String empType) {
+        return lookup(snapshot().byName, departmentName, empType);
+    }
+
+    /**
+     * Settings for the department id (JobDetails.deptId) and employee type, with the same
+     * DEFAULT fallback. Rows without a department_id are found by their own id.
+     */
+    public Optional<DepartmentSettings> resolveByDepartmentId(String departmentId, String empType) {
+        return lookup(snapshot().byDepartmentId, departmentId, empType);
+    }
+
+    // Rebuild from the database, e.g. after an admin edit
+    public synchronized void refresh() {
+        snapshot = load();
+    }
+
+    // Rebuild once the surrounding transaction commits, so readers never see uncommitted rows
+    public void refreshAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    private static Optional<DepartmentSettings> lookup(Map<String, DepartmentSettings> index,
+                                                       String department, String empType) {
+        DepartmentSettings settings = index.get(key(department, empType));
+        if (settings == null) {
+            settings = index.get(key(department, DEFAULT_TYPE));
+        }
+        return Optional.ofNullable(settings).map(DepartmentSettingsCache::copyOf);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        List<DepartmentSettings> all = new ArrayList<>();
+        for (DepartmentSettings settings : departmentSettingsRepository.findAll()) {
+            all.add(copyOf(settings));
+        }
+        List<DepartmentSettings> withDepartmentId = new ArrayList<>();
+        for (DepartmentSettings settings : all) {
+            if (settings.getDepartmentId() != null) {
+                withDepartmentId.add(settings);
+            }
+        }
+        Map<String, DepartmentSettings> byDepartmentId = new HashMap<>(
+                index(withDepartmentId, DepartmentSettings::getDepartmentId));
+
+        // Rows created before department_id existed were matched on their primary key, whatever the
+        // employee type, so they answer for every type under their id
+        for (DepartmentSettings settings : all) {
+            if (settings.getDepartmentId() != null) {
+                continue;
+            }
+            String id = String.valueOf(settings.getId());
+            byDepartmentId.putIfAbsent(key(id, DEFAULT_TYPE), settings);
+            for (Employee.EmployeeType type : Employee.EmployeeType.values()) {
+                byDepartmentId.putIfAbsent(key(id, type.name()), settings);
+            }
+        }
+        return new Snapshot(index(all, DepartmentSettings::getDepartmentName),
+                Collections.unmodifiableMap(byDepartmentId));
+    }
+
+    private static Map<String, DepartmentSettings> index(List<DepartmentSettings> all,
+                                                         Function<DepartmentSettings, String> department) {
+        Map<String, DepartmentSettings> byKey = new HashMap<>();
+        for (DepartmentSettings settings : all) {
+            byKey.putIfAbsent(key(department.apply(settings), settings.getEmpType()), settings);
+        }
+
+        // Pre-resolve the DEFAULT fallback for every known employee type
+        Map<String, DepartmentSettings> resolved = new HashMap<>(byKey);
+        for (DepartmentSettings settings : all) {
+            DepartmentSettings departmentDefault = byKey.get(key(department.apply(settings), DEFAULT_TYPE));
+            if (departmentDefault == null) {
+                continue;
+            }
+            for (Employee.EmployeeType type : Employee.EmployeeType.values()) {
+                resolved.putIfAbsent(key(department.apply(settings), type.name()), departmentDefault);
+            }
+        }
+        return Collections.unmodifiableMap(resolved);
+    }
+
+    private static String key(String departmentName, String empType) {
+        return departmentName + '|' + empType;
+    }
+
+    // Detached copy, so the snapshot is never tied to a persistence context nor shared with callers
+    private static DepartmentSettings copyOf(DepartmentSettings source) {
+        DepartmentSettings copy = new DepartmentSettings(source.getDepartmentName(), source.getEmpType(),
+                source.getPunchInStart(), source.getPunchOutEnd(), source.getOfficeStart(), source.getOfficeEnd(),
+                source.getLateLoginThreshold(), source.getHalfDayThreshold(), source.getFullDayThreshold(),
+                source.getMorningHalfLogin(), source.getMorningHalfLogout(),
+                source.getAfternoonHalfLogin(), source.getAfternoonHalfLogout());
+        copy.setId(source.getId());
+        copy.setDepartmentId(source.getDepartmentId());
+        return copy;
+    }
+
+    private static final class Snapshot {
+        private final Map<String, DepartmentSettings> byName;
+        private final Map<String, DepartmentSettings> byDepartmentId;
+
+        private Snapshot(Map<String, DepartmentSettings> byName, Map<String, DepartmentSettings> byDepartmentId) {
+            this.byName = byName;
+            this.byDepartmentId = byDepartmentId;
+        }
+    }
+}
@@ -16,6 +16,12 @@ public class DepartmentSettingsService {
     @Autowired
     private DepartmentSettingsRepository departmentSettingsRepository;
 
+    @Autowired
+    private DepartmentSettingsCache departmentSettingsCache;
+
+    @Autowired
+    private DayPlanRegistry dayPlanRegistry;
+
     public List<DepartmentSettings> getAllDepartmentSettings() {
         return departmentSettingsRepository.findAll();
     }
@@ -33,12 +39,16 @@ public class DepartmentSettingsService {
     }
 
     public DepartmentSettings createDepartmentSettings(DepartmentSettings settings) {
-        return departmentSettingsRepository.save(settings);
+        DepartmentSettings saved = departmentSettingsRepository.save(settings);
+        departmentSettingsCache.refreshAfterCommit();
+        dayPlanRegistry.invalidateAllAfterCommit();
+        return saved;
     }
 
     public DepartmentSettings updateDepartmentSettings(Long id, DepartmentSettings settingsDetails) {
         return departmentSettingsRepository.findById(id).map(settings -> {
             settings.setDepartmentName(settingsDetails.getDepartmentName());
+            settings.setDepartmentId(settingsDetails.getDepartmentId());
             settings.setEmpType(settingsDetails.getEmpType());
             settings.setPunchInStart(settingsDetails.getPunchInStart());
             settings.setOfficeStart(settingsDetails.getOfficeStart());
@@ -50,12 +60,17 @@ public class DepartmentSettingsService {
             settings.setMorningHalfLogout(settingsDetails.getMorningHalfLogout());
             settings.setAfternoonHalfLogin(settingsDetails.getAfternoonHalfLogin());
             settings.setAfternoonHalfLogout(settingsDetails.getAfternoonHalfLogout());
-            return departmentSettingsRepository.save(settings);
+            DepartmentSettings saved = departmentSettingsRepository.save(settings);
+            departmentSettingsCache.refreshAfterCommit();
+            dayPlanRegistry.invalidateAllAfterCommit();
+            return saved;
         }).orElseThrow(() -> new RuntimeException("Department settings not found with id: " + id));
     }
 
     public void deleteDepartmentSettings(Long id) {
         departmentSettingsRepository.deleteById(id);
+        departmentSettingsCache.refreshAfterCommit();
+        dayPlanRegistry.invalidateAllAfterCommit();
     }
 
     public boolean departmentSettingsExists(String departmentName) {
@@ -63,14 +78,7 @@ public class DepartmentSettingsService {
     }
 
     public Optional<DepartmentSettings> getSettingsForEmployee(String departmentName, String empType) {
-        // First try to find specific emp_type settings
-        Optional<DepartmentSettings> specificSettings = departmentSettingsRepository.findByDepartmentNameAndEmpType(departmentName, empType);
-        
-        if (specificSettings.isPresent()) {
-            return specificSettings;
-        }
-        
-        // Fallback to DEFAULT emp_type
-        return departmentSettingsRepository.findDefaultByDepartmentName(departmentName);
+        // Specific emp_type settings with DEFAULT fallback, served from the in-memory snapshot
+        return departmentSettingsCache.resolve(departmentName, empType);
     }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final HrmsMetrics hrmsMetrics;
 
     public void sendWelcomeEmail(Employee employee) {
         // Get email from multiple possible sources
@@ -47,6 +48,7 @@ public class EmailService {
         message.setText(text);
 
         mailSender.send(message);
+        hrmsMetrics.notification("email");
     }
 
     /**
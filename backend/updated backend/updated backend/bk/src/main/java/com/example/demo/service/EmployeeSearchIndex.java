@@ -0,0 +1,315 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory search index over employeeId, name, email and current department, so the admin
+ * search box and typeahead never run a LIKE '%q%' scan. Every field is indexed by its trigrams
+ * (queries of three or more characters match anywhere) and by the one- and two-letter prefixes
+ * of its words (shorter queries match word starts). Candidates from the postings are checked
+ * against the stored fields, so results stay exact while a writer is half-way through an update.
+ * Loaded on first use and kept current by EmployeeService after each committed change.
+ * PunchIngestionQueue also reads it to refuse punches of unknown or inactive employees.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmployeeSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final String PREFIX = "^";
+
+    // Ranks, best first
+    private static final int EXACT_ID = 0;
+    private static final int STARTS_WITH = 1;
+    private static final int CONTAINS = 2;
+    private static final int NO_MATCH = -1;
+
+    private final EmployeeRepository employeeRepository;
+    private final ExperienceRepository experienceRepository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Best matches across all four fields, at most limit of them: exact id first, then fields or
+     * name words starting with the query, then the rest; ties by name.
+     */
+    public List<Entry> typeahead(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        ensureLoaded();
+
+        // Bounded max-heap on (rank, name): the worst kept match is evicted first
+        Comparator<Ranked> best = Comparator.<Ranked>comparingInt(r -> r.rank)
+                .thenComparing(r -> r.entry.sortName)
+                .thenComparing(r -> r.entry.employeeId);
+        PriorityQueue<Ranked> top = new PriorityQueue<>(limit + 1, best.reversed());
+        for (String employeeId : candidates(q)) {
+            Entry entry = entries.get(employeeId);
+            int rank = entry != null ? rank(entry, q) : NO_MATCH;
+            if (rank == NO_MATCH) {
+                continue;
+            }
+            top.add(new Ranked(entry, rank));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(best);
+        List<Entry> result = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            result.add(r.entry);
+        }
+        return result;
+    }
+
+    /**
+     * Ids of all employees whose id or name contains the query (case-insensitive), optionally
+     * limited to a current department: what the admin employee search has always matched.
+     */
+    public List<String> search(String query, String department) {
+        String q = normalize(query);
+        ensureLoaded();
+
+        // Short queries cannot use the trigrams and may match mid-word, so they check every entry
+        Iterable<String> candidates = q.length() >= GRAM ? candidates(q) : entries.keySet();
+        List<String> matches = new ArrayList<>();
+        for (String employeeId : candidates) {
+            Entry entry = entries.get(employeeId);
+            if (entry == null || !(entry.id.contains(q) || entry.sortName.contains(q))) {
+                continue;
+            }
+            if (department != null && !department.equalsIgnoreCase(entry.department)) {
+                continue;
+            }
+            matches.add(employeeId);
+        }
+        return matches;
+    }
+
+    // The indexed employee, without a query once the index is loaded
+    public Optional<Entry> get(String employeeId) {
+        ensureLoaded();
+        return Optional.ofNullable(entries.get(employeeId));
+    }
+
+    // Re-read one employee (or drop them when deleted) once the surrounding transaction commits
+    public void refreshAfterCommit(String employeeId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(employeeId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh(employeeId);
+            }
+        });
+    }
+
+    public synchronized void refresh(String employeeId) {
+        if (!loaded) {
+            return; // picked up by the first load
+        }
+        List<Object[]> rows = employeeRepository.findSearchFieldsById(employeeId);
+        if (rows.isEmpty()) {
+            remove(employeeId);
+            return;
+        }
+        String department = experienceRepository.findCurrentDepartmentByEmployeeId(employeeId).orElse(null);
+        put(entryOf(rows.get(0), department));
+    }
+
+    // Rebuild everything from the database
+    public synchronized void reload() {
+        Map<String, String> departments = new HashMap<>();
+        for (Object[] row : experienceRepository.findAllCurrentDepartmentAssignments()) {
+            departments.put((String) row[0], (String) row[1]); // latest joining date wins
+        }
+        entries.clear();
+        postings.clear();
+        for (Object[] row : employeeRepository.findSearchFields()) {
+            put(entryOf(row, departments.get((String) row[0])));
+        }
+        loaded = true;
+        log.info("Employee search index loaded with {} employees and {} grams", entries.size(), postings.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    // The smallest posting list among the query's grams; every match is in it
+    private Iterable<String> candidates(String q) {
+        if (q.length() < GRAM) {
+            return postings.getOrDefault(PREFIX + q, Set.of());
+        }
+        Set<String> smallest = null;
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<String> posting = postings.get(q.substring(i, i + GRAM));
+            if (posting == null) {
+                return Set.of();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    private static int rank(Entry entry, String q) {
+        if (entry.id.equals(q)) {
+            return EXACT_ID;
+        }
+        boolean contains = false;
+        for (String field : entry.fields) {
+            if (startsAnyWord(field, q)) {
+                return STARTS_WITH;
+            }
+            contains |= field.contains(q);
+        }
+        // Below three characters only word starts count, as in the prefix postings
+        return contains && q.length() >= GRAM ? CONTAINS : NO_MATCH;
+    }
+
+    private static boolean startsAnyWord(String field, String q) {
+        for (String word : words(field)) {
+            if (word.startsWith(q)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void put(Entry entry) {
+        remove(entry.employeeId);
+        entries.put(entry.employeeId, entry);
+        for (String gram : grams(entry)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(entry.employeeId);
+        }
+    }
+
+    private void remove(String employeeId) {
+        Entry previous = entries.remove(employeeId);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<String> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(employeeId);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = new HashSet<>();
+        for (String field : entry.fields) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(field.substring(i, i + GRAM));
+            }
+            for (String word : words(field)) {
+                for (int length = 1; length < GRAM && length <= word.length(); length++) {
+                    grams.add(PREFIX + word.substring(0, length));
+                }
+            }
+        }
+        return grams;
+    }
+
+    // The whole field plus its letter/digit runs, e.g. "john.doe@acme.com" -> john, doe, acme, com
+    private static List<String> words(String field) {
+        List<String> words = new ArrayList<>();
+        words.add(field);
+        for (String word : field.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && !word.equals(field)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static Entry entryOf(Object[] row, String department) {
+        return new Entry((String) row[0], (String) row[1], (String) row[2], department,
+                Boolean.TRUE.equals(row[3]));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Ranked {
+        private final Entry entry;
+        private final int rank;
+
+        private Ranked(Entry entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+    }
+
+    /** One indexed employee; the lower-cased copies are what queries are matched against. */
+    public static final class Entry {
+        private final String employeeId;
+        private final String name;
+        private final String email;
+        private final String department;
+        private final boolean active;
+
+        private final String id;
+        private final String sortName;
+        private final List<String> fields;
+
+        private Entry(String employeeId, String name, String email, String department, boolean active) {
+            this.employeeId = employeeId;
+            this.name = name;
+            this.email = email;
+            this.department = department;
+            this.active = active;
+            this.id = normalize(employeeId);
+            this.sortName = normalize(name);
+            this.fields = List.of(id, sortName, normalize(email), normalize(department));
+        }
+
+        public String getEmployeeId() { return employeeId; }
+        public String getName() { return name; }
+        public String getEmail() { return email; }
+        public String getDepartment() { return department; }
+        public boolean isActive() { return active; }
+    }
+}
@@ -5,7 +5,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -16,6 +18,8 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +28,7 @@ import org.springframework.web.multipart.MultipartFile;
 import com.example.demo.dto.BankDetailsDTO;
 import com.example.demo.dto.EmployeeDTO;
 import com.example.demo.dto.EmployeeRequest;
+import com.example.demo.dto.EmployeeSummaryDTO;
 import com.example.demo.dto.PersonalDetailsDTO;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.model.BankDetails;
@@ -55,6 +60,9 @@ public class EmployeeService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final EmployeeSearchIndex employeeSearchIndex;
+
+    private static final int SUMMARY_MAX_PAGE_SIZE = 100;
 
     // -----------------------------
     // Basic CRUD
@@ -79,8 +87,30 @@ public class EmployeeService {
         return employeeRepository.findByCurrentDepartment(department);
     }
 
+    // One page of employee summaries; every filter is optional
+    public Map<String, Object> getEmployeeSummaryPage(Boolean active, String department,
+                                                      Employee.EmployeeType type, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, SUMMARY_MAX_PAGE_SIZE));
+        String departmentFilter = department != null && !department.isBlank() ? department : null;
+        Page<EmployeeSummaryDTO> result = employeeRepository.findSummaryPage(active, departmentFilter, type,
+                PageRequest.of(Math.max(page, 0), pageSize));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", result.getContent());
+        response.put("page", result.getNumber());
+        response.put("size", result.getSize());
+        response.put("totalElements", result.getTotalElements());
+        response.put("totalPages", result.getTotalPages());
+        response.put("hasNext", result.hasNext());
+        return response;
+    }
+
     public List<Employee> searchEmployees(String query) {
-        return employeeRepository.searchEmployees(query);
+        return employeeRepository.findAllById(employeeSearchIndex.search(query, null));
+    }
+
+    public List<EmployeeSearchIndex.Entry> typeahead(String query, int limit) {
+        return employeeSearchIndex.typeahead(query, limit);
     }
 
     public Employee getEmployeeById(String employeeId) {
@@ -135,6 +165,7 @@ public class EmployeeService {
             }
         }
 
+        employeeSearchIndex.refreshAfterCommit(savedEmployee.getEmployeeId());
         return employeeRepository.save(savedEmployee);
     }
 
@@ -178,6 +209,7 @@ public class EmployeeService {
 
         // Save Employee (User will be saved automatically)
         Employee savedEmployee = employeeRepository.save(employee);
+        employeeSearchIndex.refreshAfterCommit(savedEmployee.getEmployeeId());
 
         return savedEmployee;
     }
@@ -226,6 +258,7 @@ public class EmployeeService {
         Employee employee = getEmployeeById(employeeId);
         if (employee.getUser() != null) userRepository.delete(employee.getUser());
         employeeRepository.delete(employee);
+        employeeSearchIndex.refreshAfterCommit(employeeId);
     }
 
     public String getEmployeeEmail(String employeeId) {
@@ -308,6 +341,7 @@ public class EmployeeService {
         }
 
         // 6️⃣ Save employee
+        employeeSearchIndex.refreshAfterCommit(existingEmployee.getEmployeeId());
         return employeeRepository.save(existingEmployee);
     }
 
@@ -401,6 +435,7 @@ public class EmployeeService {
                 experienceRepository.save(exp);
             }
         }
+        employeeSearchIndex.refreshAfterCommit(employeeId);
     }
 
 
@@ -551,19 +586,30 @@ public class EmployeeService {
     }
 
     public Experience saveExperience(Experience experience) {
-        return experienceRepository.save(experience);
+        Experience saved = experienceRepository.save(experience);
+        if (saved.getEmployee() != null) {
+            employeeSearchIndex.refreshAfterCommit(saved.getEmployee().getEmployeeId());
+        }
+        return saved;
     }
 
     public void deleteAllExperience(String employeeId) {
         experienceRepository.deleteByEmployeeEmployeeId(employeeId);
+        employeeSearchIndex.refreshAfterCommit(employeeId);
     }
 
     public void deleteExperienceById(Long experienceId) {
+        Optional<String> employeeId = experienceRepository.findById(experienceId)
+                .map(Experience::getEmployee)
+                .map(Employee::getEmployeeId);
         experienceRepository.deleteById(experienceId);
+        employeeId.ifPresent(employeeSearchIndex::refreshAfterCommit);
     }
 
     public Employee saveEmployee(Employee employee) {
-        return employeeRepository.save(employee);
+        Employee saved = employeeRepository.save(employee);
+        employeeSearchIndex.refreshAfterCommit(saved.getEmployeeId());
+        return saved;
     }
 
     public boolean hasExperience(String employeeId) {
@@ -601,6 +647,7 @@ public class EmployeeService {
                 .ifPresent(exp -> exp.setLastWorkingDate(LocalDate.now().toString()));
 
         employeeRepository.save(employee);
+        employeeSearchIndex.refreshAfterCommit(employeeId);
     }
 
     public void reactivateEmployee(String employeeId, LocalDate joiningDate) {
@@ -624,6 +671,7 @@ public class EmployeeService {
 
         employee.getExperienceDetails().add(newExp);
         employeeRepository.save(employee);
+        employeeSearchIndex.refreshAfterCommit(employeeId);
     }
 
     // -----------------------------
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.Holiday;
+import com.example.demo.repository.HolidayRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * In-memory holiday calendar: one BitSet per year, bit (dayOfYear - 1) set for every holiday.
+ * Loaded once on first use and rebuilt whenever HolidayService writes, so per-date checks
+ * and range counts never go to the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class HolidayCalendar {
+
+    private final HolidayRepository holidayRepository;
+
+    private volatile Map<Integer, BitSet> years;
+
+    public boolean isHoliday(LocalDate date) {
+        BitSet days = years().get(date.getYear());
+        return days != null && days.get(date.getDayOfYear() - 1);
+    }
+
+    // Holiday dates between start and end (inclusive), in date order
+    public List<LocalDate> holidaysBetween(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> dates = new ArrayList<>();
+        Map<Integer, BitSet> current = years();
+        for (int year = startDate.getYear(); year <= endDate.getYear(); year++) {
+            BitSet days = current.get(year);
+            if (days == null) {
+                continue;
+            }
+            int from = fromIndex(startDate, year);
+            int to = toIndex(endDate, year);
+            for (int day = days.nextSetBit(from); day >= 0 && day < to; day = days.nextSetBit(day + 1)) {
+                dates.add(LocalDate.ofYearDay(year, day + 1));
+            }
+        }
+        return dates;
+    }
+
+    // Number of holidays between start and end (inclusive); 0 when start is after end
+    public int countHolidays(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return 0;
+        }
+        int count = 0;
+        Map<Integer, BitSet> current = years();
+        for (int year = startDate.getYear(); year <= endDate.getYear(); year++) {
+            BitSet days = current.get(year);
+            if (days != null) {
+                count += days.get(fromIndex(startDate, year), toIndex(endDate, year)).cardinality();
+            }
+        }
+        return count;
+    }
+
+    // Rebuild from the database
+    public synchronized void refresh() {
+        years = load();
+    }
+
+    // Rebuild once the surrounding transaction commits (immediately when there is none)
+    public void refreshAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    private Map<Integer, BitSet> years() {
+        Map<Integer, BitSet> current = years;
+        if (current == null) {
+            synchronized (this) {
+                if (years == null) {
+                    years = load();
+                }
+                current = years;
+            }
+        }
+        return current;
+    }
+
+    private Map<Integer, BitSet> load() {
+        Map<Integer, BitSet> loaded = new HashMap<>();
+        for (Holiday holiday : holidayRepository.findAll()) {
+            LocalDate date = holiday.getDate();
+            if (date != null) {
+                loaded.computeIfAbsent(date.getYear(), year -> new BitSet(366)).set(date.getDayOfYear() - 1);
+            }
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    // First bit of the year that falls inside the range
+    private static int fromIndex(LocalDate startDate, int year) {
+        return startDate.getYear() == year ? startDate.getDayOfYear() - 1 : 0;
+    }
+
+    // Exclusive end bit of the year that falls inside the range
+    private static int toIndex(LocalDate endDate, int year) {
+        return endDate.getYear() == year ? endDate.getDayOfYear() : LocalDate.of(year, 12, 31).getDayOfYear();
+    }
+}
@@ -15,17 +15,28 @@ public class HolidayService {
     @Autowired
     private HolidayRepository holidayRepository;
 
+    @Autowired
+    private HolidayCalendar holidayCalendar;
+
+    @Autowired
+    private DayPlanRegistry dayPlanRegistry;
+
     // EXISTING METHODS (UNCHANGED) - FOR HOLIDAY PAGE INTEGRATION
     public List<Holiday> getAllHolidays() {
         return holidayRepository.findAll();
     }
 
     public Holiday addHoliday(Holiday holiday) {
-        return holidayRepository.save(holiday);
+        Holiday saved = holidayRepository.save(holiday);
+        holidayCalendar.refreshAfterCommit();
+        dayPlanRegistry.invalidateAllAfterCommit();
+        return saved;
     }
 
     public void deleteHoliday(Long id) {
         holidayRepository.deleteById(id);
+        holidayCalendar.refreshAfterCommit();
+        dayPlanRegistry.invalidateAllAfterCommit();
     }
     
     public Holiday updateHoliday(Long id, Holiday updatedHoliday) {
@@ -33,17 +44,25 @@ public class HolidayService {
             existing.setName(updatedHoliday.getName());
             existing.setDate(updatedHoliday.getDate());
             existing.setDescription(updatedHoliday.getDescription());
-            return holidayRepository.save(existing);
+            Holiday saved = holidayRepository.save(existing);
+            holidayCalendar.refreshAfterCommit();
+            dayPlanRegistry.invalidateAllAfterCommit();
+            return saved;
         }).orElseThrow(() -> new RuntimeException("Holiday not found with id: " + id));
     }
 
     public void replaceAllHolidays(List<Holiday> newHolidays) {
         holidayRepository.deleteAll(); // Clear previous holidays
         holidayRepository.saveAll(newHolidays);
+        holidayCalendar.refreshAfterCommit();
+        dayPlanRegistry.invalidateAllAfterCommit();
     }
 
     public List<Holiday> saveAll(List<Holiday> holidays) {
-        return holidayRepository.saveAll(holidays);
+        List<Holiday> saved = holidayRepository.saveAll(holidays);
+        holidayCalendar.refreshAfterCommit();
+        dayPlanRegistry.invalidateAllAfterCommit();
+        return saved;
     }
 
     // NEW METHODS ADDED FOR ATTENDANCE MODULE ONLY
@@ -54,7 +73,7 @@ public class HolidayService {
      * Used by AttendanceService for punch-in validation
      */
     public boolean isHoliday(LocalDate date) {
-        return holidayRepository.existsByDate(date);
+        return holidayCalendar.isHoliday(date);
     }
     
     /**
@@ -70,6 +89,24 @@ public class HolidayService {
      * Could be useful for attendance reports
      */
     public List<Holiday> getHolidaysBetween(LocalDate startDate, LocalDate endDate) {
+        // Most ranges have no holiday at all; skip the query for those
+        if (holidayCalendar.countHolidays(startDate, endDate) == 0) {
+            return List.of();
+        }
         return holidayRepository.findByDateBetween(startDate, endDate);
     }
+
+    /**
+     * Holiday dates within a date range, answered from the in-memory calendar
+     */
+    public List<LocalDate> getHolidayDatesBetween(LocalDate startDate, LocalDate endDate) {
+        return holidayCalendar.holidaysBetween(startDate, endDate);
+    }
+
+    /**
+     * Number of holidays within a date range, answered from the in-memory calendar
+     */
+    public int countHolidays(LocalDate startDate, LocalDate endDate) {
+        return holidayCalendar.countHolidays(startDate, endDate);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Business event counters: punches, approvals and notifications. Each event is a
+ * short observation, so with Actuator it is exported as a timer whose _count series
+ * is the counter (e.g. hrms_punches_seconds_count{type="in"}). Tags are fixed strings
+ * only, never ids, to keep the series count bounded.
+ */
+@Component
+public class HrmsMetrics {
+
+    private final ObservationRegistry observationRegistry;
+
+    public HrmsMetrics(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+    }
+
+    // type: in, out, manual_in, manual_out, auto_out
+    public void punch(String type) {
+        record("hrms.punches", "type", type);
+    }
+
+    // kind: permission, overtime, leave; outcome: approved, rejected, ...
+    public void approval(String kind, String outcome) {
+        if (observationRegistry.isNoop()) {
+            return;
+        }
+        Observation.createNotStarted("hrms.approvals", observationRegistry)
+                .lowCardinalityKeyValue("kind", kind)
+                .lowCardinalityKeyValue("outcome", outcome)
+                .observe(() -> { });
+    }
+
+    // channel: in_app, email
+    public void notification(String channel) {
+        record("hrms.notifications", "channel", channel);
+    }
+
+    private void record(String name, String key, String value) {
+        if (observationRegistry.isNoop()) {
+            return;
+        }
+        Observation.createNotStarted(name, observationRegistry)
+                .lowCardinalityKeyValue(key, value)
+                .observe(() -> { });
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Duplicate (employee_id, month, year) late_login_counter rows left over from before
+ * uk_late_login_counter_employee_month existed. Schema update cannot add the key while they
+ * exist, and without it the increment upsert inserts yet another row. Each duplicate is one
+ * counter split over several rows, so merging them keeps the oldest row with the sum of their
+ * counts; nothing is lost, and LateLoginCounterUniqueKeyMigrationConfig does it at startup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LateLoginCounterDeduplicationService {
+
+    public static final String UNIQUE_KEY = "uk_late_login_counter_employee_month";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    // Merge every duplicated counter into its oldest row; returns the number of rows deleted
+    @Transactional
+    public int mergeDuplicates() {
+        List<Map<String, Object>> duplicates = jdbcTemplate.queryForList(
+                "SELECT employee_id, month, year, MIN(id) AS kept_id, SUM(late_login_count) AS total, " +
+                "COUNT(*) AS row_count FROM late_login_counter " +
+                "WHERE employee_id IS NOT NULL AND month IS NOT NULL AND year IS NOT NULL " +
+                "GROUP BY employee_id, month, year HAVING COUNT(*) > 1");
+
+        int deleted = 0;
+        for (Map<String, Object> duplicate : duplicates) {
+            Object employeeId = duplicate.get("employee_id");
+            Object month = duplicate.get("month");
+            Object year = duplicate.get("year");
+            Object keptId = duplicate.get("kept_id");
+            jdbcTemplate.update("UPDATE late_login_counter SET late_login_count = ? WHERE id = ?",
+                    duplicate.get("total"), keptId);
+            deleted += jdbcTemplate.update("DELETE FROM late_login_counter " +
+                    "WHERE employee_id = ? AND month = ? AND year = ? AND id <> ?", employeeId, month, year, keptId);
+            log.warn("Merged {} late login counters of {} for {}/{} into row {} (count {})",
+                    duplicate.get("row_count"), employeeId, month, year, keptId, duplicate.get("total"));
+        }
+        return deleted;
+    }
+
+    public boolean hasUniqueKey() throws SQLException {
+        return AttendanceDeduplicationService.hasUniqueIndex(dataSource, "late_login_counter", UNIQUE_KEY);
+    }
+
+    public void addUniqueKey() {
+        jdbcTemplate.execute("ALTER TABLE late_login_counter ADD CONSTRAINT " + UNIQUE_KEY +
+                " UNIQUE (employee_id, month, year)");
+        log.info("Added unique key {} on late_login_counter (employee_id, month, year)", UNIQUE_KEY);
+    }
+}
@@ -24,17 +24,22 @@ import com.example.demo.repository.EmployeeRepository;
 import com.example.demo.repository.LeaveRequestDayRepository;
 import com.example.demo.repository.LeaveRequestRepository;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
+@Observed(name = "hrms.service")
 public class LeaveService {
     private final LeaveRequestRepository leaveRequestRepository;
     private final LeaveRequestDayRepository leaveRequestDayRepository;
     private final EmployeeLeaveStatisticsRepository employeeLeaveStatisticsRepository;
     private final HolidayService holidayService;
     private final EmployeeRepository employeeRepository; // Added for employee validation
+    private final HrmsMetrics hrmsMetrics;
+    private final DayPlanRegistry dayPlanRegistry;
+    private final ApprovedLeaveIndex approvedLeaveIndex;
     
     public LeaveRequest applyForLeave(LeaveRequest leaveRequest) {
         // Validate employee exists
@@ -64,6 +69,10 @@ public class LeaveService {
         
         // Update employee statistics
         updateEmployeeStatistics(savedRequest);
+        if (savedRequest.getStatus() == LeaveStatus.APPROVED) {
+            approvedLeaveIndex.refreshAfterCommit(savedRequest.getEmployeeId());
+        }
+        dayPlanRegistry.invalidateAfterCommit(savedRequest.getEmployeeId(), savedRequest.getFromDate(), savedRequest.getToDate());
         
         return savedRequest;
     }
@@ -460,6 +469,11 @@ public class LeaveService {
         // Update statistics if status changed
         if (!oldStatus.equals(status)) {
             updateEmployeeStatistics(updatedRequest);
+            hrmsMetrics.approval("leave", status.name().toLowerCase());
+            // Index first: the day plan rebuilt after it reads the leave from the index
+            approvedLeaveIndex.refreshAfterCommit(updatedRequest.getEmployeeId());
+            dayPlanRegistry.invalidateAfterCommit(updatedRequest.getEmployeeId(),
+                    updatedRequest.getFromDate(), updatedRequest.getToDate());
         }
         
         return updatedRequest;
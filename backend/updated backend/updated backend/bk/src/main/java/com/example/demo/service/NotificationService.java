@@ -15,6 +15,7 @@ import lombok.RequiredArgsConstructor;
 public class NotificationService {
     
     private final NotificationRepository notificationRepository;
+    private final HrmsMetrics hrmsMetrics;
     
     public Notification createNotification(String recipientId, String recipientType, String title, 
                                          String message, String relatedEntityType, Long relatedEntityId, 
@@ -25,6 +26,7 @@ public class NotificationService {
             relatedEntityType, relatedEntityId, actionUrl, type
         );
         
+        hrmsMetrics.notification("in_app");
         return notificationRepository.save(notification);
     }
     
@@ -40,6 +42,7 @@ public class NotificationService {
                 relatedEntityType, relatedEntityId, actionUrl, type
             );
             notificationRepository.save(notification);
+            hrmsMetrics.notification("in_app");
         }
     }
     
@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a unit of work in its own transaction and runs it again when it loses an optimistic-lock
+ * race, i.e. another writer changed one of its @Version'ed rows (Attendance, Employee) first.
+ * Every attempt starts with a fresh persistence context, so it re-reads what it changes and its
+ * own checks (already punched out, request no longer pending, ...) see the other writer's result.
+ */
+@Slf4j
+@Component
+public class OptimisticRetryExecutor {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final long BACKOFF_MILLIS = 20;
+
+    private final TransactionTemplate transaction;
+
+    public OptimisticRetryExecutor(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> T execute(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    log.warn("{} still conflicting after {} attempts", operation, attempt);
+                    throw e;
+                }
+                log.debug("{} lost a concurrent update on attempt {}, retrying", operation, attempt);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    // Short, jittered pause so the writers that collided do not collide again straight away
+    private static void backOff(int attempt, OptimisticLockingFailureException conflict) {
+        try {
+            Thread.sleep(BACKOFF_MILLIS * attempt + ThreadLocalRandom.current().nextLong(BACKOFF_MILLIS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
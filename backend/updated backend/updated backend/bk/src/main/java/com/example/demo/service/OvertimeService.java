@@ -13,13 +13,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.observation.annotation.Observed;
+import lombok.extern.slf4j.Slf4j;
+
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @Transactional
+@Observed(name = "hrms.service")
 public class OvertimeService {
 
     @Autowired
@@ -28,6 +33,15 @@ public class OvertimeService {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private HrmsMetrics hrmsMetrics;
+
+    @Autowired
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @Autowired
+    private DayPlanRegistry dayPlanRegistry;
+
     // Request OT - Updated to return DTO
     public OvertimeResponseDTO requestOvertime(String employeeId, LocalDate date, OTType type) {
         Employee employee = employeeRepository.findById(employeeId)
@@ -42,6 +56,7 @@ public class OvertimeService {
         overtime.setIsPaidOut(false);
 
         Overtime savedOvertime = overtimeRepository.save(overtime);
+        overtimeChanged(savedOvertime);
         return OvertimeConverter.toDTO(savedOvertime);
     }
 
@@ -54,6 +69,8 @@ public class OvertimeService {
         overtime.setType(type);
         
         Overtime savedOvertime = overtimeRepository.save(overtime);
+        hrmsMetrics.approval("overtime", "approved");
+        overtimeChanged(savedOvertime);
         return OvertimeConverter.toDTO(savedOvertime);
     }
 
@@ -64,6 +81,8 @@ public class OvertimeService {
 
         overtime.setStatus(OTStatus.REJECTED);
         Overtime savedOvertime = overtimeRepository.save(overtime);
+        hrmsMetrics.approval("overtime", "rejected");
+        overtimeChanged(savedOvertime);
         return OvertimeConverter.toDTO(savedOvertime);
     }
 
@@ -83,9 +102,6 @@ public class OvertimeService {
     @Transactional
     public void updateOTStatsAfterPunchOut(String employeeId, LocalDate date, double hoursWorked) {
         try {
-            Employee employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Employee not found"));
-            
             Optional<Overtime> overtimeOpt = overtimeRepository.findByEmployeeEmployeeIdAndDate(employeeId, date);
             
             if (overtimeOpt.isPresent()) {
@@ -95,19 +111,13 @@ public class OvertimeService {
                 
                 if (meetsHoursRequirement && isApproved) {
                     if (overtime.getType() == OTType.PENDING_OT) {
-                        int currentPending = employee.getOtPendingDays() != null ? employee.getOtPendingDays() : 0;
-                        employee.setOtPendingDays(currentPending + 1);
-                        
-                        employeeRepository.save(employee);
+                        employeeRepository.incrementOtPendingDays(employeeId);
                         
                         overtime.setIsPaidOut(true);
                         overtimeRepository.save(overtime);
                     }
                     else if (overtime.getType() == OTType.INCENTIVE_OT) {
-                        int currentIncentive = employee.getOtIncentiveDays() != null ? employee.getOtIncentiveDays() : 0;
-                        employee.setOtIncentiveDays(currentIncentive + 1);
-                        
-                        employeeRepository.save(employee);
+                        employeeRepository.incrementOtIncentiveDays(employeeId);
                         
                         overtime.setIsPaidOut(true);
                         overtimeRepository.save(overtime);
@@ -115,8 +125,7 @@ public class OvertimeService {
                 }
             }
         } catch (Exception e) {
-            System.out.println("❌ Error updating OT stats: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Could not update OT stats of {} on {}", employeeId, date, e);
         }
     }
 
@@ -145,6 +154,7 @@ public class OvertimeService {
         overtime.setIsPaidOut(false);
 
         Overtime savedOvertime = overtimeRepository.save(overtime);
+        overtimeChanged(savedOvertime);
         return OvertimeConverter.toDTO(savedOvertime);
     }
 
@@ -158,7 +168,7 @@ public class OvertimeService {
                     try {
                         return allocateOvertimeAdmin(employeeId, null, date, type, status, reason);
                     } catch (Exception e) {
-                        System.out.println("Failed to allocate OT for employee " + employeeId + ": " + e.getMessage());
+                        log.warn("Failed to allocate OT for employee {} on {}: {}", employeeId, date, e.getMessage());
                         return null;
                     }
                 })
@@ -225,6 +235,7 @@ public class OvertimeService {
         }
         
         Overtime savedOvertime = overtimeRepository.save(overtime);
+        overtimeChanged(savedOvertime);
         return OvertimeConverter.toDTO(savedOvertime);
     }
 
@@ -232,12 +243,10 @@ public class OvertimeService {
         return employeeRepository.findAllCurrentDepartments();
     }
 
+    // Matched in memory by EmployeeSearchIndex instead of a LIKE scan per keystroke
     public List<Employee> searchEmployeesByDepartment(String query, String department) {
-        if (department != null && !department.isEmpty()) {
-            return employeeRepository.searchEmployeesByDepartment(query, department);
-        } else {
-            return employeeRepository.searchEmployees(query);
-        }
+        String departmentFilter = department != null && !department.isEmpty() ? department : null;
+        return employeeRepository.findAllById(employeeSearchIndex.search(query, departmentFilter));
     }
 
     // Admin: Allocate OT to department - Updated to return DTO
@@ -256,9 +265,14 @@ public class OvertimeService {
     // Admin: Delete OT allocation - UNCHANGED (void method)
     @Transactional
     public void deleteAllocation(Long allocationId) {
-        if (!overtimeRepository.existsById(allocationId)) {
-            throw new ResourceNotFoundException("OT allocation not found");
-        }
-        overtimeRepository.deleteById(allocationId);
+        Overtime overtime = overtimeRepository.findById(allocationId)
+                .orElseThrow(() -> new ResourceNotFoundException("OT allocation not found"));
+        overtimeRepository.delete(overtime);
+        overtimeChanged(overtime);
+    }
+
+    // An OT row for today changes who may punch in on a holiday
+    private void overtimeChanged(Overtime overtime) {
+        dayPlanRegistry.invalidateAfterCommit(overtime.getEmployee().getEmployeeId(), overtime.getDate(), overtime.getDate());
     }
 }
\ No newline at end of file
@@ -3,38 +3,65 @@ package com.example.demo.service;
 import com.example.demo.model.PermissionHours;
 import com.example.demo.model.PermissionStatus;
 import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceStatus;
 import com.example.demo.model.DepartmentSettings;
 import com.example.demo.model.Employee;
+import com.example.demo.model.JobDetails;
 import com.example.demo.repository.PermissionHourRepository;
 import com.example.demo.repository.AttendanceRepository;
 import com.example.demo.repository.EmployeeRepository;
-import com.example.demo.repository.DepartmentSettingsRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+import io.micrometer.observation.annotation.Observed;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
+@Observed(name = "hrms.service")
 public class PermissionHoursService {
     
     private final PermissionHourRepository repository;
     private final AttendanceRepository attendanceRepository;
     private final EmployeeRepository employeeRepository;
-    private final DepartmentSettingsRepository departmentSettingsRepository;
+    private final LateLoginCounterRepository lateLoginCounterRepository;
+    private final DepartmentSettingsCache departmentSettingsCache;
+    private final AttendanceSummaryService attendanceSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AttendancePolicyEngine attendancePolicyEngine;
+    private final HrmsMetrics hrmsMetrics;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
 
     public PermissionHoursService(PermissionHourRepository repository,
                                  AttendanceRepository attendanceRepository,
                                  EmployeeRepository employeeRepository,
-                                 DepartmentSettingsRepository departmentSettingsRepository) {
+                                 LateLoginCounterRepository lateLoginCounterRepository,
+                                 DepartmentSettingsCache departmentSettingsCache,
+                                 AttendanceSummaryService attendanceSummaryService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 AttendancePolicyEngine attendancePolicyEngine,
+                                 HrmsMetrics hrmsMetrics,
+                                 OptimisticRetryExecutor optimisticRetryExecutor) {
         this.repository = repository;
         this.attendanceRepository = attendanceRepository;
         this.employeeRepository = employeeRepository;
-        this.departmentSettingsRepository = departmentSettingsRepository;
+        this.lateLoginCounterRepository = lateLoginCounterRepository;
+        this.departmentSettingsCache = departmentSettingsCache;
+        this.attendanceSummaryService = attendanceSummaryService;
+        this.eventPublisher = eventPublisher;
+        this.attendancePolicyEngine = attendancePolicyEngine;
+        this.hrmsMetrics = hrmsMetrics;
+        this.optimisticRetryExecutor = optimisticRetryExecutor;
     }
 
     // ✅ Save a new Permission Hours request
@@ -83,9 +110,18 @@ public class PermissionHoursService {
         }
     }
 
-    // ✅ Approve permission hours request with action details
-    @Transactional
+    // ✅ Approve permission hours request with action details; retried if the attendance row changed underneath
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PermissionHours approvePermissionHours(Long id, String approvedBy, String comments) {
+        PermissionHours approved = optimisticRetryExecutor.execute("Permission approval " + id,
+                () -> approve(id, approvedBy, comments));
+        if (approved != null) {
+            hrmsMetrics.approval("permission", "approved");
+        }
+        return approved;
+    }
+
+    private PermissionHours approve(Long id, String approvedBy, String comments) {
         Optional<PermissionHours> requestOptional = repository.findById(id);
         
         if (requestOptional.isPresent()) {
@@ -124,6 +160,7 @@ public class PermissionHoursService {
             request.setActionBy(rejectedBy);
             request.setActionDate(LocalDateTime.now());
             request.setActionComments(comments);
+            hrmsMetrics.approval("permission", "rejected");
             
             return repository.save(request);
         }
@@ -167,8 +204,7 @@ public class PermissionHoursService {
 
     // ... [Keep all the private helper methods from your previous implementation] ...
     // adjustAttendanceForPermissionHours, resetAttendanceStatusFields, recalculateFullAttendanceStatus,
-    // getDepartmentSettingsDirectly, getDefaultDepartmentSettings, calculateAttendanceStatusManually,
-    // recalculateLateLoginStatus, forceRecalculateAttendanceStatus
+    // getDepartmentSettingsDirectly
 
     // Adjust attendance based on approved permission hours
     private void adjustAttendanceForPermissionHours(PermissionHours permissionHours) {
@@ -183,10 +219,21 @@ public class PermissionHoursService {
             
             if (attendanceOpt.isPresent()) {
                 Attendance attendance = attendanceOpt.get();
+                AttendanceSummaryService.Contribution before = attendanceSummaryService.contributionOf(attendance);
                 
                 // Store original times for comparison
                 LocalDateTime originalPunchIn = attendance.getPunchInTime();
                 LocalDateTime originalPunchOut = attendance.getPunchOutTime();
+
+                // What the punch-out added to the counters, so the recalculation only applies the difference
+                AttendancePolicyEngine.Result counted = null;
+                boolean countedAsThirdLate = false;
+                if (originalPunchIn != null && originalPunchOut != null && attendance.getHoursWorked() != null) {
+                    counted = attendancePolicyEngine.evaluate(originalPunchIn.toLocalTime(), attendance.getHoursWorked(),
+                            getDepartmentSettingsDirectly(attendance.getEmployee()), Boolean.TRUE.equals(attendance.getIsOtDay()));
+                    countedAsThirdLate = counted.countsAsLateLogin()
+                            && attendance.getAttendanceStatus() == AttendanceStatus.HALF_DAY;
+                }
                 
                 boolean needsRecalculation = false;
                 
@@ -195,7 +242,7 @@ public class PermissionHoursService {
                     LocalDateTime newPunchInTime = LocalDateTime.of(date, fromTime);
                     attendance.setPunchInTime(newPunchInTime);
                     needsRecalculation = true;
-                    System.out.println("DEBUG: Adjusted punch-in from " + originalPunchIn + " to " + newPunchInTime);
+                    log.debug("Adjusted punch-in from {} to {}", originalPunchIn, newPunchInTime);
                 }
                 
                 // Adjust punch out time if permission toTime is later
@@ -203,27 +250,31 @@ public class PermissionHoursService {
                     LocalDateTime newPunchOutTime = LocalDateTime.of(date, toTime);
                     attendance.setPunchOutTime(newPunchOutTime);
                     needsRecalculation = true;
-                    System.out.println("DEBUG: Adjusted punch-out from " + originalPunchOut + " to " + newPunchOutTime);
+                    log.debug("Adjusted punch-out from {} to {}", originalPunchOut, newPunchOutTime);
                 }
                 
                 // If adjustments were made, recalculate all attendance fields
                 if (needsRecalculation) {
-                    // Recalculate hours worked
-                    Duration duration = Duration.between(attendance.getPunchInTime(), attendance.getPunchOutTime());
-                    double hoursWorked = duration.toMinutes() / 60.0;
-                    attendance.setHoursWorked(hoursWorked);
-                    
-                    // CRITICAL: Reset ALL status fields before complete recalculation
-                    resetAttendanceStatusFields(attendance);
-                    
-                    // Recalculate ALL attendance status from scratch
-                    recalculateFullAttendanceStatus(attendance);
-                    
-                    attendanceRepository.save(attendance);
-                    
-                    System.out.println("DEBUG: Attendance fully recalculated after permission approval");
-                    System.out.println("DEBUG: Final status: " + attendance.getStatus());
-                    System.out.println("DEBUG: Final hours: " + attendance.getHoursWorked());
+                    if (attendance.getPunchOutTime() != null) {
+                        // Recalculate hours worked
+                        attendance.setHoursWorked(AttendancePolicyEngine.hoursBetween(
+                                attendance.getPunchInTime(), attendance.getPunchOutTime()));
+
+                        // CRITICAL: Reset ALL status fields before complete recalculation
+                        resetAttendanceStatusFields(attendance);
+
+                        // Recalculate ALL attendance status from scratch
+                        recalculateFullAttendanceStatus(attendance, counted, countedAsThirdLate);
+                    } else {
+                        // Still punched in: the punch-out works out hours and status from the adjusted punch-in
+                        attendance.setRemarks("Updated from permission hours approval");
+                    }
+
+                    // Flush now: a punch-out that committed since the read fails the version check here,
+                    // before the summary delta is recorded
+                    attendanceRepository.saveAndFlush(attendance);
+                    attendanceSummaryService.recordChange(before, attendance);
+                    eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
                 }
             } else {
                 // Create new attendance record if none exists
@@ -240,17 +291,17 @@ public class PermissionHoursService {
                 attendance.setPunchOutTime(punchOutTime);
                 
                 // Calculate hours worked
-                Duration duration = Duration.between(punchInTime, punchOutTime);
-                double hoursWorked = duration.toMinutes() / 60.0;
-                attendance.setHoursWorked(hoursWorked);
+                attendance.setHoursWorked(AttendancePolicyEngine.hoursBetween(punchInTime, punchOutTime));
                 
-                // Calculate full status including late login
-                recalculateFullAttendanceStatus(attendance);
+                // Calculate full status including late login; nothing was counted for this day yet
+                recalculateFullAttendanceStatus(attendance, null, false);
                 
                 attendanceRepository.save(attendance);
-                
-                System.out.println("DEBUG: New attendance created with permission hours");
+                attendanceSummaryService.recordChange(AttendanceSummaryService.Contribution.NONE, attendance);
+                eventPublisher.publishEvent(new PunchStatusChangedEvent(employeeId));
             }
+        } catch (OptimisticLockingFailureException e) {
+            throw e; // a concurrent attendance write; approvePermissionHours retries on fresh state
         } catch (Exception e) {
             throw new RuntimeException("Failed to adjust attendance for permission hours: " + e.getMessage(), e);
         }
@@ -262,163 +313,52 @@ public class PermissionHoursService {
         attendance.setIsLateLogin(false);
         attendance.setIdleTime(0.0);
         attendance.setRemarks("Updated from permission hours approval");
-        System.out.println("DEBUG: Reset all status fields for fresh calculation");
     }
 
-    // New method to fully recalculate attendance status from scratch
-    private void recalculateFullAttendanceStatus(Attendance attendance) {
-        System.out.println("=== STARTING COMPLETE STATUS RECALCULATION ===");
-        System.out.println("Input - PunchIn: " + attendance.getPunchInTime() + 
-                          ", PunchOut: " + attendance.getPunchOutTime() +
-                          ", Hours: " + attendance.getHoursWorked());
-        
-        // Get department settings directly
-        DepartmentSettings settings = getDepartmentSettingsDirectly(attendance.getEmployee().getEmployeeId());
-        
-        // Manual status calculation
-        calculateAttendanceStatusManually(attendance, settings);
-        
-        // Then specifically recalculate late login status
-        recalculateLateLoginStatus(attendance, settings);
-        
-        System.out.println("=== RECALCULATION COMPLETE ===");
-        System.out.println("Final Status: " + attendance.getStatus());
-        System.out.println("Final Hours: " + attendance.getHoursWorked());
-        System.out.println("Is Late Login: " + attendance.getIsLateLogin());
-        System.out.println("Idle Time: " + attendance.getIdleTime());
-    }
+    // Recalculate all status fields from scratch with the shared attendance policy, keeping the worked-day
+    // and late-login counters in step as a punch-out would. counted is what the row already added to them
+    // (null if nothing), countedAsThirdLate whether that late login was the month's every-3rd half day.
+    // A late login that no longer counts is taken back, but later late logins of the month keep their status.
+    private void recalculateFullAttendanceStatus(Attendance attendance, AttendancePolicyEngine.Result counted,
+                                                 boolean countedAsThirdLate) {
+        DepartmentSettings settings = getDepartmentSettingsDirectly(attendance.getEmployee());
+        String employeeId = attendance.getEmployee().getEmployeeId();
+        LocalDate date = attendance.getDate();
 
-    // Get department settings directly from repository
- // In PermissionHoursService.java - replace the getDepartmentSettingsDirectly method:
+        AttendancePolicyEngine.Result result = attendancePolicyEngine.evaluate(attendance.getPunchInTime().toLocalTime(),
+                attendance.getHoursWorked(), settings, Boolean.TRUE.equals(attendance.getIsOtDay()));
 
-    private DepartmentSettings getDepartmentSettingsDirectly(String employeeId) {
-        try {
-            Employee employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new RuntimeException("Employee not found: " + employeeId));
-            
-            if (employee.getJobDetails() != null && employee.getJobDetails().getDeptId() != null) {
-                String departmentId = employee.getJobDetails().getDeptId();
-                
-                // Get all settings and filter manually
-                List<DepartmentSettings> allSettings = departmentSettingsRepository.findAll();
-                
-                return allSettings.stream()
-                    .filter(setting -> {
-                        // Try different possible field names for department ID
-                        String settingDeptId = null;
-                        
-                        // Option 1: getDepartmentId() method
-                        try {
-                            java.lang.reflect.Method method = setting.getClass().getMethod("getDepartmentId");
-                            settingDeptId = (String) method.invoke(setting);
-                        } catch (Exception e) {
-                            // Method doesn't exist, try other options
-                        }
-                        
-                        // Option 2: getId() method
-                        if (settingDeptId == null) {
-                            try {
-                                java.lang.reflect.Method method = setting.getClass().getMethod("getId");
-                                Object result = method.invoke(setting);
-                                if (result != null) {
-                                    settingDeptId = result.toString();
-                                }
-                            } catch (Exception e) {
-                                // Method doesn't exist
-                            }
-                        }
-                        
-                        // Option 3: Check if there's a deptId field directly
-                        if (settingDeptId == null) {
-                            try {
-                                java.lang.reflect.Field field = setting.getClass().getDeclaredField("deptId");
-                                field.setAccessible(true);
-                                settingDeptId = (String) field.get(setting);
-                            } catch (Exception e) {
-                                // Field doesn't exist
-                            }
-                        }
-                        
-                        return settingDeptId != null && settingDeptId.equals(departmentId);
-                    })
-                    .findFirst()
-                    .orElse(getDefaultDepartmentSettings());
-            }
-        } catch (Exception e) {
-            System.out.println("Error getting department settings: " + e.getMessage());
+        boolean wasWorkedDay = counted != null && counted.countsAsWorkedDay();
+        if (result.countsAsWorkedDay() != wasWorkedDay) {
+            employeeRepository.addWorkedDays(employeeId, result.countsAsWorkedDay() ? 1 : -1);
         }
-        return getDefaultDepartmentSettings();
-    }
-
-    // Default department settings fallback
-    private DepartmentSettings getDefaultDepartmentSettings() {
-        DepartmentSettings defaultSettings = new DepartmentSettings();
-        defaultSettings.setHalfDayThreshold(4.0);
-        defaultSettings.setFullDayThreshold(8.0);
-        defaultSettings.setLateLoginThreshold(LocalTime.of(9, 30));
-        return defaultSettings;
-    }
-
-    // Manual attendance status calculation
-    private void calculateAttendanceStatusManually(Attendance attendance, DepartmentSettings settings) {
-        double hoursWorked = attendance.getHoursWorked();
-        
-        if (hoursWorked < settings.getHalfDayThreshold()) {
-            attendance.setStatus("Absent");
-            attendance.setIdleTime(settings.getFullDayThreshold());
-        } else if (hoursWorked >= settings.getHalfDayThreshold() && hoursWorked < settings.getFullDayThreshold()) {
-            attendance.setStatus("Half Day");
-            attendance.setIdleTime(settings.getFullDayThreshold() - hoursWorked);
-        } else {
-            attendance.setStatus("Present (On Time)");
-            attendance.setIdleTime(Math.max(0, settings.getFullDayThreshold() - hoursWorked));
+        boolean wasLateLogin = counted != null && counted.countsAsLateLogin();
+        if (result.countsAsLateLogin() && wasLateLogin) {
+            // Still the same late login of the month, so the every-3rd rule decides as it did before
+            result = result.withLateLoginCount(countedAsThirdLate ? AttendancePolicyEngine.LATE_LOGINS_PER_HALF_DAY : 1);
+        } else if (result.countsAsLateLogin()) {
+            result = result.withLateLoginCount(
+                    lateLoginCounterRepository.incrementAndGet(employeeId, date.getMonthValue(), date.getYear()));
+        } else if (wasLateLogin) {
+            lateLoginCounterRepository.decrement(employeeId, date.getMonthValue(), date.getYear());
         }
-    }
 
-    // Method to specifically recalculate late login status
-    private void recalculateLateLoginStatus(Attendance attendance, DepartmentSettings settings) {
-        if (attendance.getPunchInTime() == null) {
-            attendance.setIsLateLogin(false);
-            return;
-        }
-        
-        LocalTime punchInTime = attendance.getPunchInTime().toLocalTime();
-        boolean isLateLogin = punchInTime.isAfter(settings.getLateLoginThreshold());
-        attendance.setIsLateLogin(isLateLogin);
-        
-        System.out.println("DEBUG: Late login calculation - " + 
-                          "PunchIn: " + punchInTime + 
-                          ", Threshold: " + settings.getLateLoginThreshold() +
-                          ", IsLate: " + isLateLogin);
+        attendance.setAttendanceStatus(result.getStatus());
+        attendance.setIdleTime(result.getIdleTime());
+        attendance.setIsLateLogin(result.isLateLogin());
+
+        log.debug("Recalculated attendance after permission approval: {}, late login {}",
+                result.getStatus(), result.isLateLogin());
     }
 
-    // Force recalculation method to bypass any bugs
-    private void forceRecalculateAttendanceStatus(Attendance attendance) {
-        try {
-            // Get fresh department settings
-            DepartmentSettings settings = getDepartmentSettingsDirectly(attendance.getEmployee().getEmployeeId());
-            
-            double hoursWorked = attendance.getHoursWorked();
-            System.out.println("FORCE RECALCULATION - Hours: " + hoursWorked + 
-                              ", HalfDayThresh: " + settings.getHalfDayThreshold() +
-                              ", FullDayThresh: " + settings.getFullDayThreshold());
-            
-            // Manual status calculation
-            calculateAttendanceStatusManually(attendance, settings);
-            
-            // Recalculate late login
-            if (attendance.getPunchInTime() != null) {
-                LocalTime punchInTime = attendance.getPunchInTime().toLocalTime();
-                boolean isLateLogin = punchInTime.isAfter(settings.getLateLoginThreshold());
-                attendance.setIsLateLogin(isLateLogin);
-            }
-            
-            System.out.println("FORCE RECALCULATION RESULT: " + attendance.getStatus());
-            
-        } catch (Exception e) {
-            System.out.println("Error in force recalculation: " + e.getMessage());
-            // Fallback to manual calculation with default settings
-            calculateAttendanceStatusManually(attendance, getDefaultDepartmentSettings());
+    // Settings of the employee's department (JobDetails.deptId) from the shared snapshot; defaults if none match
+    private DepartmentSettings getDepartmentSettingsDirectly(Employee employee) {
+        JobDetails jobDetails = employee.getJobDetails();
+        if (jobDetails == null || jobDetails.getDeptId() == null) {
+            return attendancePolicyEngine.defaultSettings();
         }
+        String empType = employee.getTypeOfEmployee() != null ? employee.getTypeOfEmployee().name() : null;
+        return departmentSettingsCache.resolveByDepartmentId(jobDetails.getDeptId(), empType)
+                .orElseGet(attendancePolicyEngine::defaultSettings);
     }
-}
\ No newline at end of file
+}
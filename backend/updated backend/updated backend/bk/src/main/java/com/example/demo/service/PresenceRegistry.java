@@ -0,0 +1,247 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.Attendance;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.ExperienceRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Today's "who's in" board, kept in memory. Punch paths report transitions with data
+ * they already hold, so updates cost no queries; per-department counts are kept
+ * alongside the member maps and read without iterating. Rebuilt from today's attendance
+ * rows (open and punched out) on startup and cleared at midnight.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PresenceRegistry {
+
+    public enum PresenceState { IN, LATE, OT, OUT }
+
+    private static final String UNASSIGNED = "Unassigned";
+
+    private final AttendanceRepository attendanceRepository;
+    private final ExperienceRepository experienceRepository;
+
+    private final Map<String, Presence> byEmployee = new ConcurrentHashMap<>();
+    private final Map<String, DepartmentPresence> byDepartment = new ConcurrentHashMap<>();
+
+    // Employee punched in (state is OT on an OT day, LATE on a late login, IN otherwise)
+    public void punchedIn(String employeeId, String employeeName, String department,
+                          LocalDateTime punchInTime, boolean lateLogin, boolean otDay) {
+        PresenceState state = otDay ? PresenceState.OT : lateLogin ? PresenceState.LATE : PresenceState.IN;
+        put(new Presence(employeeId, employeeName, department != null ? department : UNASSIGNED,
+                state, lateLogin, otDay, punchInTime, null));
+    }
+
+    // Employee punched out; unknown employees (e.g. punched in before a restart on another day) are ignored
+    public void punchedOut(String employeeId, LocalDateTime punchOutTime) {
+        Presence current = byEmployee.get(employeeId);
+        if (current != null) {
+            put(current.out(punchOutTime));
+        }
+    }
+
+    // Run the update once the surrounding transaction commits (immediately when there is none)
+    public void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    // Counts per department: in (incl. late and OT), late, ot, out
+    public Map<String, Map<String, Integer>> getDepartmentCounts() {
+        Map<String, Map<String, Integer>> counts = new TreeMap<>();
+        byDepartment.forEach((department, presence) -> counts.put(department, presence.counts.asMap()));
+        return counts;
+    }
+
+    // Employees punched in and not yet out, across all departments (open attendance rows today)
+    public int getOpenCount() {
+        int open = 0;
+        for (DepartmentPresence presence : byDepartment.values()) {
+            open += presence.counts.in;
+        }
+        return open;
+    }
+
+    public Map<String, Object> getDepartmentPresence(String department) {
+        DepartmentPresence presence = byDepartment.get(department);
+        Map<String, Object> response = new HashMap<>();
+        response.put("department", department);
+        response.put("counts", presence != null ? presence.counts.asMap() : Counts.EMPTY.asMap());
+        response.put("members", presence != null ? new ArrayList<>(presence.members.values()) : List.of());
+        return response;
+    }
+
+    // Start from today's punched-in rows: the open ones are in, the punched-out ones out
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        List<Attendance> today = attendanceRepository.findByDateAndPunchInTimeIsNotNull(LocalDate.now());
+
+        List<String> employeeIds = new ArrayList<>();
+        for (Attendance attendance : today) {
+            employeeIds.add(attendance.getEmployee().getEmployeeId());
+        }
+        Map<String, String> departments = new HashMap<>();
+        if (!employeeIds.isEmpty()) {
+            for (Object[] row : experienceRepository.findCurrentDepartmentsByEmployeeIds(employeeIds)) {
+                departments.put((String) row[0], (String) row[1]);
+            }
+        }
+
+        synchronized (this) {
+            clear();
+            for (Attendance attendance : today) {
+                String employeeId = attendance.getEmployee().getEmployeeId();
+                punchedIn(employeeId, attendance.getEmployeeName(), departments.get(employeeId),
+                        attendance.getPunchInTime(),
+                        Boolean.TRUE.equals(attendance.getIsLateLogin()), Boolean.TRUE.equals(attendance.getIsOtDay()));
+                if (attendance.getPunchOutTime() != null) {
+                    punchedOut(employeeId, attendance.getPunchOutTime());
+                }
+            }
+        }
+        log.info("Presence registry rebuilt with {} employees in {} ms",
+                byEmployee.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    // A new day starts with nobody in
+    @Scheduled(cron = "0 0 0 * * ?")
+    public synchronized void clear() {
+        byEmployee.clear();
+        byDepartment.clear();
+    }
+
+    private synchronized void put(Presence presence) {
+        Presence previous = byEmployee.put(presence.getEmployeeId(), presence);
+        if (previous != null && !previous.getDepartment().equals(presence.getDepartment())) {
+            remove(previous);
+            previous = null;
+        }
+        DepartmentPresence department = byDepartment.computeIfAbsent(presence.getDepartment(), key -> new DepartmentPresence());
+        department.members.put(presence.getEmployeeId(), presence);
+        department.counts = department.counts.minus(previous).plus(presence);
+    }
+
+    private void remove(Presence presence) {
+        DepartmentPresence department = byDepartment.get(presence.getDepartment());
+        if (department != null) {
+            department.members.remove(presence.getEmployeeId());
+            department.counts = department.counts.minus(presence);
+        }
+    }
+
+    private static final class DepartmentPresence {
+        private final Map<String, Presence> members = new ConcurrentHashMap<>();
+        private volatile Counts counts = Counts.EMPTY;
+    }
+
+    // Immutable counters, replaced as a whole so readers always see a consistent set
+    private static final class Counts {
+        private static final Counts EMPTY = new Counts(0, 0, 0, 0);
+
+        private final int in;
+        private final int late;
+        private final int ot;
+        private final int out;
+
+        private Counts(int in, int late, int ot, int out) {
+            this.in = in;
+            this.late = late;
+            this.ot = ot;
+            this.out = out;
+        }
+
+        private Counts plus(Presence presence) {
+            return add(presence, 1);
+        }
+
+        private Counts minus(Presence presence) {
+            return presence == null ? this : add(presence, -1);
+        }
+
+        private Counts add(Presence presence, int sign) {
+            boolean isOut = presence.getState() == PresenceState.OUT;
+            return new Counts(
+                    in + (isOut ? 0 : sign),
+                    late + (!isOut && presence.isLateLogin() ? sign : 0),
+                    ot + (!isOut && presence.isOtDay() ? sign : 0),
+                    out + (isOut ? sign : 0));
+        }
+
+        private Map<String, Integer> asMap() {
+            Map<String, Integer> map = new HashMap<>();
+            map.put("in", in);
+            map.put("late", late);
+            map.put("ot", ot);
+            map.put("out", out);
+            return map;
+        }
+    }
+
+    /** One employee's presence today. */
+    public static final class Presence {
+        private final String employeeId;
+        private final String employeeName;
+        private final String department;
+        private final PresenceState state;
+        private final boolean lateLogin;
+        private final boolean otDay;
+        private final LocalDateTime punchInTime;
+        private final LocalDateTime punchOutTime;
+
+        private Presence(String employeeId, String employeeName, String department, PresenceState state,
+                         boolean lateLogin, boolean otDay, LocalDateTime punchInTime, LocalDateTime punchOutTime) {
+            this.employeeId = employeeId;
+            this.employeeName = employeeName;
+            this.department = department;
+            this.state = state;
+            this.lateLogin = lateLogin;
+            this.otDay = otDay;
+            this.punchInTime = punchInTime;
+            this.punchOutTime = punchOutTime;
+        }
+
+        private Presence out(LocalDateTime at) {
+            return new Presence(employeeId, employeeName, department, PresenceState.OUT, lateLogin, otDay, punchInTime, at);
+        }
+
+        public String getEmployeeId() { return employeeId; }
+        public String getEmployeeName() { return employeeName; }
+        public String getDepartment() { return department; }
+        public PresenceState getState() { return state; }
+        public boolean isLateLogin() { return lateLogin; }
+        public boolean isOtDay() { return otDay; }
+        public LocalDateTime getPunchInTime() { return punchInTime; }
+        public LocalDateTime getPunchOutTime() { return punchOutTime; }
+    }
+}
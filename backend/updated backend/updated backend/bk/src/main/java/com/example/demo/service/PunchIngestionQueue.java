@@ -0,0 +1,402 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.exception.AttendanceException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.model.PunchInReceipt;
+import com.example.demo.repository.PunchInReceiptRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind ingestion for punch-ins. A request only checks the idempotency key, the
+ * employee's in-memory receipt and in-memory state (EmployeeSearchIndex for unknown or inactive
+ * employees, today's DayPlanRegistry plan for the punch window), enqueues the punch and returns;
+ * a small pool of writers drains the queue and persists punches in batches through
+ * AttendanceService.recordPunchIns, which still runs the full validation. Punches are evaluated
+ * at the time they were received, not the time they are written.
+ *
+ * Every accepted punch is stored as a QUEUED punch_in_receipt row before it is acknowledged, and
+ * its outcome is written in the same transaction as the punch. At startup the receipts of the last
+ * day are loaded again and QUEUED punches go back on the queue, so neither a crash nor a shutdown
+ * that could not drain the queue loses a punch, and a retried key still finds its receipt.
+ */
+@Slf4j
+@Component
+public class PunchIngestionQueue {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String SAVED = "SAVED";
+    public static final String REJECTED = "REJECTED";
+
+    private static final int CAPACITY = 50_000;
+    private static final int WRITERS = 4;
+    private static final int BATCH_SIZE = 200;
+    private static final long RECEIPT_TTL_HOURS = 24;
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+    private static final int MESSAGE_LENGTH = 255;
+
+    private final AttendanceService attendanceService;
+    private final EmployeeSearchIndex employeeSearchIndex;
+    private final DayPlanRegistry dayPlanRegistry;
+    private final PunchInReceiptRepository receiptRepository;
+    private final TransactionTemplate transaction;
+
+    private final BlockingQueue<QueuedPunch> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final Map<String, PunchReceipt> receiptsByKey = new ConcurrentHashMap<>();
+    private final Map<String, PunchReceipt> latestByEmployee = new ConcurrentHashMap<>();
+
+    private ExecutorService writers;
+    private volatile boolean running;
+
+    public PunchIngestionQueue(AttendanceService attendanceService, EmployeeSearchIndex employeeSearchIndex,
+                               DayPlanRegistry dayPlanRegistry, PunchInReceiptRepository receiptRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.attendanceService = attendanceService;
+        this.employeeSearchIndex = employeeSearchIndex;
+        this.dayPlanRegistry = dayPlanRegistry;
+        this.receiptRepository = receiptRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        resume();
+        AtomicInteger threadNumber = new AtomicInteger();
+        running = true;
+        writers = Executors.newFixedThreadPool(WRITERS, runnable -> {
+            Thread thread = new Thread(runnable, "punch-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < WRITERS; i++) {
+            writers.submit(this::writeLoop);
+        }
+    }
+
+    // Stop accepting punches and let the writers drain the queue; what they cannot finish stays QUEUED in the table
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("{} queued punch-ins not written before shutdown; they are written after the next start",
+                    queue.size());
+        }
+    }
+
+    // Load the receipts of the last day and queue again the punches that were accepted but never written
+    void resume() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(RECEIPT_TTL_HOURS);
+        List<PunchInReceipt> stored = new ArrayList<>(
+                receiptRepository.findByStatusAndReceivedAtBeforeOrderByReceivedAt(QUEUED, cutoff));
+        stored.addAll(receiptRepository.findByReceivedAtAfterOrderByReceivedAt(cutoff));
+
+        int requeued = 0;
+        for (PunchInReceipt row : stored) {
+            PunchReceipt receipt = PunchReceipt.of(row);
+            if (receiptsByKey.putIfAbsent(receipt.getIdempotencyKey(), receipt) != null) {
+                continue;
+            }
+            latestByEmployee.merge(receipt.getEmployeeId(), receipt,
+                    (latest, candidate) -> candidate.getReceivedAt().isAfter(latest.getReceivedAt()) ? candidate : latest);
+            if (QUEUED.equals(receipt.getStatus())
+                    && queue.offer(new QueuedPunch(receipt.getIdempotencyKey(), receipt.getEmployeeId(), receipt.getReceivedAt()))) {
+                requeued++;
+            }
+        }
+        if (!stored.isEmpty()) {
+            log.info("Loaded {} punch-in receipts, {} unwritten punches queued again", stored.size(), requeued);
+        }
+    }
+
+    /**
+     * Accept a punch-in for asynchronous persistence. Retrying with the same idempotency key
+     * returns the original receipt; a second punch for an employee already queued or saved
+     * today is rejected without touching the database, as are punches of unknown or inactive
+     * employees and punches outside the day's punch window.
+     */
+    public PunchReceipt enqueue(String employeeId, String idempotencyKey) {
+        PunchReceipt existing = receiptsByKey.get(idempotencyKey);
+        if (existing != null) {
+            if (!existing.getEmployeeId().equals(employeeId)) {
+                throw new AttendanceException("Idempotency key already used for another employee");
+            }
+            return existing;
+        }
+        if (!running) {
+            throw new AttendanceException("Punch ingestion is shutting down, please retry");
+        }
+
+        // At the precision the receipt table stores, so a reloaded receipt has the same time
+        PunchReceipt receipt = new PunchReceipt(idempotencyKey, employeeId, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        validate(employeeId, receipt.getReceivedAt());
+        PunchReceipt[] accepted = new PunchReceipt[1];
+
+        latestByEmployee.compute(employeeId, (id, latest) -> {
+            if (latest != null && latest.getReceivedAt().toLocalDate().equals(receipt.getReceivedAt().toLocalDate())
+                    && !REJECTED.equals(latest.getStatus())) {
+                // Same key raced in from another request: hand back that receipt
+                accepted[0] = latest.getIdempotencyKey().equals(idempotencyKey) ? latest : null;
+                return latest;
+            }
+            if (receiptsByKey.putIfAbsent(idempotencyKey, receipt) != null) {
+                accepted[0] = receiptsByKey.get(idempotencyKey);
+                return latest;
+            }
+            accepted[0] = receipt;
+            return receipt;
+        });
+
+        if (accepted[0] == null) {
+            throw new AttendanceException("Already punched in today");
+        }
+        if (accepted[0] != receipt) {
+            return accepted[0];
+        }
+
+        // Stored before it is acknowledged; from here on a restart or crash cannot lose it
+        try {
+            receiptRepository.insertQueued(idempotencyKey, employeeId, receipt.getReceivedAt());
+        } catch (DataIntegrityViolationException e) {
+            forget(receipt);
+            return storedReceipt(idempotencyKey, employeeId);
+        } catch (RuntimeException e) {
+            forget(receipt);
+            throw e;
+        }
+        if (!queue.offer(new QueuedPunch(idempotencyKey, employeeId, receipt.getReceivedAt()))) {
+            receiptRepository.deleteById(idempotencyKey);
+            forget(receipt);
+            throw new AttendanceException("Punch queue is full, please retry");
+        }
+        return receipt;
+    }
+
+    private void forget(PunchReceipt receipt) {
+        receiptsByKey.remove(receipt.getIdempotencyKey(), receipt);
+        latestByEmployee.remove(receipt.getEmployeeId(), receipt);
+    }
+
+    // The key is in the table but not in memory (taken by another instance): answer from the stored receipt
+    private PunchReceipt storedReceipt(String idempotencyKey, String employeeId) {
+        PunchInReceipt stored = receiptRepository.findById(idempotencyKey)
+                .orElseThrow(() -> new AttendanceException("Punch could not be queued, please retry"));
+        if (!stored.getEmployeeId().equals(employeeId)) {
+            throw new AttendanceException("Idempotency key already used for another employee");
+        }
+        return PunchReceipt.of(stored);
+    }
+
+    // Refuse punches that cannot succeed before they take a queue slot; no queries once the caches are loaded
+    private void validate(String employeeId, LocalDateTime receivedAt) {
+        EmployeeSearchIndex.Entry employee = employeeSearchIndex.get(employeeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
+        if (!employee.isActive()) {
+            throw new AttendanceException("Employee is not active: " + employeeId);
+        }
+
+        DayPlanRegistry.DayPlan plan = dayPlanRegistry.get(employeeId, receivedAt.toLocalDate());
+        if (plan == null) {
+            return; // not in today's plan yet (e.g. added since it was built); the writer decides
+        }
+        LocalTime now = receivedAt.toLocalTime();
+        if (now.isBefore(plan.getPunchInStart()) || !now.isBefore(plan.getPunchOutEnd())) {
+            throw new AttendanceException("Punch In is only allowed between " +
+                    plan.getPunchInStart() + " and " + plan.getPunchOutEnd() + ". Current time: " + now);
+        }
+        if (plan.isPunchedIn() || plan.isPunchedOut()) {
+            throw new AttendanceException("Already punched in today");
+        }
+        if (!plan.isPunchInOpen(now)) {
+            throw new AttendanceException(AttendanceService.PUNCH_IN_NOT_ENABLED);
+        }
+    }
+
+    public Optional<PunchReceipt> getReceipt(String idempotencyKey) {
+        return Optional.ofNullable(receiptsByKey.get(idempotencyKey));
+    }
+
+    // Latest queued punch of the employee on the date, if any
+    public Optional<PunchReceipt> getLatestReceipt(String employeeId, LocalDate date) {
+        PunchReceipt latest = latestByEmployee.get(employeeId);
+        if (latest == null || !latest.getReceivedAt().toLocalDate().equals(date)) {
+            return Optional.empty();
+        }
+        return Optional.of(latest);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    // Forget finished receipts once they are older than a day
+    @Scheduled(cron = "0 0 * * * ?")
+    public void evictExpiredReceipts() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(RECEIPT_TTL_HOURS);
+        receiptsByKey.values().removeIf(receipt -> isExpired(receipt, cutoff));
+        latestByEmployee.values().removeIf(receipt -> isExpired(receipt, cutoff));
+        receiptRepository.deleteFinishedBefore(cutoff);
+    }
+
+    private static boolean isExpired(PunchReceipt receipt, LocalDateTime cutoff) {
+        return !QUEUED.equals(receipt.getStatus()) && receipt.getReceivedAt().isBefore(cutoff);
+    }
+
+    private void writeLoop() {
+        List<QueuedPunch> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedPunch first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Punch writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void write(List<QueuedPunch> batch) {
+        try {
+            complete(batch, transaction.execute(status -> persist(batch)));
+        } catch (RuntimeException e) {
+            // The batch was rolled back as a whole; retry one by one so a single bad row only fails itself
+            for (QueuedPunch punch : batch) {
+                try {
+                    complete(List.of(punch), transaction.execute(status -> persist(List.of(punch))));
+                } catch (RuntimeException single) {
+                    Map<String, String> rejected = new HashMap<>();
+                    rejected.put(punch.getIdempotencyKey(), single.getMessage());
+                    transaction.executeWithoutResult(status -> finish(List.of(punch), rejected));
+                    complete(List.of(punch), rejected);
+                }
+            }
+        }
+    }
+
+    // The punches and their receipts' outcome commit together, so a written punch is never left QUEUED
+    private Map<String, String> persist(List<QueuedPunch> punches) {
+        Map<String, String> rejected = attendanceService.recordPunchIns(punches);
+        finish(punches, rejected);
+        return rejected;
+    }
+
+    private void finish(List<QueuedPunch> punches, Map<String, String> rejected) {
+        List<String> saved = new ArrayList<>();
+        for (QueuedPunch punch : punches) {
+            String key = punch.getIdempotencyKey();
+            if (rejected.containsKey(key)) {
+                receiptRepository.finish(List.of(key), REJECTED, truncate(rejected.get(key)));
+            } else {
+                saved.add(key);
+            }
+        }
+        if (!saved.isEmpty()) {
+            receiptRepository.finish(saved, SAVED, null);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > MESSAGE_LENGTH ? message.substring(0, MESSAGE_LENGTH) : message;
+    }
+
+    // Update the in-memory receipts once the outcome has committed
+    private void complete(List<QueuedPunch> punches, Map<String, String> rejected) {
+        for (QueuedPunch punch : punches) {
+            PunchReceipt receipt = receiptsByKey.get(punch.getIdempotencyKey());
+            if (receipt == null) {
+                continue;
+            }
+            if (rejected.containsKey(punch.getIdempotencyKey())) {
+                receipt.finish(REJECTED, rejected.get(punch.getIdempotencyKey()));
+            } else {
+                receipt.finish(SAVED, null);
+            }
+        }
+    }
+
+    // One accepted punch waiting to be written
+    public static class QueuedPunch {
+        private final String idempotencyKey;
+        private final String employeeId;
+        private final LocalDateTime receivedAt;
+
+        public QueuedPunch(String idempotencyKey, String employeeId, LocalDateTime receivedAt) {
+            this.idempotencyKey = idempotencyKey;
+            this.employeeId = employeeId;
+            this.receivedAt = receivedAt;
+        }
+
+        public String getIdempotencyKey() { return idempotencyKey; }
+        public String getEmployeeId() { return employeeId; }
+        public LocalDateTime getReceivedAt() { return receivedAt; }
+    }
+
+    // What the client gets back, and what punch status reports while the write is pending
+    public static class PunchReceipt {
+        private final String idempotencyKey;
+        private final String employeeId;
+        private final LocalDateTime receivedAt;
+        private volatile String status = QUEUED;
+        private volatile String message;
+
+        PunchReceipt(String idempotencyKey, String employeeId, LocalDateTime receivedAt) {
+            this.idempotencyKey = idempotencyKey;
+            this.employeeId = employeeId;
+            this.receivedAt = receivedAt;
+        }
+
+        // In-memory receipt for a stored one
+        static PunchReceipt of(PunchInReceipt stored) {
+            PunchReceipt receipt = new PunchReceipt(stored.getIdempotencyKey(), stored.getEmployeeId(), stored.getReceivedAt());
+            if (!QUEUED.equals(stored.getStatus())) {
+                receipt.finish(stored.getStatus(), stored.getMessage());
+            }
+            return receipt;
+        }
+
+        void finish(String status, String message) {
+            this.message = message;
+            this.status = status;
+        }
+
+        public String getIdempotencyKey() { return idempotencyKey; }
+        public String getEmployeeId() { return employeeId; }
+        public LocalDateTime getReceivedAt() { return receivedAt; }
+        public String getStatus() { return status; }
+        public String getMessage() { return message; }
+    }
+}
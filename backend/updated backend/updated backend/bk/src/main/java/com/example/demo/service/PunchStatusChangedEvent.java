@@ -0,0 +1,15 @@
+package com.example.demo.service;
+
+/**
+ * Published when something changes an employee's punch status (punch in or out,
+ * auto punch-out, permission adjustment). Delivered to SSE subscribers after commit.
+ */
+public class PunchStatusChangedEvent {
+    private final String employeeId;
+
+    public PunchStatusChangedEvent(String employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getEmployeeId() { return employeeId; }
+}
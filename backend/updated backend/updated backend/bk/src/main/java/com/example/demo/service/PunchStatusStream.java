@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes punch status to subscribed clients over Server-Sent Events instead of letting
+ * them poll. Status is only recomputed for employees that have a subscriber: after a
+ * committed change, at the minute their punch window opens, turns late or closes, and
+ * when the day changes. A heartbeat comment keeps idle connections open.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PunchStatusStream {
+
+    private static final long EMITTER_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    private final AttendanceService attendanceService;
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> lastSent = new ConcurrentHashMap<>();
+
+    // Status is loaded and sent off the caller's thread, so punches never wait on slow clients
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "punch-status-sse");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseEmitter subscribe(String employeeId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        subscribers.compute(employeeId, (id, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+
+        Runnable remove = () -> unsubscribe(employeeId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        // Current status straight away, so the client needs no initial poll
+        sender.execute(() -> push(employeeId));
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPunchStatusChanged(PunchStatusChangedEvent event) {
+        if (subscribers.containsKey(event.getEmployeeId())) {
+            sender.execute(() -> push(event.getEmployeeId()));
+        }
+    }
+
+    // Re-push for subscribers whose punch window opens, turns late or closes this minute, and at midnight
+    @Scheduled(cron = "0 * * * * ?")
+    public void pushWindowChanges() {
+        LocalTime now = LocalTime.now().withSecond(0).withNano(0);
+        LocalDate today = LocalDate.now();
+        for (String employeeId : subscribers.keySet()) {
+            Map<String, Object> status = lastSent.get(employeeId);
+            if (status == null || !today.equals(status.get("date"))
+                    || now.equals(status.get("punchInStart"))
+                    || now.equals(status.get("lateLoginThreshold"))
+                    || now.equals(status.get("punchOutEnd"))) {
+                sender.execute(() -> push(employeeId));
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 25_000)
+    public void heartbeat() {
+        subscribers.forEach((employeeId, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(employeeId, emitter);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        subscribers.clear();
+    }
+
+    private void push(String employeeId) {
+        List<SseEmitter> emitters = subscribers.get(employeeId);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        Map<String, Object> status;
+        try {
+            status = attendanceService.getPunchStatus(employeeId);
+            status.put("punchOutEnabled", attendanceService.isPunchOutEnabled(employeeId));
+        } catch (RuntimeException e) {
+            log.warn("Could not load punch status for {}", employeeId, e);
+            return;
+        }
+        lastSent.put(employeeId, status);
+
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("punch-status").data(status));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(employeeId, emitter);
+            }
+        }
+    }
+
+    private void unsubscribe(String employeeId, SseEmitter emitter) {
+        subscribers.computeIfPresent(employeeId, (id, emitters) -> {
+            emitters.remove(emitter);
+            if (emitters.isEmpty()) {
+                lastSent.remove(employeeId);
+                return null;
+            }
+            return emitters;
+        });
+    }
+}
@@ -10,6 +10,7 @@ public class AttendanceConverter {
             attendance.getId(),
             attendance.getEmployee().getEmployeeId(),
             attendance.getEmployee().getName(),
+            attendance.getDate(),
             attendance.getPunchInTime(),
             attendance.getPunchOutTime(),
             attendance.getHoursWorked(),
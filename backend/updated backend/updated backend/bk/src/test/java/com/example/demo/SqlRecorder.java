@@ -0,0 +1,35 @@
+package com.example.demo;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Statement inspector registered for the test run (see application.properties): between start()
+ * and stop() it keeps every SQL string Hibernate sends, in order, so a test can check how its
+ * statements are interleaved. It records nothing otherwise.
+ */
+public class SqlRecorder implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+    private static volatile boolean recording;
+
+    public static void start() {
+        STATEMENTS.clear();
+        recording = true;
+    }
+
+    public static List<String> stop() {
+        recording = false;
+        return List.copyOf(STATEMENTS);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (recording) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+}
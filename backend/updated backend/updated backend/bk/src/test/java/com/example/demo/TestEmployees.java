@@ -0,0 +1,39 @@
+package com.example.demo;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.demo.model.Employee;
+import com.example.demo.model.Experience;
+
+/**
+ * Builders for the employees the integration tests save. Ids are expected to be unique per
+ * test (e.g. suffixed with System.nanoTime()), since the H2 schema lives for the whole run.
+ */
+public final class TestEmployees {
+
+    private TestEmployees() {
+    }
+
+    /** An active full-time employee with unique email and phone; override fields before build(). */
+    public static Employee.EmployeeBuilder employee(String employeeId, String name) {
+        return Employee.builder()
+                .employeeId(employeeId)
+                .name(name)
+                .email(employeeId.toLowerCase() + "@example.com")
+                .phone(employeeId)
+                .isActive(true)
+                .typeOfEmployee(Employee.EmployeeType.FULL_TIME)
+                .experienceDetails(List.of());
+    }
+
+    /** The employee's current ("Present") assignment to a department. */
+    public static Experience currentExperience(Employee employee, String department, LocalDate joiningDate) {
+        return Experience.builder()
+                .employee(employee)
+                .department(department)
+                .joiningDate(joiningDate)
+                .lastWorkingDate("Present")
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Employee;
+
+@SpringBootTest
+class EmployeeRepositoryTest {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    void counterIncrementsKeepTotalWorkedDaysInStep() {
+        String employeeId = "CNT-" + System.nanoTime();
+        employeeRepository.save(TestEmployees.employee(employeeId, "Counter " + employeeId)
+                .workedDays(4)
+                .otIncentiveDays(1)
+                .totalWorkedDays(5)
+                .build());
+
+        assertEquals(1, employeeRepository.incrementWorkedDays(employeeId));
+        employeeRepository.incrementWorkedDays(employeeId);
+        employeeRepository.incrementOtIncentiveDays(employeeId);
+        employeeRepository.incrementOtPendingDays(employeeId);
+
+        Employee employee = employeeRepository.findById(employeeId).orElseThrow();
+        assertEquals(6, employee.getWorkedDays());
+        assertEquals(2, employee.getOtIncentiveDays());
+        assertEquals(8, employee.getTotalWorkedDays());
+        assertEquals(1, employee.getOtPendingDays());
+    }
+}
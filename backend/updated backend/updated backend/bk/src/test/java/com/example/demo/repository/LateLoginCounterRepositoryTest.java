@@ -0,0 +1,35 @@
+package com.example.demo.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.TestEmployees;
+
+@SpringBootTest
+@Transactional
+class LateLoginCounterRepositoryTest {
+
+    @Autowired
+    private LateLoginCounterRepository lateLoginCounterRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    void incrementAndGetCreatesTheCounterAndCountsUp() {
+        String employeeId = "LATE-" + System.nanoTime();
+        employeeRepository.saveAndFlush(TestEmployees.employee(employeeId, "Late " + employeeId)
+                .build());
+
+        assertEquals(1, lateLoginCounterRepository.incrementAndGet(employeeId, 5, 2024));
+        assertEquals(2, lateLoginCounterRepository.incrementAndGet(employeeId, 5, 2024));
+        assertEquals(3, lateLoginCounterRepository.incrementAndGet(employeeId, 5, 2024));
+
+        // A different month has its own counter
+        assertEquals(1, lateLoginCounterRepository.incrementAndGet(employeeId, 6, 2024));
+    }
+}
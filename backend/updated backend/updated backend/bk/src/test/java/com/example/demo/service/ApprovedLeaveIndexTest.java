@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.LeaveDayType;
+import com.example.demo.model.LeaveRequest;
+import com.example.demo.model.LeaveStatus;
+import com.example.demo.model.LeaveType;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.LeaveRequestRepository;
+import com.example.demo.service.ApprovedLeaveIndex.Coverage;
+
+@SpringBootTest
+class ApprovedLeaveIndexTest {
+
+    @Autowired
+    private ApprovedLeaveIndex approvedLeaveIndex;
+
+    @Autowired
+    private LeaveService leaveService;
+
+    @Autowired
+    private AttendancePolicyEngine attendancePolicyEngine;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private LeaveRequestRepository leaveRequestRepository;
+
+    @Test
+    void approvedRangesAndHalfDaySessionsAreIndexed() {
+        String employeeId = "LEAVE-" + System.nanoTime();
+        employeeRepository.save(TestEmployees.employee(employeeId, "Leave " + employeeId)
+                .build());
+
+        LocalDate start = LocalDate.of(2022, 5, 9);
+        save(employeeId, start, start.plusDays(2), LeaveStatus.APPROVED, LeaveDayType.FULL_DAY, null);
+        save(employeeId, start.plusDays(7), start.plusDays(7), LeaveStatus.APPROVED, LeaveDayType.HALF_DAY, "Morning Half");
+        LeaveRequest pending = save(employeeId, start.plusDays(14), start.plusDays(14),
+                LeaveStatus.PENDING, LeaveDayType.FULL_DAY, null);
+        approvedLeaveIndex.refresh(employeeId);
+
+        assertEquals(Coverage.NONE, approvedLeaveIndex.coverage(employeeId, start.minusDays(1)));
+        assertEquals(Coverage.FULL_DAY, approvedLeaveIndex.coverage(employeeId, start));
+        assertEquals(Coverage.FULL_DAY, approvedLeaveIndex.coverage(employeeId, start.plusDays(2)));
+        assertEquals(Coverage.NONE, approvedLeaveIndex.coverage(employeeId, start.plusDays(3)));
+        assertEquals(Coverage.MORNING, approvedLeaveIndex.coverage(employeeId, start.plusDays(7)));
+        assertEquals(Coverage.NONE, approvedLeaveIndex.coverage(employeeId, start.plusDays(14)));
+
+        // A morning half-day leave ends at the morning session's logout (13:00 by default)
+        DepartmentSettings settings = attendancePolicyEngine.defaultSettings();
+        assertTrue(approvedLeaveIndex.isOnLeave(employeeId, start.plusDays(7), LocalTime.of(9, 30), settings));
+        assertFalse(approvedLeaveIndex.isOnLeave(employeeId, start.plusDays(7), LocalTime.of(14, 0), settings));
+
+        // Approving through LeaveService updates the index once the transaction commits
+        leaveService.updateLeaveStatus(pending.getId(), LeaveStatus.APPROVED, "admin");
+        assertEquals(Coverage.FULL_DAY, approvedLeaveIndex.coverage(employeeId, start.plusDays(14)));
+
+        leaveService.updateLeaveStatus(pending.getId(), LeaveStatus.REJECTED, "admin");
+        assertEquals(Coverage.NONE, approvedLeaveIndex.coverage(employeeId, start.plusDays(14)));
+    }
+
+    private LeaveRequest save(String employeeId, LocalDate from, LocalDate to, LeaveStatus status,
+                              LeaveDayType dayType, String session) {
+        LeaveRequest leave = new LeaveRequest();
+        leave.setEmployeeId(employeeId);
+        leave.setEmployeeName("Leave " + employeeId);
+        leave.setFromDate(from);
+        leave.setToDate(to);
+        leave.setLeaveType(LeaveType.CASUAL);
+        leave.setStatus(status);
+        leave.setLeaveDayType(dayType);
+        leave.setHalfDaySession(session);
+        return leaveRequestRepository.save(leave);
+    }
+}
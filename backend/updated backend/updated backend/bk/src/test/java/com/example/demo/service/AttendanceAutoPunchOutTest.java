@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.SqlRecorder;
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceMonthlySummary;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.Employee;
+import com.example.demo.model.LateLoginCounter;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+
+@SpringBootTest
+class AttendanceAutoPunchOutTest {
+
+    // A Tuesday no other test writes attendance for
+    private static final LocalDate DATE = LocalDate.of(2017, 3, 7);
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceSummaryService attendanceSummaryService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Autowired
+    private LateLoginCounterRepository lateLoginCounterRepository;
+
+    @Test
+    void closesOpenRowsAndAppliesCountersOncePerChunk() {
+        String suffix = String.valueOf(System.nanoTime());
+        // No department settings: the defaults apply (punch-out end 20:00, late after 09:45, full day 9h)
+        String department = "AutoOut " + suffix;
+        Employee onTime = createEmployee("AO1-" + suffix, department);
+        Employee late = createEmployee("AO2-" + suffix, department);
+        Employee shortDay = createEmployee("AO3-" + suffix, department);
+        Employee thirdLate = createEmployee("AO4-" + suffix, department);
+        Employee closed = createEmployee("AO5-" + suffix, department);
+
+        LateLoginCounter counter = new LateLoginCounter(thirdLate, DATE.getMonthValue(), DATE.getYear());
+        counter.setLateLoginCount(2);
+        lateLoginCounterRepository.save(counter);
+
+        open(onTime, LocalTime.of(9, 0));
+        open(late, LocalTime.of(10, 0));
+        open(shortDay, LocalTime.of(15, 0));
+        open(thirdLate, LocalTime.of(10, 0));
+        Attendance punchedOut = open(closed, LocalTime.of(9, 0));
+        punchedOut.setPunchOutTime(DATE.atTime(18, 0));
+        attendanceRepository.save(punchedOut);
+
+        SqlRecorder.start();
+        Map<String, Object> report = attendanceService.autoPunchOutEmployees(DATE);
+        List<String> statements = SqlRecorder.stop();
+
+        assertEquals(4, report.get("processed"));
+        assertEquals(0, report.get("failed"));
+        assertEquals(1, report.get("chunks"));
+        assertEquals(DATE, report.get("date"));
+        // The four row updates leave together (one JDBC batch when batching is on), not one per counter statement
+        List<Integer> updates = new ArrayList<>();
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i).toLowerCase().startsWith("update attendance ")) {
+                updates.add(i);
+            }
+        }
+        assertEquals(4, updates.size());
+        assertEquals(3, updates.get(3) - updates.get(0), "row updates interleaved with " + statements);
+
+        assertEquals(AttendanceStatus.PRESENT_ON_TIME, row(onTime).getAttendanceStatus());
+        assertEquals(AttendanceStatus.PRESENT_LATE_LOGIN, row(late).getAttendanceStatus());
+        assertEquals(AttendanceStatus.HALF_DAY, row(shortDay).getAttendanceStatus());
+        assertEquals(AttendanceStatus.HALF_DAY, row(thirdLate).getAttendanceStatus()); // 3rd late login of the month
+        assertEquals(DATE.atTime(20, 0), row(late).getPunchOutTime());
+        assertEquals(10.0, row(late).getHoursWorked(), 0.0001);
+        assertEquals(DATE.atTime(18, 0), row(closed).getPunchOutTime());
+
+        assertEquals(1, workedDays(onTime));
+        assertEquals(1, workedDays(late));
+        assertEquals(0, workedDays(shortDay));
+        assertEquals(1, workedDays(thirdLate));
+        assertEquals(1, lateLoginCount(late));
+        assertEquals(3, lateLoginCount(thirdLate));
+
+        AttendanceMonthlySummary summary = attendanceSummaryService
+                .getMonthlySummary(thirdLate.getEmployeeId(), DATE.getYear(), DATE.getMonthValue())
+                .orElseThrow();
+        assertEquals(1, summary.getHalfDays());
+        assertEquals(1, summary.getLateDays());
+        assertEquals(10.0, summary.getWorkedHours(), 0.0001);
+
+        // Nothing is left open, so a second run finds no rows
+        Map<String, Object> again = attendanceService.autoPunchOutEmployees(DATE);
+        assertEquals(0, again.get("processed"));
+        assertEquals(0, again.get("chunks"));
+    }
+
+    private Employee createEmployee(String employeeId, String department) {
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Auto Out " + employeeId)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, department, LocalDate.of(2016, 1, 1)));
+        return employee;
+    }
+
+    private Attendance open(Employee employee, LocalTime punchIn) {
+        Attendance attendance = new Attendance(employee, DATE);
+        attendance.setPunchInTime(DATE.atTime(punchIn));
+        attendance.setIsOtDay(false);
+        return attendanceRepository.save(attendance);
+    }
+
+    private Attendance row(Employee employee) {
+        return attendanceRepository.findByEmployeeEmployeeIdAndDate(employee.getEmployeeId(), DATE).orElseThrow();
+    }
+
+    private int workedDays(Employee employee) {
+        return employeeRepository.findById(employee.getEmployeeId()).orElseThrow().getWorkedDays();
+    }
+
+    private int lateLoginCount(Employee employee) {
+        return lateLoginCounterRepository.findByEmployeeEmployeeIdAndMonthAndYear(
+                employee.getEmployeeId(), DATE.getMonthValue(), DATE.getYear()).orElseThrow().getLateLoginCount();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceMonthlySummary;
+import com.example.demo.model.Employee;
+import com.example.demo.model.LateLoginCounter;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+
+@SpringBootTest
+class AttendanceDeduplicationServiceTest {
+
+    @Autowired
+    private AttendanceDeduplicationService attendanceDeduplicationService;
+
+    @Autowired
+    private AttendanceSummaryService attendanceSummaryService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private LateLoginCounterRepository lateLoginCounterRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void collapseKeepsTheMostCompleteRowRebuildsItsMonthAndRestoresTheKey() throws Exception {
+        String employeeId = "DUP-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Dup " + employeeId).build());
+        LocalDate date = LocalDate.of(2019, 4, 3);
+
+        // A database from before the key existed
+        jdbcTemplate.execute("ALTER TABLE attendance DROP CONSTRAINT " + AttendanceDeduplicationService.UNIQUE_KEY);
+        try {
+            Long open = save(employee, date, false);
+            Long closed = save(employee, date, true);
+            save(employee, date.plusDays(1), true);
+
+            List<Map<String, Object>> duplicates = attendanceDeduplicationService.findDuplicates();
+            assertTrue(duplicates.stream().anyMatch(d -> employeeId.equals(d.get("employeeId"))));
+
+            Map<String, Object> report = attendanceDeduplicationService.collapseDuplicates();
+
+            assertEquals(List.of(open), report.get("deletedIds"));
+            assertEquals(List.of("2019-04"), report.get("rebuiltMonths"));
+            assertEquals(closed, attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, date).orElseThrow().getId());
+            assertTrue(attendanceDeduplicationService.findDuplicates().isEmpty());
+            assertTrue(attendanceDeduplicationService.hasUniqueKey());
+
+            AttendanceMonthlySummary summary = attendanceSummaryService.getMonthlySummary(employeeId, 2019, 4).orElseThrow();
+            assertEquals(2, summary.getAttendanceRecords());
+            assertEquals(18.0, summary.getWorkedHours(), 0.0001);
+        } finally {
+            if (!attendanceDeduplicationService.hasUniqueKey()) {
+                jdbcTemplate.update("DELETE FROM attendance WHERE employee_id = ?", employeeId);
+                attendanceDeduplicationService.addUniqueKey();
+            }
+        }
+    }
+
+    @Test
+    void collapseTakesBackTheCountersOfDeletedRows() throws Exception {
+        String employeeId = "DUPC-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Dup " + employeeId).build());
+        LocalDate date = LocalDate.of(2019, 5, 7);
+
+        jdbcTemplate.execute("ALTER TABLE attendance DROP CONSTRAINT " + AttendanceDeduplicationService.UNIQUE_KEY);
+        try {
+            // Both punched out, each counted as a worked day; the second (deleted) one also as a late login
+            Long kept = save(employee, date, true);
+            Attendance late = new Attendance(employee, date);
+            late.setPunchInTime(date.atTime(10, 0));
+            late.setPunchOutTime(date.atTime(19, 30));
+            late.setHoursWorked(9.5);
+            late.setIsOtDay(false);
+            Long deleted = attendanceRepository.save(late).getId();
+            employeeRepository.addWorkedDays(employeeId, 2);
+            LateLoginCounter counter = new LateLoginCounter(employee, date.getMonthValue(), date.getYear());
+            counter.setLateLoginCount(1);
+            lateLoginCounterRepository.save(counter);
+
+            Map<String, Object> report = attendanceDeduplicationService.collapseDuplicates();
+
+            assertEquals(List.of(deleted), report.get("deletedIds"));
+            assertEquals(kept, attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, date).orElseThrow().getId());
+            assertEquals(1, employeeRepository.findById(employeeId).orElseThrow().getWorkedDays());
+            assertEquals(0, lateLoginCounterRepository.findByEmployeeEmployeeIdAndMonthAndYear(
+                    employeeId, date.getMonthValue(), date.getYear()).orElseThrow().getLateLoginCount());
+        } finally {
+            if (!attendanceDeduplicationService.hasUniqueKey()) {
+                jdbcTemplate.update("DELETE FROM attendance WHERE employee_id = ?", employeeId);
+                attendanceDeduplicationService.addUniqueKey();
+            }
+        }
+    }
+
+    private Long save(Employee employee, LocalDate date, boolean punchedOut) {
+        Attendance attendance = new Attendance(employee, date);
+        attendance.setPunchInTime(date.atTime(9, 0));
+        if (punchedOut) {
+            attendance.setPunchOutTime(date.atTime(18, 0));
+            attendance.setHoursWorked(9.0);
+        }
+        return attendanceRepository.save(attendance).getId();
+    }
+}
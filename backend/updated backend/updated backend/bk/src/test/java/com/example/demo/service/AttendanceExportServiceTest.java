@@ -0,0 +1,66 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+
+@SpringBootTest
+@Transactional
+class AttendanceExportServiceTest {
+
+    // A range no other test writes attendance for
+    private static final LocalDate FIRST = LocalDate.of(2016, 8, 1);
+
+    @Autowired
+    private AttendanceExportService attendanceExportService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    void xlsxRowsContinueOnANewSheetWhenOneIsFull() throws Exception {
+        String employeeId = "EXP-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Export " + employeeId).build());
+        for (int day = 0; day < 5; day++) {
+            Attendance attendance = new Attendance(employee, FIRST.plusDays(day));
+            attendance.setPunchInTime(FIRST.plusDays(day).atTime(9, 0));
+            attendanceRepository.save(attendance);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Three rows per sheet: the header and two attendance rows
+        long rows = attendanceExportService.exportXlsx(FIRST, FIRST.plusDays(4), out, 3);
+
+        assertEquals(5, rows);
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            assertEquals("Attendance", workbook.getSheetAt(0).getSheetName());
+            assertEquals("Attendance (3)", workbook.getSheetAt(2).getSheetName());
+            int dataRows = 0;
+            for (Sheet sheet : workbook) {
+                assertEquals("Date", sheet.getRow(0).getCell(0).getStringCellValue());
+                dataRows += sheet.getLastRowNum();
+            }
+            assertEquals(5, dataRows);
+            assertEquals(FIRST.plusDays(4).toString(), workbook.getSheetAt(2).getRow(1).getCell(0).getStringCellValue());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.dto.AttendanceResponseDTO;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+
+@SpringBootTest
+@Transactional
+class AttendanceHistoryPageTest {
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pagesWalkTheHistoryNewestFirstWithoutGapsOrRepeats() {
+        String employeeId = "HIST-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "History " + employeeId)
+                .build());
+
+        LocalDate first = LocalDate.of(2021, 3, 1);
+        for (int day = 0; day < 5; day++) {
+            attendanceRepository.save(new Attendance(employee, first.plusDays(day)));
+        }
+
+        List<LocalDate> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Map<String, Object> page = attendanceService.getAttendanceHistoryPage(
+                    employeeId, first, first.plusDays(30), cursor, 2);
+            for (AttendanceResponseDTO item : (List<AttendanceResponseDTO>) page.get("items")) {
+                seen.add(item.getDate());
+            }
+            cursor = (String) page.get("nextCursor");
+            assertEquals(cursor != null, page.get("hasMore"));
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of(first.plusDays(4), first.plusDays(3), first.plusDays(2), first.plusDays(1), first), seen);
+    }
+
+    @Test
+    void emptyRangeHasNoNextCursor() {
+        Map<String, Object> page = attendanceService.getAttendanceHistoryPage(
+                "HIST-NONE", LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31), null, 10);
+
+        assertTrue(((List<?>) page.get("items")).isEmpty());
+        assertNull(page.get("nextCursor"));
+        assertFalse((Boolean) page.get("hasMore"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.DepartmentSettings;
+
+class AttendancePolicyEngineTest {
+
+    private final AttendancePolicyEngine engine = new AttendancePolicyEngine();
+    private final DepartmentSettings settings = engine.defaultSettings();
+
+    @Test
+    void hoursBandsDecideTheStatusAndIdleTime() {
+        AttendancePolicyEngine.Result absent = engine.evaluate(LocalTime.of(9, 30), 3.5, settings, false);
+        assertEquals(AttendanceStatus.ABSENT, absent.getStatus());
+        assertEquals(9.0, absent.getIdleTime());
+        assertFalse(absent.countsAsWorkedDay());
+
+        AttendancePolicyEngine.Result halfDay = engine.evaluate(LocalTime.of(9, 30), 6.0, settings, false);
+        assertEquals(AttendanceStatus.HALF_DAY, halfDay.getStatus());
+        assertEquals(3.0, halfDay.getIdleTime());
+
+        AttendancePolicyEngine.Result present = engine.evaluate(LocalTime.of(9, 30), 9.5, settings, false);
+        assertEquals(AttendanceStatus.PRESENT_ON_TIME, present.getStatus());
+        assertEquals(0.0, present.getIdleTime());
+        assertTrue(present.countsAsWorkedDay());
+        assertFalse(present.countsAsLateLogin());
+    }
+
+    @Test
+    void otDaysNeverCountAsWorkedDays() {
+        assertFalse(engine.evaluate(LocalTime.of(9, 30), 10.0, settings, true).countsAsWorkedDay());
+    }
+
+    @Test
+    void everyThirdLateLoginBecomesAHalfDay() {
+        AttendancePolicyEngine.Result late = engine.evaluate(LocalTime.of(10, 0), 9.0, settings, false);
+        assertEquals(AttendanceStatus.PRESENT_LATE_LOGIN, late.getStatus());
+        assertTrue(late.isLateLogin());
+        assertTrue(late.countsAsLateLogin());
+
+        assertSame(late, late.withLateLoginCount(2));
+        assertEquals(AttendanceStatus.HALF_DAY, late.withLateLoginCount(3).getStatus());
+        assertEquals(AttendanceStatus.HALF_DAY, late.withLateLoginCount(6).getStatus());
+
+        // A late punch-in on a short day is flagged but does not count towards the rule
+        AttendancePolicyEngine.Result lateHalfDay = engine.evaluate(LocalTime.of(10, 0), 5.0, settings, false);
+        assertTrue(lateHalfDay.isLateLogin());
+        assertFalse(lateHalfDay.countsAsLateLogin());
+        assertSame(lateHalfDay, lateHalfDay.withLateLoginCount(3));
+    }
+}
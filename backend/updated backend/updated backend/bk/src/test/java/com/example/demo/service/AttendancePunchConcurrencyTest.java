@@ -0,0 +1,204 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.exception.AttendanceException;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.model.Holiday;
+import com.example.demo.model.Overtime;
+import com.example.demo.model.PermissionHours;
+import com.example.demo.model.PermissionStatus;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.DepartmentSettingsRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+import com.example.demo.repository.HolidayRepository;
+import com.example.demo.repository.OvertimeRepository;
+import com.example.demo.repository.PermissionHourRepository;
+
+@SpringBootTest
+class AttendancePunchConcurrencyTest {
+
+    private static final String DEPARTMENT = "PunchRace";
+    private static final int PUNCHES = 100;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private DepartmentSettingsCache departmentSettingsCache;
+
+    @Autowired
+    private HolidayCalendar holidayCalendar;
+
+    @Autowired
+    private PermissionHoursService permissionHoursService;
+
+    @Autowired
+    private PermissionHourRepository permissionHourRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Autowired
+    private DepartmentSettingsRepository departmentSettingsRepository;
+
+    @Autowired
+    private HolidayRepository holidayRepository;
+
+    @Autowired
+    private OvertimeRepository overtimeRepository;
+
+    @Test
+    void parallelPunchesHaveExactlyOneWinner() throws Exception {
+        String employeeId = givenEmployeeWhoMayPunchInNow();
+
+        assertEquals(1, race(PUNCHES, () -> attendanceService.punchIn(employeeId), "Already punched in today"));
+
+        LocalDate today = LocalDate.now();
+        assertEquals(1, attendanceRepository.findByEmployeeEmployeeIdAndDateBetween(employeeId, today, today).size());
+        assertNotNull(attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, today).orElseThrow()
+                .getPunchInTime());
+
+        assertEquals(1, race(10, () -> attendanceService.punchOut(employeeId), "Already punched out today"));
+    }
+
+    @Test
+    void permissionApprovalRacingAPunchOutKeepsBothWrites() throws Exception {
+        LocalDate today = LocalDate.now();
+        for (int round = 0; round < ROUNDS; round++) {
+            String employeeId = givenEmployeeWhoMayPunchInNow();
+            attendanceService.punchIn(employeeId);
+
+            // Permission from midnight moves the punch-in back; the punch-out is left alone
+            PermissionHours permission = new PermissionHours();
+            permission.setEmployeeId(employeeId);
+            permission.setDate(today);
+            permission.setFromTime(LocalTime.MIN);
+            permission.setToTime(LocalTime.of(0, 1));
+            permission.setReason("Race");
+            Long permissionId = permissionHourRepository.save(permission).getId();
+
+            // Both writes must succeed whichever order they commit in; a conflict is retried
+            runTogether(() -> attendanceService.punchOut(employeeId),
+                    () -> permissionHoursService.approvePermissionHours(permissionId, "admin", "race"));
+
+            Attendance attendance = attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, today).orElseThrow();
+            assertEquals(today.atStartOfDay(), attendance.getPunchInTime());
+            assertNotNull(attendance.getPunchOutTime());
+            assertEquals(AttendancePolicyEngine.hoursBetween(attendance.getPunchInTime(), attendance.getPunchOutTime()),
+                    attendance.getHoursWorked(), 0.02);
+            assertEquals(PermissionStatus.APPROVED, permissionHourRepository.findById(permissionId).orElseThrow().getStatus());
+        }
+    }
+
+    // Start both tasks at once and rethrow whatever either of them threw
+    private void runTogether(Runnable first, Runnable second) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (Runnable task : List.of(first, second)) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Fire the punches at once from a thread pool; returns how many succeeded
+    private int race(int punches, Runnable punch, String expectedRejection) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < punches; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        punch.run();
+                        return true;
+                    } catch (AttendanceException e) {
+                        assertEquals(expectedRejection, e.getMessage());
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                succeeded += result.get() ? 1 : 0;
+            }
+            return succeeded;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Punch window open all day and a holiday with approved OT, so punching in works whenever the test runs
+    private String givenEmployeeWhoMayPunchInNow() {
+        if (departmentSettingsRepository.findByDepartmentNameAndEmpType(DEPARTMENT, "DEFAULT").isEmpty()) {
+            departmentSettingsRepository.save(new DepartmentSettings(DEPARTMENT, "DEFAULT",
+                    LocalTime.MIN, LocalTime.of(23, 59, 59), LocalTime.of(9, 30), LocalTime.of(18, 30),
+                    LocalTime.of(23, 59, 59), 4.0, 9.0,
+                    LocalTime.of(9, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(18, 0)));
+        }
+        LocalDate today = LocalDate.now();
+        if (!holidayRepository.existsByDate(today)) {
+            Holiday holiday = new Holiday();
+            holiday.setName("Punch race holiday");
+            holiday.setDate(today);
+            holidayRepository.save(holiday);
+        }
+        departmentSettingsCache.refresh();
+        holidayCalendar.refresh();
+
+        String employeeId = "RACE-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Race " + employeeId)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, DEPARTMENT, today.minusYears(1)));
+
+        Overtime overtime = new Overtime();
+        overtime.setEmployee(employee);
+        overtime.setDate(today);
+        overtime.setType(Overtime.OTType.PENDING_OT);
+        overtime.setStatus(Overtime.OTStatus.APPROVED);
+        overtime.setIsUsedAsLeave(false);
+        overtime.setIsPaidOut(false);
+        overtimeRepository.save(overtime);
+        return employeeId;
+    }
+}
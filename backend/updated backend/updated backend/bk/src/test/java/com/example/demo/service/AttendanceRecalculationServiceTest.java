@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceMonthlySummary;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+
+@SpringBootTest
+class AttendanceRecalculationServiceTest {
+
+    @Autowired
+    private AttendanceRecalculationService attendanceRecalculationService;
+
+    @Autowired
+    private AttendanceSummaryService attendanceSummaryService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recalculatesStatusesAndCountsLateLoginsFromTheStartOfTheMonth() {
+        String employeeId = "RECALC-" + System.nanoTime();
+        String department = "Recalc " + employeeId;
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Recalc " + employeeId)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, department, LocalDate.of(2020, 1, 1)));
+
+        // No department settings: the defaults apply (late after 09:45, full day 9h, half day 4h)
+        LocalDate first = LocalDate.of(2021, 3, 1);
+        save(employee, first, LocalTime.of(9, 30), 9.0);              // on time, outside the range
+        save(employee, first.plusDays(1), LocalTime.of(10, 0), 9.0);  // 1st late
+        save(employee, first.plusDays(2), LocalTime.of(10, 0), 9.0);  // 2nd late
+        save(employee, first.plusDays(3), LocalTime.of(10, 0), 9.0);  // 3rd late -> half day
+        save(employee, first.plusDays(4), LocalTime.of(9, 30), 5.0);  // short day -> half day
+        YearMonth month = YearMonth.from(first);
+        attendanceSummaryService.rebuild(month, month);
+
+        Map<String, Object> report = attendanceRecalculationService.recalculate(
+                department, first.plusDays(1), first.plusDays(4));
+
+        assertEquals(4, report.get("rowsEvaluated"));
+        assertEquals(4, report.get("rowsChanged"));
+        assertEquals(4, ((Map<String, Integer>) report.get("before")).get("Absent"));
+        Map<String, Integer> after = (Map<String, Integer>) report.get("after");
+        assertEquals(2, after.get("Present (Late Login)"));
+        assertEquals(2, after.get("Half Day"));
+        assertEquals(0, after.get("Absent"));
+
+        assertEquals(AttendanceStatus.ABSENT, status(employeeId, first));
+        assertEquals(AttendanceStatus.PRESENT_LATE_LOGIN, status(employeeId, first.plusDays(1)));
+        assertEquals(AttendanceStatus.HALF_DAY, status(employeeId, first.plusDays(3)));
+        assertEquals(AttendanceStatus.HALF_DAY, status(employeeId, first.plusDays(4)));
+
+        // The batched summary deltas leave the month as a rebuild computes it
+        AttendanceMonthlySummary incremental = summary(employeeId, month);
+        assertEquals(2, incremental.getHalfDays());
+        assertEquals(1, incremental.getAbsentDays()); // the day before the range was not recalculated
+        attendanceSummaryService.rebuild(month, month);
+        AttendanceMonthlySummary rebuilt = summary(employeeId, month);
+        assertEquals(rebuilt.getPresentDays(), incremental.getPresentDays());
+        assertEquals(rebuilt.getHalfDays(), incremental.getHalfDays());
+        assertEquals(rebuilt.getAbsentDays(), incremental.getAbsentDays());
+        assertEquals(rebuilt.getLateDays(), incremental.getLateDays());
+        assertEquals(rebuilt.getIdleHours(), incremental.getIdleHours(), 0.0001);
+        assertEquals(rebuilt.getAttendanceRecords(), incremental.getAttendanceRecords());
+    }
+
+    private AttendanceMonthlySummary summary(String employeeId, YearMonth month) {
+        return attendanceSummaryService.getMonthlySummary(employeeId, month.getYear(), month.getMonthValue())
+                .orElseThrow();
+    }
+
+    private void save(Employee employee, LocalDate date, LocalTime punchIn, double hours) {
+        Attendance attendance = new Attendance(employee, date);
+        attendance.setPunchInTime(date.atTime(punchIn));
+        attendance.setPunchOutTime(date.atTime(punchIn).plusMinutes((long) (hours * 60)));
+        attendance.setHoursWorked(hours);
+        attendanceRepository.save(attendance);
+    }
+
+    private AttendanceStatus status(String employeeId, LocalDate date) {
+        return attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, date).orElseThrow().getAttendanceStatus();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.model.Holiday;
+import com.example.demo.model.Overtime;
+import com.example.demo.repository.DepartmentSettingsRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+import com.example.demo.repository.HolidayRepository;
+import com.example.demo.repository.OvertimeRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class AttendanceServiceQueryCountTest {
+
+    private static final String DEPARTMENT = "QueryCount";
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private DepartmentSettingsCache departmentSettingsCache;
+
+    @Autowired
+    private HolidayCalendar holidayCalendar;
+
+    @Autowired
+    private DayPlanRegistry dayPlanRegistry;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Autowired
+    private DepartmentSettingsRepository departmentSettingsRepository;
+
+    @Autowired
+    private HolidayRepository holidayRepository;
+
+    @Autowired
+    private OvertimeRepository overtimeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Holiday holiday;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Punch window open all day, so the test does not depend on the clock
+        if (departmentSettingsRepository.findByDepartmentNameAndEmpType(DEPARTMENT, "DEFAULT").isEmpty()) {
+            departmentSettingsRepository.save(new DepartmentSettings(DEPARTMENT, "DEFAULT",
+                    LocalTime.MIN, LocalTime.of(23, 59, 59), LocalTime.of(9, 30), LocalTime.of(18, 30),
+                    LocalTime.of(23, 59, 59), 4.0, 9.0,
+                    LocalTime.of(9, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(18, 0)));
+        }
+
+        // Holiday with allocated OT, so punch-in is allowed on any day of the week
+        LocalDate today = LocalDate.now();
+        if (!holidayRepository.existsByDate(today)) {
+            Holiday created = new Holiday();
+            created.setName("Query count holiday");
+            created.setDate(today);
+            holiday = holidayRepository.save(created);
+        }
+
+        departmentSettingsCache.refresh();
+        holidayCalendar.refresh();
+        dayPlanRegistry.rebuild();
+    }
+
+    // Other tests share the database and must not see today as a holiday
+    @AfterEach
+    void tearDown() {
+        if (holiday != null) {
+            holidayRepository.delete(holiday);
+            holiday = null;
+            holidayCalendar.refresh();
+            dayPlanRegistry.rebuild();
+        }
+    }
+
+    @Test
+    void punchInCostsAtMostTwoStatements() {
+        Employee employee = createEmployee("QC-" + System.nanoTime());
+
+        statistics.clear();
+        Attendance attendance = attendanceService.punchIn(employee.getEmployeeId());
+        long statements = statistics.getPrepareStatementCount();
+
+        assertNotNull(attendance.getId());
+        assertTrue(attendance.getIsOtDay());
+        assertTrue(statements <= 2, "punch-in prepared " + statements + " statements");
+    }
+
+    @Test
+    void punchStatusIsServedFromOneStatement() {
+        Employee employee = createEmployee("QC-" + System.nanoTime());
+
+        statistics.clear();
+        attendanceService.getPunchStatus(employee.getEmployeeId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void punchInEligibilityIsServedFromTheDayPlan() {
+        Employee employee = createEmployee("QC-" + System.nanoTime());
+        dayPlanRegistry.rebuild();
+
+        statistics.clear();
+        assertTrue(attendanceService.isPunchInEnabled(employee.getEmployeeId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        attendanceService.punchIn(employee.getEmployeeId());
+
+        statistics.clear();
+        assertFalse(attendanceService.isPunchInEnabled(employee.getEmployeeId()));
+        assertTrue(attendanceService.isPunchOutEnabled(employee.getEmployeeId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private Employee createEmployee(String employeeId) {
+        Employee employee = TestEmployees.employee(employeeId, "Query Count " + employeeId)
+                .build();
+        employee = employeeRepository.save(employee);
+
+        experienceRepository.save(TestEmployees.currentExperience(employee, DEPARTMENT, LocalDate.now().minusYears(1)));
+
+        Overtime overtime = new Overtime();
+        overtime.setEmployee(employee);
+        overtime.setDate(LocalDate.now());
+        overtime.setType(Overtime.OTType.PENDING_OT);
+        overtime.setStatus(Overtime.OTStatus.APPROVED);
+        overtime.setIsUsedAsLeave(false);
+        overtime.setIsPaidOut(false);
+        overtimeRepository.save(overtime);
+
+        return employee;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.dto.DepartmentAttendanceSummaryDTO;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceMonthlySummary;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceMonthlySummaryRepository;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+
+@SpringBootTest
+@Transactional
+class AttendanceSummaryServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2020, 1);
+
+    @Autowired
+    private AttendanceSummaryService attendanceSummaryService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private AttendanceMonthlySummaryRepository summaryRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        Employee employee = createEmployee("SUM-" + System.nanoTime());
+
+        // Thursday 2 Jan: full day, late
+        Attendance first = closedAttendance(employee, MONTH.atDay(2), 9.5, 0.0, "Present (Late Login)", true);
+        attendanceSummaryService.recordChange(AttendanceSummaryService.Contribution.NONE, first);
+
+        // Saturday 4 Jan: half day, later corrected to present
+        Attendance second = closedAttendance(employee, MONTH.atDay(4), 5.0, 4.0, "Half Day", false);
+        attendanceSummaryService.recordChange(AttendanceSummaryService.Contribution.NONE, second);
+
+        AttendanceSummaryService.Contribution before = attendanceSummaryService.contributionOf(second);
+        second.setHoursWorked(9.0);
+        second.setIdleTime(0.0);
+        second.setStatus("Present (On Time)");
+        attendanceRepository.save(second);
+        attendanceSummaryService.recordChange(before, second);
+
+        AttendanceMonthlySummary incremental = summaryOf(employee);
+        assertEquals(18.5, incremental.getWorkedHours(), 0.0001);
+        assertEquals(0.0, incremental.getIdleHours(), 0.0001);
+        assertEquals(2, incremental.getPresentDays());
+        assertEquals(0, incremental.getHalfDays());
+        assertEquals(1, incremental.getLateDays());
+        assertEquals(1, incremental.getWorkingDays());
+        assertEquals(2, incremental.getAttendanceRecords());
+
+        attendanceSummaryService.rebuild(MONTH, MONTH);
+
+        AttendanceMonthlySummary rebuilt = summaryOf(employee);
+        assertEquals(incremental.getWorkedHours(), rebuilt.getWorkedHours(), 0.0001);
+        assertEquals(incremental.getIdleHours(), rebuilt.getIdleHours(), 0.0001);
+        assertEquals(incremental.getPresentDays(), rebuilt.getPresentDays());
+        assertEquals(incremental.getHalfDays(), rebuilt.getHalfDays());
+        assertEquals(incremental.getAbsentDays(), rebuilt.getAbsentDays());
+        assertEquals(incremental.getLateDays(), rebuilt.getLateDays());
+        assertEquals(incremental.getWorkingDays(), rebuilt.getWorkingDays());
+        assertEquals(incremental.getAttendanceRecords(), rebuilt.getAttendanceRecords());
+    }
+
+    @Test
+    void departmentSummaryAggregatesOneRowPerEmployee() {
+        Employee employee = createEmployee("DEP-" + System.nanoTime());
+        experienceRepository.save(TestEmployees.currentExperience(employee, "SummaryDept", LocalDate.of(2019, 1, 1)));
+        closedAttendance(employee, MONTH.atDay(6), 9.5, 0.0, "Present (Late Login)", true);
+        closedAttendance(employee, MONTH.atDay(7), 5.0, 4.0, "Half Day", false);
+
+        Map<String, Object> summary = attendanceService.getDepartmentMonthlySummary(
+                "SummaryDept", MONTH.getYear(), MONTH.getMonthValue());
+
+        @SuppressWarnings("unchecked")
+        List<DepartmentAttendanceSummaryDTO> employees = (List<DepartmentAttendanceSummaryDTO>) summary.get("employees");
+        DepartmentAttendanceSummaryDTO row = employees.stream()
+                .filter(dto -> dto.getEmployeeId().equals(employee.getEmployeeId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2L, row.getAttendanceRecords());
+        assertEquals(1L, row.getPresentLateDays());
+        assertEquals(1L, row.getHalfDays());
+        assertEquals(1L, row.getLateLogins());
+        assertEquals(14.5, row.getTotalWorkedHours(), 0.0001);
+        assertEquals(4.0, row.getTotalIdleHours(), 0.0001);
+    }
+
+    @Test
+    void monthlyReportCountsDaysThatAreStillOpen() {
+        Employee employee = createEmployee("OPEN-" + System.nanoTime());
+        Attendance closed = closedAttendance(employee, MONTH.atDay(8), 9.0, 0.0, "Present (On Time)", false);
+        attendanceSummaryService.recordChange(AttendanceSummaryService.Contribution.NONE, closed);
+        Attendance open = new Attendance(employee, MONTH.atDay(9));
+        open.setPunchInTime(MONTH.atDay(9).atTime(9, 0));
+        open.setIsLateLogin(false);
+        attendanceRepository.save(open);
+
+        Map<String, Object> report = attendanceService.getMonthlyHoursSummary(
+                employee.getEmployeeId(), MONTH.getYear(), MONTH.getMonthValue());
+
+        assertEquals(2, report.get("workingDays"));
+        assertEquals(2, report.get("attendanceRecords"));
+        assertEquals(1, report.get("presentDays"));
+        assertEquals(9.0, (Double) report.get("totalWorkedHours"), 0.0001);
+        // The open day is not stored in the rollup until it is punched out
+        assertEquals(1, summaryOf(employee).getAttendanceRecords());
+    }
+
+    @Test
+    void emptyRollupIsBackfilledFromCompletedAttendance() {
+        Employee employee = createEmployee("FILL-" + System.nanoTime());
+        closedAttendance(employee, MONTH.atDay(10), 8.0, 1.0, "Present (On Time)", false);
+        summaryRepository.deleteAll();
+
+        attendanceSummaryService.backfillIfEmpty();
+
+        AttendanceMonthlySummary summary = summaryOf(employee);
+        assertEquals(8.0, summary.getWorkedHours(), 0.0001);
+        assertEquals(1, summary.getPresentDays());
+        assertEquals(1, summary.getAttendanceRecords());
+    }
+
+    private AttendanceMonthlySummary summaryOf(Employee employee) {
+        return attendanceSummaryService
+                .getMonthlySummary(employee.getEmployeeId(), MONTH.getYear(), MONTH.getMonthValue())
+                .orElseThrow();
+    }
+
+    private Attendance closedAttendance(Employee employee, LocalDate date, double hours, double idle,
+                                        String status, boolean late) {
+        Attendance attendance = new Attendance(employee, date);
+        attendance.setPunchInTime(date.atTime(9, 0));
+        attendance.setPunchOutTime(date.atTime(9, 0).plusMinutes((long) (hours * 60)));
+        attendance.setHoursWorked(hours);
+        attendance.setIdleTime(idle);
+        attendance.setStatus(status);
+        attendance.setIsLateLogin(late);
+        return attendanceRepository.save(attendance);
+    }
+
+    private Employee createEmployee(String employeeId) {
+        return employeeRepository.save(TestEmployees.employee(employeeId, "Summary " + employeeId)
+                .build());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+
+@SpringBootTest
+class BiometricImportServiceTest {
+
+    @Autowired
+    private BiometricImportService biometricImportService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private LateLoginCounterRepository lateLoginCounterRepository;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pairsPunchesPerDayAndReportsBadRows() throws Exception {
+        String employeeId = "BIO-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Bio " + employeeId)
+                .build());
+
+        // An existing row for the first day is updated, not duplicated
+        LocalDate first = LocalDate.of(2021, 6, 7);
+        attendanceRepository.save(new Attendance(employee, first));
+
+        // A day already punched out live is kept as it is
+        LocalDate closed = LocalDate.of(2021, 6, 4);
+        Attendance live = new Attendance(employee, closed);
+        live.setPunchInTime(closed.atTime(9, 0));
+        live.setPunchOutTime(closed.atTime(18, 0));
+        live.setHoursWorked(9.0);
+        attendanceRepository.save(live);
+
+        // No department settings: the defaults apply (late after 09:45, full day 9h, half day 4h)
+        String csv = String.join("\n",
+                "employeeId,timestamp,direction",
+                employeeId + ",2021-06-07 09:30:00,IN",
+                employeeId + ",2021-06-07 13:00:00,OUT",     // lunch break; the last OUT counts
+                employeeId + ",2021-06-07 13:40:00,IN",
+                employeeId + ",2021-06-07 18:45:00,OUT",
+                employeeId + ",2021-06-08T10:05:00,in",
+                employeeId + ",2021-06-08T19:10:00,out",
+                employeeId + ",2021-06-09 09:20,IN",          // never punched out
+                employeeId + ",2021-06-10 18:00:00,OUT",      // OUT without IN
+                "NOBODY,2021-06-07 09:30:00,IN",
+                employeeId + ",yesterday,IN",
+                employeeId + ",2021-06-11 09:30:00,SIDEWAYS",
+                employeeId + ",2021-06-04 08:00:00,IN",
+                employeeId + "," + LocalDate.now() + " 09:00:00,IN");
+
+        Map<String, Object> report = biometricImportService.importCsv(new StringReader(csv));
+
+        assertEquals(13, report.get("rowsRead"));
+        assertEquals(3, report.get("daysImported"));
+        assertEquals(2, report.get("rowsInserted"));
+        assertEquals(1, report.get("rowsUpdated"));
+        assertEquals(6, report.get("errorCount"));
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) report.get("errors");
+        assertEquals(List.of(10, 11, 12, 14, 13, 9), errors.stream().map(e -> e.get("row")).toList());
+        assertEquals(closed.atTime(9, 0), attendance(employeeId, closed).getPunchInTime());
+
+        Attendance onTime = attendance(employeeId, first);
+        assertEquals(LocalDateTime.of(2021, 6, 7, 9, 30), onTime.getPunchInTime());
+        assertEquals(LocalDateTime.of(2021, 6, 7, 18, 45), onTime.getPunchOutTime());
+        assertEquals(9.25, onTime.getHoursWorked());
+        assertEquals(AttendanceStatus.PRESENT_ON_TIME, onTime.getAttendanceStatus());
+
+        Attendance late = attendance(employeeId, first.plusDays(1));
+        assertEquals(AttendanceStatus.PRESENT_LATE_LOGIN, late.getAttendanceStatus());
+        assertTrue(late.getIsLateLogin());
+
+        Attendance open = attendance(employeeId, first.plusDays(2));
+        assertNull(open.getPunchOutTime());
+        assertEquals(AttendanceStatus.ABSENT, open.getAttendanceStatus());
+
+        assertTrue(attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, first.plusDays(3)).isEmpty());
+
+        // The two closed days are counted as a live punch-out would count them
+        assertEquals(2, employeeRepository.findById(employeeId).orElseThrow().getWorkedDays());
+        assertEquals(1, lateLoginCounterRepository.findLateLoginCount(employeeId, 6, 2021));
+    }
+
+    private Attendance attendance(String employeeId, LocalDate date) {
+        return attendanceRepository.findByEmployeeEmployeeIdAndDate(employeeId, date).orElseThrow();
+    }
+}
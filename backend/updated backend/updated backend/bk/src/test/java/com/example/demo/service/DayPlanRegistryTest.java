@@ -0,0 +1,43 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.repository.AttendanceRepository;
+
+class DayPlanRegistryTest {
+
+    @Test
+    void aBuildOvertakenByAnInvalidationIsBuiltAgain() {
+        AtomicInteger builds = new AtomicInteger();
+        AtomicReference<DayPlanRegistry> registry = new AtomicReference<>();
+        // The first build's query is answered after a holiday change committed
+        AttendanceRepository repository = (AttendanceRepository) Proxy.newProxyInstance(
+                AttendanceRepository.class.getClassLoader(), new Class<?>[] {AttendanceRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findPunchContexts")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (builds.incrementAndGet() == 1) {
+                        registry.get().invalidateAllAfterCommit();
+                    }
+                    return List.of();
+                });
+        registry.set(new DayPlanRegistry(repository, null, null, new AttendancePolicyEngine(), null));
+
+        assertNull(registry.get().get("E1", LocalDate.now()));
+        assertEquals(2, builds.get());
+
+        // The second build was published and is served from memory
+        registry.get().get("E1", LocalDate.now());
+        assertEquals(2, builds.get());
+    }
+}
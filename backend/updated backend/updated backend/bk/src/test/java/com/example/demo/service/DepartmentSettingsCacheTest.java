@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.repository.DepartmentSettingsRepository;
+
+@SpringBootTest
+class DepartmentSettingsCacheTest {
+
+    @Autowired
+    private DepartmentSettingsCache departmentSettingsCache;
+
+    @Autowired
+    private DepartmentSettingsRepository departmentSettingsRepository;
+
+    @Test
+    void resolvesByDepartmentIdWithDefaultFallback() {
+        String departmentId = "DEPT-" + System.nanoTime();
+        DepartmentSettings departmentDefault = save("Indexed " + departmentId, departmentId, "DEFAULT", LocalTime.of(9, 45));
+        DepartmentSettings interns = save("Indexed " + departmentId, departmentId, "INTERN", LocalTime.of(10, 15));
+        DepartmentSettings legacy = save("Legacy " + departmentId, null, "DEFAULT", LocalTime.of(10, 0));
+        departmentSettingsCache.refresh();
+
+        assertEquals(interns.getId(), departmentSettingsCache.resolveByDepartmentId(departmentId, "INTERN").orElseThrow().getId());
+        assertEquals(departmentDefault.getId(),
+                departmentSettingsCache.resolveByDepartmentId(departmentId, "FULL_TIME").orElseThrow().getId());
+
+        // Rows saved before department_id existed are still found by their own id
+        assertEquals(LocalTime.of(10, 0), departmentSettingsCache
+                .resolveByDepartmentId(String.valueOf(legacy.getId()), "FULL_TIME").orElseThrow().getLateLoginThreshold());
+
+        // ... whatever their own employee type
+        DepartmentSettings legacyFullTime = save("Legacy FT " + departmentId, null, "FULL_TIME", LocalTime.of(10, 30));
+        departmentSettingsCache.refresh();
+        for (String empType : List.of("INTERN", "FULL_TIME", "CONTRACT")) {
+            assertEquals(legacyFullTime.getId(), departmentSettingsCache
+                    .resolveByDepartmentId(String.valueOf(legacyFullTime.getId()), empType).orElseThrow().getId());
+        }
+
+        assertTrue(departmentSettingsCache.resolveByDepartmentId("NO-" + departmentId, "FULL_TIME").isEmpty());
+        assertEquals(2, departmentSettingsRepository.findByDepartmentId(departmentId).size());
+    }
+
+    @Test
+    void callersCannotChangeTheSnapshot() {
+        String department = "Copy " + System.nanoTime();
+        save(department, null, "DEFAULT", LocalTime.of(9, 45));
+        departmentSettingsCache.refresh();
+
+        departmentSettingsCache.resolve(department, "FULL_TIME").orElseThrow().setLateLoginThreshold(LocalTime.NOON);
+
+        assertEquals(LocalTime.of(9, 45),
+                departmentSettingsCache.resolve(department, "FULL_TIME").orElseThrow().getLateLoginThreshold());
+    }
+
+    private DepartmentSettings save(String name, String departmentId, String empType, LocalTime lateLoginThreshold) {
+        DepartmentSettings settings = new DepartmentSettings(name, empType,
+                LocalTime.of(8, 0), LocalTime.of(20, 0), LocalTime.of(9, 30), LocalTime.of(18, 30),
+                lateLoginThreshold, 4.0, 9.0,
+                LocalTime.of(9, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(18, 0));
+        settings.setDepartmentId(departmentId);
+        return departmentSettingsRepository.save(settings);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Employee;
+import com.example.demo.model.Experience;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+
+@SpringBootTest
+class EmployeeSearchIndexTest {
+
+    @Autowired
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Test
+    void ranksMatchesAndFollowsEmployeeChanges() {
+        String suffix = Long.toString(System.nanoTime(), 36);
+        String department = "Search" + suffix;
+        String exact = save("QK" + suffix, "Wendy Quokka" + suffix, department);
+        String other = save("QK" + suffix + "X", "Quokka" + suffix + " Abbott", department);
+        employeeSearchIndex.reload();
+
+        // Exact id first, then word starts (both), ties by name
+        assertEquals(List.of(exact, other), ids(employeeSearchIndex.typeahead("qk" + suffix, 10)));
+        assertEquals(List.of(other, exact), ids(employeeSearchIndex.typeahead("quokka" + suffix, 10)));
+        assertEquals(List.of(other), ids(employeeSearchIndex.typeahead("quokka" + suffix, 1)));
+        assertEquals(department, employeeSearchIndex.typeahead(exact, 1).get(0).getDepartment());
+
+        // Department and email are indexed too; the admin search keeps id/name substring semantics
+        assertEquals(2, employeeSearchIndex.typeahead(department.toUpperCase(), 10).size());
+        assertTrue(employeeSearchIndex.search("okka" + suffix, department).containsAll(List.of(exact, other)));
+        assertTrue(employeeSearchIndex.search("okka" + suffix, "Elsewhere").isEmpty());
+
+        // Experience and direct employee writes move the employee between departments and names
+        employeeService.deleteAllExperience(exact);
+        assertFalse(employeeSearchIndex.search(exact, department).contains(exact));
+        Experience moved = employeeService.saveExperience(Experience.builder()
+                .employee(employeeRepository.findById(exact).orElseThrow())
+                .department("Moved" + suffix)
+                .joiningDate(LocalDate.now())
+                .lastWorkingDate("Present")
+                .build());
+        assertEquals(List.of(exact), employeeSearchIndex.search(exact, "Moved" + suffix));
+        employeeService.deleteExperienceById(moved.getId());
+        assertEquals(null, employeeSearchIndex.typeahead(exact, 1).get(0).getDepartment());
+
+        Employee renamed = employeeRepository.findById(exact).orElseThrow();
+        renamed.setName("Wendy Wombat" + suffix);
+        employeeService.saveEmployee(renamed);
+        assertEquals(List.of(exact), ids(employeeSearchIndex.typeahead("wombat" + suffix, 10)));
+
+        employeeService.deactivateEmployee(exact);
+        assertFalse(employeeSearchIndex.typeahead(exact, 1).get(0).isActive());
+
+        employeeService.deleteEmployee(other);
+        assertTrue(employeeSearchIndex.typeahead("quokka" + suffix, 10).isEmpty());
+    }
+
+    private String save(String employeeId, String name, String department) {
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, name)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, department, LocalDate.now().minusYears(1)));
+        return employeeId;
+    }
+
+    private static List<String> ids(List<EmployeeSearchIndex.Entry> entries) {
+        return entries.stream().map(EmployeeSearchIndex.Entry::getEmployeeId).toList();
+    }
+}
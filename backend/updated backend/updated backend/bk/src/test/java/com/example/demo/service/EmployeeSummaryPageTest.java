@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.dto.EmployeeSummaryDTO;
+import com.example.demo.model.Employee;
+import com.example.demo.model.JobDetails;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+import com.example.demo.repository.JobDetailsRepository;
+
+@SpringBootTest
+@Transactional
+class EmployeeSummaryPageTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Autowired
+    private JobDetailsRepository jobDetailsRepository;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pagesAndFiltersProjectedSummaries() {
+        String prefix = "SUM" + System.nanoTime();
+        String department = "Summary " + prefix;
+        save(prefix + "-1", department, Employee.EmployeeType.FULL_TIME, true);
+        save(prefix + "-2", department, Employee.EmployeeType.FULL_TIME, true);
+        save(prefix + "-3", department, Employee.EmployeeType.INTERN, true);
+        save(prefix + "-4", department, Employee.EmployeeType.FULL_TIME, false);
+
+        Map<String, Object> first = employeeService.getEmployeeSummaryPage(true, department, null, 0, 2);
+        assertEquals(3L, first.get("totalElements"));
+        assertEquals(2, first.get("totalPages"));
+        assertTrue((Boolean) first.get("hasNext"));
+        List<EmployeeSummaryDTO> items = (List<EmployeeSummaryDTO>) first.get("items");
+        assertEquals(List.of(prefix + "-1", prefix + "-2"), items.stream().map(EmployeeSummaryDTO::getEmployeeId).toList());
+        assertEquals(department, items.get(0).getDepartment());
+        assertEquals("Engineer", items.get(0).getDesignation());
+
+        Map<String, Object> second = employeeService.getEmployeeSummaryPage(true, department, null, 1, 2);
+        assertFalse((Boolean) second.get("hasNext"));
+        assertEquals(1, ((List<EmployeeSummaryDTO>) second.get("items")).size());
+
+        Map<String, Object> interns = employeeService.getEmployeeSummaryPage(null, department,
+                Employee.EmployeeType.INTERN, 0, 20);
+        assertEquals(1L, interns.get("totalElements"));
+
+        Map<String, Object> inactive = employeeService.getEmployeeSummaryPage(false, department, null, 0, 20);
+        assertEquals(prefix + "-4", ((List<EmployeeSummaryDTO>) inactive.get("items")).get(0).getEmployeeId());
+    }
+
+    private void save(String employeeId, String department, Employee.EmployeeType type, boolean active) {
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Summary " + employeeId)
+                .isActive(active)
+                .typeOfEmployee(type)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, department, LocalDate.now().minusYears(1)));
+        JobDetails job = new JobDetails();
+        job.setEmployee(employee);
+        job.setDeptId("D1");
+        job.setDesignation("Engineer");
+        jobDetailsRepository.save(job);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.Holiday;
+import com.example.demo.repository.HolidayRepository;
+
+class HolidayCalendarTest {
+
+    @Test
+    void emptyAndReversedRangesCountNothing() {
+        HolidayRepository holidayRepository = mock(HolidayRepository.class);
+        when(holidayRepository.findAll()).thenReturn(List.of(holiday(LocalDate.of(2024, 3, 8)),
+                holiday(LocalDate.of(2024, 12, 25)), holiday(LocalDate.of(2025, 1, 1))));
+        HolidayCalendar calendar = new HolidayCalendar(holidayRepository);
+
+        assertEquals(3, calendar.countHolidays(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 1)));
+        assertEquals(1, calendar.countHolidays(LocalDate.of(2024, 3, 8), LocalDate.of(2024, 3, 8)));
+        assertEquals(0, calendar.countHolidays(LocalDate.of(2024, 3, 9), LocalDate.of(2024, 3, 1)));
+        assertEquals(0, calendar.countHolidays(LocalDate.of(2025, 1, 2), LocalDate.of(2024, 3, 8)));
+        assertTrue(calendar.holidaysBetween(LocalDate.of(2024, 3, 9), LocalDate.of(2024, 3, 1)).isEmpty());
+    }
+
+    private static Holiday holiday(LocalDate date) {
+        Holiday holiday = new Holiday();
+        holiday.setName("Holiday " + date);
+        holiday.setDate(date);
+        return holiday;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+
+@SpringBootTest
+class LateLoginCounterDeduplicationServiceTest {
+
+    @Autowired
+    private LateLoginCounterDeduplicationService deduplicationService;
+
+    @Autowired
+    private LateLoginCounterRepository lateLoginCounterRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void duplicateCountersAreMergedWithTheirCountsSummedBeforeTheKeyIsAdded() throws Exception {
+        String employeeId = "LDUP-" + System.nanoTime();
+        employeeRepository.save(TestEmployees.employee(employeeId, "Late Dup " + employeeId).build());
+
+        // A database from before the key existed
+        jdbcTemplate.execute("ALTER TABLE late_login_counter DROP CONSTRAINT " + LateLoginCounterDeduplicationService.UNIQUE_KEY);
+        try {
+            insertCounter(employeeId, 4, 2019, 1);
+            insertCounter(employeeId, 4, 2019, 1);
+            insertCounter(employeeId, 5, 2019, 2);
+
+            assertEquals(1, deduplicationService.mergeDuplicates());
+            deduplicationService.addUniqueKey();
+            assertTrue(deduplicationService.hasUniqueKey());
+
+            assertEquals(1, rows(employeeId, 4, 2019));
+            assertEquals(2, count(employeeId, 4, 2019));
+            assertEquals(2, count(employeeId, 5, 2019));
+
+            // With the key back the upsert adds to the merged row instead of inserting another
+            int lateLoginCount = transactionTemplate.execute(status -> lateLoginCounterRepository.incrementAndGet(employeeId, 4, 2019));
+            assertEquals(3, lateLoginCount);
+            assertEquals(1, rows(employeeId, 4, 2019));
+        } finally {
+            if (!deduplicationService.hasUniqueKey()) {
+                jdbcTemplate.update("DELETE FROM late_login_counter WHERE employee_id = ?", employeeId);
+                deduplicationService.addUniqueKey();
+            }
+        }
+    }
+
+    private void insertCounter(String employeeId, int month, int year, int count) {
+        jdbcTemplate.update("INSERT INTO late_login_counter (employee_id, month, year, late_login_count) VALUES (?, ?, ?, ?)",
+                employeeId, month, year, count);
+    }
+
+    private int rows(String employeeId, int month, int year) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM late_login_counter WHERE employee_id = ? AND month = ? AND year = ?",
+                Integer.class, employeeId, month, year);
+    }
+
+    private int count(String employeeId, int month, int year) {
+        return jdbcTemplate.queryForObject("SELECT late_login_count FROM late_login_counter WHERE employee_id = ? AND month = ? AND year = ?",
+                Integer.class, employeeId, month, year);
+    }
+}
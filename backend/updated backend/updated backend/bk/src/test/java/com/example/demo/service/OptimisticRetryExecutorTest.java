@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+
+@SpringBootTest
+class OptimisticRetryExecutorTest {
+
+    @Autowired
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void conflictingWriteIsRetriedOnFreshState() {
+        Long attendanceId = givenAttendance();
+        LocalDateTime punchOut = LocalDateTime.of(2023, 3, 6, 18, 0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Long version = optimisticRetryExecutor.execute("test", () -> {
+            Attendance attendance = attendanceRepository.findById(attendanceId).orElseThrow();
+            if (attempts.incrementAndGet() == 1) {
+                // Another writer commits in between our read and our write
+                concurrently(() -> attendanceRepository.findById(attendanceId).orElseThrow().setHoursWorked(1.0));
+            }
+            attendance.setPunchOutTime(punchOut);
+            return attendanceRepository.saveAndFlush(attendance).getVersion();
+        });
+
+        assertEquals(2, attempts.get());
+        Attendance saved = attendanceRepository.findById(attendanceId).orElseThrow();
+        assertEquals(punchOut, saved.getPunchOutTime());
+        assertEquals(1.0, saved.getHoursWorked());
+        assertEquals(2L, version);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        Long attendanceId = givenAttendance();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> optimisticRetryExecutor.execute("test", () -> {
+            attempts.incrementAndGet();
+            Attendance attendance = attendanceRepository.findById(attendanceId).orElseThrow();
+            concurrently(() -> attendanceRepository.findById(attendanceId).orElseThrow()
+                    .setHoursWorked((double) attempts.get()));
+            attendance.setPunchOutTime(LocalDateTime.now());
+            return attendanceRepository.saveAndFlush(attendance);
+        }));
+        assertEquals(OptimisticRetryExecutor.MAX_ATTEMPTS, attempts.get());
+    }
+
+    private void concurrently(Runnable write) {
+        TransactionTemplate other = new TransactionTemplate(transactionManager);
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        other.executeWithoutResult(status -> write.run());
+    }
+
+    private Long givenAttendance() {
+        String employeeId = "LOCK-" + System.nanoTime();
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Lock " + employeeId)
+                .build());
+        Attendance attendance = new Attendance(employee, LocalDate.of(2023, 3, 6));
+        attendance.setPunchInTime(LocalDateTime.of(2023, 3, 6, 9, 0));
+        return attendanceRepository.save(attendance).getId();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.AttendanceStatus;
+import com.example.demo.model.Employee;
+import com.example.demo.model.LateLoginCounter;
+import com.example.demo.model.PermissionHours;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.LateLoginCounterRepository;
+import com.example.demo.repository.PermissionHourRepository;
+
+@SpringBootTest
+class PermissionHoursServiceTest {
+
+    // A Tuesday no other test writes attendance for; no department settings, so the defaults
+    // apply (late after 09:45, full day 9h)
+    private static final LocalDate DATE = LocalDate.of(2017, 6, 6);
+
+    @Autowired
+    private PermissionHoursService permissionHoursService;
+
+    @Autowired
+    private PermissionHourRepository permissionHourRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private LateLoginCounterRepository lateLoginCounterRepository;
+
+    @Test
+    void approvalThatRemovesALateLoginTakesItBackFromTheCounter() {
+        Employee employee = createEmployee("PH1-" + System.nanoTime());
+        // As punched out: a late full day, counted as a worked day and a late login
+        Attendance attendance = new Attendance(employee, DATE);
+        attendance.setPunchInTime(DATE.atTime(10, 0));
+        attendance.setPunchOutTime(DATE.atTime(19, 30));
+        attendance.setHoursWorked(9.5);
+        attendance.setIdleTime(0.0);
+        attendance.setIsOtDay(false);
+        attendance.setIsLateLogin(true);
+        attendance.setAttendanceStatus(AttendanceStatus.PRESENT_LATE_LOGIN);
+        attendanceRepository.save(attendance);
+        employeeRepository.incrementWorkedDays(employee.getEmployeeId());
+        saveLateLoginCount(employee, 1);
+
+        approve(employee, LocalTime.of(9, 0), LocalTime.of(10, 0));
+
+        Attendance adjusted = row(employee);
+        assertEquals(AttendanceStatus.PRESENT_ON_TIME, adjusted.getAttendanceStatus());
+        assertEquals(DATE.atTime(9, 0), adjusted.getPunchInTime());
+        assertEquals(0, lateLoginCount(employee));
+        assertEquals(1, workedDays(employee));
+    }
+
+    @Test
+    void approvalThatCreatesTheDayCountsItLikeAPunchOut() {
+        Employee employee = createEmployee("PH2-" + System.nanoTime());
+        saveLateLoginCount(employee, 2);
+
+        approve(employee, LocalTime.of(10, 0), LocalTime.of(19, 30));
+
+        // Third late login of the month
+        assertEquals(AttendanceStatus.HALF_DAY, row(employee).getAttendanceStatus());
+        assertEquals(3, lateLoginCount(employee));
+        assertEquals(1, workedDays(employee));
+    }
+
+    private void approve(Employee employee, LocalTime from, LocalTime to) {
+        PermissionHours permission = new PermissionHours();
+        permission.setEmployeeId(employee.getEmployeeId());
+        permission.setDate(DATE);
+        permission.setFromTime(from);
+        permission.setToTime(to);
+        permission.setReason("Test");
+        Long id = permissionHoursService.savePermissionHours(permission).getId();
+        permissionHoursService.approvePermissionHours(id, "admin", "ok");
+    }
+
+    private Employee createEmployee(String employeeId) {
+        return employeeRepository.save(TestEmployees.employee(employeeId, "Permission " + employeeId)
+                .build());
+    }
+
+    private void saveLateLoginCount(Employee employee, int count) {
+        LateLoginCounter counter = new LateLoginCounter(employee, DATE.getMonthValue(), DATE.getYear());
+        counter.setLateLoginCount(count);
+        lateLoginCounterRepository.save(counter);
+    }
+
+    private Attendance row(Employee employee) {
+        return attendanceRepository.findByEmployeeEmployeeIdAndDate(employee.getEmployeeId(), DATE).orElseThrow();
+    }
+
+    private int lateLoginCount(Employee employee) {
+        return lateLoginCounterRepository.findByEmployeeEmployeeIdAndMonthAndYear(
+                employee.getEmployeeId(), DATE.getMonthValue(), DATE.getYear()).orElseThrow().getLateLoginCount();
+    }
+
+    private int workedDays(Employee employee) {
+        return employeeRepository.findById(employee.getEmployeeId()).orElseThrow().getWorkedDays();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.repository.DepartmentSettingsRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+
+@SpringBootTest
+class PresenceRegistryTest {
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private PresenceRegistry presenceRegistry;
+
+    @Autowired
+    private DepartmentSettingsCache departmentSettingsCache;
+
+    @Autowired
+    private DepartmentSettingsRepository departmentSettingsRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Test
+    void manualPunchesMoveTheBoardAndARebuildKeepsThem() {
+        String suffix = String.valueOf(System.nanoTime());
+        String department = "Presence " + suffix;
+        // Punch window open all day, so the manual punches below are accepted at any time
+        departmentSettingsRepository.save(new DepartmentSettings(department, "DEFAULT",
+                LocalTime.MIN, LocalTime.of(23, 59, 59), LocalTime.of(9, 30), LocalTime.of(18, 30),
+                LocalTime.of(23, 59, 59), 4.0, 9.0,
+                LocalTime.of(9, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(18, 0)));
+        departmentSettingsCache.refresh();
+        Employee stays = createEmployee("PR1-" + suffix, department);
+        Employee leaves = createEmployee("PR2-" + suffix, department);
+
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        attendanceService.manualPunchIn(stays.getEmployeeId(), start.plusSeconds(1));
+        attendanceService.manualPunchIn(leaves.getEmployeeId(), start.plusSeconds(1));
+        attendanceService.manualPunchOut(leaves.getEmployeeId(), start.plusSeconds(2));
+
+        assertEquals(1, counts(department).get("in"));
+        assertEquals(1, counts(department).get("out"));
+
+        // After a restart the punched-out employee is still counted as out
+        presenceRegistry.rebuild();
+
+        assertEquals(1, counts(department).get("in"));
+        assertEquals(1, counts(department).get("out"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> counts(String department) {
+        return (Map<String, Integer>) presenceRegistry.getDepartmentPresence(department).get("counts");
+    }
+
+    private Employee createEmployee(String employeeId, String department) {
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Presence " + employeeId)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, department, LocalDate.of(2016, 1, 1)));
+        return employee;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.demo.TestEmployees;
+import com.example.demo.exception.AttendanceException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.model.DepartmentSettings;
+import com.example.demo.model.Employee;
+import com.example.demo.model.PunchInReceipt;
+import com.example.demo.repository.AttendanceRepository;
+import com.example.demo.repository.DepartmentSettingsRepository;
+import com.example.demo.repository.EmployeeRepository;
+import com.example.demo.repository.ExperienceRepository;
+import com.example.demo.repository.PunchInReceiptRepository;
+
+@SpringBootTest
+class PunchIngestionQueueTest {
+
+    // Punch window that never opens: it ends at midnight
+    private static final String CLOSED_DEPARTMENT = "QueueClosed";
+
+    @Autowired
+    private PunchIngestionQueue punchIngestionQueue;
+
+    @Autowired
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @Autowired
+    private DepartmentSettingsCache departmentSettingsCache;
+
+    @Autowired
+    private DayPlanRegistry dayPlanRegistry;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ExperienceRepository experienceRepository;
+
+    @Autowired
+    private DepartmentSettingsRepository departmentSettingsRepository;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private PunchInReceiptRepository receiptRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void punchesThatCannotSucceedAreRefusedBeforeTheyAreQueued() {
+        if (departmentSettingsRepository.findByDepartmentNameAndEmpType(CLOSED_DEPARTMENT, "DEFAULT").isEmpty()) {
+            departmentSettingsRepository.save(new DepartmentSettings(CLOSED_DEPARTMENT, "DEFAULT",
+                    LocalTime.MIN, LocalTime.MIN, LocalTime.of(9, 30), LocalTime.of(18, 30),
+                    LocalTime.of(9, 45), 4.0, 9.0,
+                    LocalTime.of(9, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(18, 0)));
+        }
+        String suffix = String.valueOf(System.nanoTime());
+        Employee inactive = employeeRepository.save(TestEmployees.employee("QI-" + suffix, "Inactive " + suffix)
+                .isActive(false)
+                .build());
+        Employee closed = employeeRepository.save(TestEmployees.employee("QC-" + suffix, "Closed " + suffix)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(closed, CLOSED_DEPARTMENT, LocalDate.now().minusYears(1)));
+        employeeSearchIndex.reload();
+        departmentSettingsCache.refresh();
+        dayPlanRegistry.rebuild();
+        int queued = punchIngestionQueue.getQueueSize();
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> punchIngestionQueue.enqueue("QN-" + suffix, "key-none-" + suffix));
+
+        AttendanceException notActive = assertThrows(AttendanceException.class,
+                () -> punchIngestionQueue.enqueue(inactive.getEmployeeId(), "key-inactive-" + suffix));
+        assertEquals("Employee is not active: " + inactive.getEmployeeId(), notActive.getMessage());
+
+        AttendanceException outside = assertThrows(AttendanceException.class,
+                () -> punchIngestionQueue.enqueue(closed.getEmployeeId(), "key-closed-" + suffix));
+        assertTrue(outside.getMessage().startsWith("Punch In is only allowed between"));
+
+        // Nothing was queued or remembered for the refused punches
+        assertEquals(queued, punchIngestionQueue.getQueueSize());
+        assertTrue(punchIngestionQueue.getReceipt("key-closed-" + suffix).isEmpty());
+        assertTrue(punchIngestionQueue.getLatestReceipt(closed.getEmployeeId(), LocalDate.now()).isEmpty());
+    }
+
+    @Test
+    void punchesStoredBeforeACrashAreWrittenWhenTheQueueResumes() throws InterruptedException {
+        String suffix = String.valueOf(System.nanoTime());
+        // No department settings: the defaults apply (punch-in from 09:15)
+        String department = "QueueWrite " + suffix;
+        Employee first = createEmployee("QW1-" + suffix, department);
+        Employee second = createEmployee("QW2-" + suffix, department);
+        LocalDateTime receivedAt = LocalDate.of(2017, 5, 9).atTime(10, 0); // a Tuesday
+
+        // Accepted and stored, but never written
+        receiptRepository.insertQueued("key-w1-" + suffix, first.getEmployeeId(), receivedAt);
+        receiptRepository.insertQueued("key-w2-" + suffix, second.getEmployeeId(), receivedAt);
+
+        punchIngestionQueue.resume();
+        awaitFinished("key-w1-" + suffix);
+        awaitFinished("key-w2-" + suffix);
+
+        for (Employee employee : List.of(first, second)) {
+            assertEquals(receivedAt, attendanceRepository
+                    .findByEmployeeEmployeeIdAndDate(employee.getEmployeeId(), receivedAt.toLocalDate())
+                    .orElseThrow().getPunchInTime());
+        }
+        assertEquals(PunchIngestionQueue.SAVED, receiptRepository.findById("key-w1-" + suffix).orElseThrow().getStatus());
+        assertEquals(PunchIngestionQueue.SAVED, punchIngestionQueue.getReceipt("key-w2-" + suffix).orElseThrow().getStatus());
+    }
+
+    @Test
+    void acceptedPunchesAreStoredBeforeTheyAreAcknowledged() {
+        String suffix = String.valueOf(System.nanoTime());
+        // Created after today's plan was built, so the queue accepts it and the writer decides
+        dayPlanRegistry.rebuild();
+        Employee employee = createEmployee("QA-" + suffix, "QueueAck " + suffix);
+        employeeSearchIndex.reload();
+
+        PunchIngestionQueue.PunchReceipt receipt = punchIngestionQueue.enqueue(employee.getEmployeeId(), "key-a-" + suffix);
+
+        PunchInReceipt stored = receiptRepository.findById("key-a-" + suffix).orElseThrow();
+        assertEquals(employee.getEmployeeId(), stored.getEmployeeId());
+        assertEquals(receipt.getReceivedAt(), stored.getReceivedAt());
+        assertEquals(receipt, punchIngestionQueue.enqueue(employee.getEmployeeId(), "key-a-" + suffix));
+    }
+
+    @Test
+    void retriesFindTheirReceiptAfterARestart() {
+        String suffix = String.valueOf(System.nanoTime());
+        LocalDateTime receivedAt = LocalDateTime.now().minusMinutes(5).withNano(0);
+        receiptRepository.insertQueued("key-r-" + suffix, "QR1-" + suffix, receivedAt);
+        receiptRepository.finish(List.of("key-r-" + suffix), PunchIngestionQueue.SAVED, null);
+
+        PunchIngestionQueue restarted = new PunchIngestionQueue(attendanceService, employeeSearchIndex,
+                dayPlanRegistry, receiptRepository, transactionManager);
+        restarted.resume();
+
+        // The retry gets the stored receipt back instead of a second punch
+        PunchIngestionQueue.PunchReceipt retried = restarted.enqueue("QR1-" + suffix, "key-r-" + suffix);
+        assertEquals(PunchIngestionQueue.SAVED, retried.getStatus());
+        assertEquals(receivedAt, retried.getReceivedAt());
+        assertEquals(retried, restarted.getLatestReceipt("QR1-" + suffix, receivedAt.toLocalDate()).orElseThrow());
+        AttendanceException otherEmployee = assertThrows(AttendanceException.class,
+                () -> restarted.enqueue("QR2-" + suffix, "key-r-" + suffix));
+        assertEquals("Idempotency key already used for another employee", otherEmployee.getMessage());
+    }
+
+    @Test
+    void aFailedBatchIsRetriedOneByOne() {
+        String suffix = String.valueOf(System.nanoTime());
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        // The whole batch fails (as on a unique-key collision); alone, one punch is rejected and one throws
+        AttendanceService failingBatches = new AttendanceService() {
+            @Override
+            public Map<String, String> recordPunchIns(List<PunchIngestionQueue.QueuedPunch> punches) {
+                batchSizes.add(punches.size());
+                if (punches.size() > 1) {
+                    throw new DataIntegrityViolationException("uk_attendance_employee_date");
+                }
+                String key = punches.get(0).getIdempotencyKey();
+                if (key.startsWith("key-broken-")) {
+                    throw new IllegalStateException("Writer broke");
+                }
+                return key.startsWith("key-rejected-") ? Map.of(key, "Already punched in today") : Map.of();
+            }
+        };
+        PunchIngestionQueue queue = new PunchIngestionQueue(failingBatches, employeeSearchIndex,
+                dayPlanRegistry, receiptRepository, transactionManager);
+
+        LocalDateTime receivedAt = LocalDateTime.now();
+        List<PunchIngestionQueue.QueuedPunch> batch = List.of(
+                new PunchIngestionQueue.QueuedPunch("key-saved-" + suffix, "QF1-" + suffix, receivedAt),
+                new PunchIngestionQueue.QueuedPunch("key-rejected-" + suffix, "QF2-" + suffix, receivedAt),
+                new PunchIngestionQueue.QueuedPunch("key-broken-" + suffix, "QF3-" + suffix, receivedAt));
+        for (PunchIngestionQueue.QueuedPunch punch : batch) {
+            receiptRepository.insertQueued(punch.getIdempotencyKey(), punch.getEmployeeId(), receivedAt);
+        }
+
+        queue.write(batch);
+
+        assertEquals(List.of(3, 1, 1, 1), batchSizes);
+        assertEquals(PunchIngestionQueue.SAVED, receiptRepository.findById("key-saved-" + suffix).orElseThrow().getStatus());
+        PunchInReceipt rejected = receiptRepository.findById("key-rejected-" + suffix).orElseThrow();
+        assertEquals(PunchIngestionQueue.REJECTED, rejected.getStatus());
+        assertEquals("Already punched in today", rejected.getMessage());
+        PunchInReceipt broken = receiptRepository.findById("key-broken-" + suffix).orElseThrow();
+        assertEquals(PunchIngestionQueue.REJECTED, broken.getStatus());
+        assertEquals("Writer broke", broken.getMessage());
+    }
+
+    private Employee createEmployee(String employeeId, String department) {
+        Employee employee = employeeRepository.save(TestEmployees.employee(employeeId, "Queue " + employeeId)
+                .build());
+        experienceRepository.save(TestEmployees.currentExperience(employee, department, LocalDate.of(2016, 1, 1)));
+        return employee;
+    }
+
+    private void awaitFinished(String idempotencyKey) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (!PunchIngestionQueue.QUEUED.equals(receiptRepository.findById(idempotencyKey).orElseThrow().getStatus())) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Punch " + idempotencyKey + " was not written");
+    }
+}